@@ -22,7 +22,8 @@ import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
 
-import java.text.Normalizer;
+import com.example.toto_app.util.TextNormalizer;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -70,8 +71,7 @@ public final class DeviceActions {
                 String number = c.getString(1);
                 if (TextUtils.isEmpty(name) || TextUtils.isEmpty(number)) continue;
 
-                String norm = stripAccents(name).toLowerCase(Locale.ROOT)
-                        .replaceAll("\\s+", " ").trim();
+                String norm = TextNormalizer.WORDS.normalize(name);
                 double score = similarity(q, norm);
                 candidates.add(new ResolvedContact(name, number, score));
             }
@@ -230,15 +230,7 @@ public final class DeviceActions {
         String s = raw.trim().toLowerCase(Locale.ROOT);
         s = s.replaceFirst("^(llama|llamá|llamame|llamame a)\\s+", "");
         s = s.replaceFirst("^(a|al|la|el)\\s+", "");
-        s = stripAccents(s);
-        s = s.replaceAll("[^a-zñ0-9\\s]", "");
-        s = s.replaceAll("\\s+", " ").trim();
-        return s;
-    }
-
-    private static String stripAccents(String s) {
-        String n = Normalizer.normalize(s, Normalizer.Form.NFD);
-        return n.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+        return TextNormalizer.CONTACT.normalize(s);
     }
 
     private static double similarity(String a, String b) {
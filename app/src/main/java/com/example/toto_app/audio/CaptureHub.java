@@ -0,0 +1,281 @@
+package com.example.toto_app.audio;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Único AudioRecord del proceso (16 kHz mono PCM16). Publica en un ring de muestras y cada
+ * consumidor (wake word, caídas, captura de instrucciones) lee con su propio cursor.
+ * El mic se abre con el primer suscriptor y se libera recién después de LINGER_MS sin ninguno,
+ * así los traspasos entre servicios no pagan el costo de abrir/cerrar el AudioRecord.
+ */
+public final class CaptureHub {
+
+    private static final String TAG = "CaptureHub";
+
+    public static final int SAMPLE_RATE = 16000;
+    private static final int CH  = AudioFormat.CHANNEL_IN_MONO;
+    private static final int FMT = AudioFormat.ENCODING_PCM_16BIT;
+
+    private static final int RING_BITS = 18;
+    private static final int RING = 1 << RING_BITS;
+    private static final int MASK = RING - 1;
+    private static final int CHUNK = SAMPLE_RATE / 50;
+    private static final long LINGER_MS = 5000;
+    private static final long RETRY_MS = 500;
+
+    private static CaptureHub instance;
+
+    public static synchronized CaptureHub get() {
+        if (instance == null) instance = new CaptureHub();
+        return instance;
+    }
+
+    private final short[] ring = new short[RING];
+    /** Total de muestras escritas desde que existe el hub; sólo lo avanza el hilo de captura. */
+    private volatile long writePos = 0;
+    /** Primera muestra de la sesión de grabación actual (lo anterior es de otra sesión). */
+    private volatile long sessionStart = 0;
+    private final Object signal = new Object();
+
+    private Thread thread;
+    private int subscribers = 0;
+    private long idleSince = 0;
+    private volatile boolean micOk = false;
+
+    private final AtomicLong opens = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+
+    private CaptureHub() {}
+
+    public Subscription subscribe(String name) {
+        return subscribe(name, 0);
+    }
+
+    /** backMs > 0 arranca el cursor esa cantidad de ms atrás (pre-roll), si el ring lo tiene. */
+    public Subscription subscribe(String name, int backMs) {
+        return subscribe(name, backMs, -1);
+    }
+
+    /**
+     * Arranca el cursor en una posición absoluta (p.ej. la de una detección de wake word), acotada
+     * a lo que el ring todavía tiene de esta sesión del mic. position < 0 = ahora.
+     */
+    public Subscription subscribeFrom(String name, long position) {
+        return subscribe(name, 0, position);
+    }
+
+    private Subscription subscribe(String name, int backMs, long position) {
+        Subscription s;
+        synchronized (this) {
+            subscribers++;
+            if (thread == null || !thread.isAlive()) {
+                thread = new Thread(this::captureLoop, "toto-capture-hub");
+                thread.setPriority(Thread.MAX_PRIORITY);
+                thread.start();
+            }
+            long now = writePos;
+            long oldest = Math.max(sessionStart, now - RING + CHUNK);
+            long from = position >= 0 ? position
+                    : backMs > 0 ? now - (long) backMs * SAMPLE_RATE / 1000 : now;
+            s = new Subscription(name, Math.min(now, Math.max(oldest, from)));
+        }
+        Log.d(TAG, "subscribe " + name + " (suscriptores=" + subscribers + ")");
+        return s;
+    }
+
+    private synchronized void unsubscribe(Subscription s) {
+        subscribers = Math.max(0, subscribers - 1);
+        if (subscribers == 0) idleSince = SystemClock.elapsedRealtime();
+        Log.d(TAG, "unsubscribe " + s.name + " (suscriptores=" + subscribers + ")");
+    }
+
+    /** Si decide parar, suelta el hilo en el mismo lock para que un subscribe() posterior arranque otro. */
+    private synchronized boolean shouldStop() {
+        if (subscribers > 0 || SystemClock.elapsedRealtime() - idleSince < LINGER_MS) return false;
+        thread = null;
+        return true;
+    }
+
+    public long position() { return writePos; }
+
+    public boolean isCapturing() { return micOk; }
+
+    public long opens() { return opens.get(); }
+
+    public long overruns() { return overruns.get(); }
+
+    public synchronized int subscribers() { return subscribers; }
+
+    private void captureLoop() {
+        AudioRecord rec = null;
+        short[] buf = new short[CHUNK];
+        try {
+            while (!shouldStop()) {
+                if (rec == null) {
+                    rec = open();
+                    if (rec == null) {
+                        SystemClock.sleep(RETRY_MS);
+                        continue;
+                    }
+                }
+                int n = rec.read(buf, 0, buf.length);
+                if (n <= 0) {
+                    Log.w(TAG, "read() devolvió " + n + "; reabro el mic");
+                    release(rec);
+                    rec = null;
+                    continue;
+                }
+                publish(buf, n);
+            }
+        } finally {
+            release(rec);
+            synchronized (this) {
+                if (thread == Thread.currentThread()) thread = null;
+            }
+            Log.d(TAG, "Mic liberado (sin suscriptores)");
+        }
+    }
+
+    private AudioRecord open() {
+        int minBuf = AudioRecord.getMinBufferSize(SAMPLE_RATE, CH, FMT);
+        if (minBuf == AudioRecord.ERROR || minBuf == AudioRecord.ERROR_BAD_VALUE) {
+            Log.e(TAG, "getMinBufferSize() inválido: " + minBuf);
+            return null;
+        }
+        AudioRecord rec;
+        try {
+            rec = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, SAMPLE_RATE, CH, FMT,
+                    Math.max(minBuf, SAMPLE_RATE / 2));
+        } catch (SecurityException se) {
+            Log.e(TAG, "Sin permiso RECORD_AUDIO al crear AudioRecord", se);
+            return null;
+        }
+        if (rec.getState() != AudioRecord.STATE_INITIALIZED) {
+            Log.e(TAG, "AudioRecord no inicializó; reintento en " + RETRY_MS + "ms");
+            rec.release();
+            return null;
+        }
+        try {
+            rec.startRecording();
+        } catch (Exception e) {
+            Log.e(TAG, "No se pudo iniciar grabación; reintento", e);
+            rec.release();
+            return null;
+        }
+        sessionStart = writePos;
+        micOk = true;
+        Log.d(TAG, "Mic abierto (aperturas=" + opens.incrementAndGet() + ")");
+        return rec;
+    }
+
+    private void release(AudioRecord rec) {
+        micOk = false;
+        if (rec == null) return;
+        try { rec.stop(); } catch (Exception ignore) {}
+        try { rec.release(); } catch (Exception ignore) {}
+    }
+
+    /** Escritor único: copia al ring y recién después publica la nueva posición. */
+    void publish(short[] src, int n) {
+        long pos = writePos;
+        int i = (int) (pos & MASK);
+        int first = Math.min(n, RING - i);
+        System.arraycopy(src, 0, ring, i, first);
+        if (first < n) System.arraycopy(src, first, ring, 0, n - first);
+        writePos = pos + n;
+        synchronized (signal) { signal.notifyAll(); }
+    }
+
+    public final class Subscription implements Closeable {
+        private final String name;
+        private long cursor;
+        private long lost = 0;
+        private volatile boolean closed = false;
+
+        private Subscription(String name, long from) {
+            this.name = name;
+            this.cursor = from;
+        }
+
+        public String name() { return name; }
+
+        /** Muestras pendientes de leer (sin contar las que ya se pisaron). */
+        public int available() {
+            return (int) Math.min(RING, writePos - cursor);
+        }
+
+        /** Muestras perdidas por leer más lento de lo que se graba. */
+        public long overruns() { return lost; }
+
+        /** Posición absoluta (en muestras) de la próxima lectura. */
+        public long position() { return cursor; }
+
+        /** Descarta lo pendiente y sigue desde "ahora". */
+        public void skipToNow() { cursor = writePos; }
+
+        /**
+         * Copia hasta len muestras. Bloquea hasta timeoutMs si no hay nada.
+         * Devuelve la cantidad leída, 0 si venció el timeout y -1 si la suscripción se cerró.
+         */
+        public int read(short[] dst, int off, int len, long timeoutMs) {
+            if (closed) return -1;
+            long avail = writePos - cursor;
+            if (avail <= 0) {
+                long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+                synchronized (signal) {
+                    while (!closed && (avail = writePos - cursor) <= 0) {
+                        long wait = deadline - SystemClock.elapsedRealtime();
+                        if (wait <= 0) return 0;
+                        try {
+                            signal.wait(wait);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return 0;
+                        }
+                    }
+                }
+                if (closed) return -1;
+            }
+            if (avail > RING - CHUNK) skipOverrun(avail);
+
+            int n = (int) Math.min(len, writePos - cursor);
+            int i = (int) (cursor & MASK);
+            int first = Math.min(n, RING - i);
+            System.arraycopy(ring, i, dst, off, first);
+            if (first < n) System.arraycopy(ring, 0, dst, off + first, n - first);
+
+            if (writePos - cursor > RING - CHUNK) {
+                // El escritor dio la vuelta mientras copiábamos (contando el chunk que está llenando,
+                // que todavía no se ve en writePos): lo copiado no es confiable.
+                skipOverrun(writePos - cursor);
+                return read(dst, off, len, timeoutMs);
+            }
+            cursor += n;
+            return n;
+        }
+
+        private void skipOverrun(long avail) {
+            long keep = RING / 2;
+            long skipped = avail - keep;
+            cursor += skipped;
+            lost += skipped;
+            overruns.addAndGet(skipped);
+            Log.w(TAG, name + ": overrun, descarto " + skipped + " muestras");
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            synchronized (signal) { signal.notifyAll(); }
+            unsubscribe(this);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.toto_app.audio;
+
+import android.util.Log;
+
+import com.example.toto_app.util.LatencyStats;
+import com.example.toto_app.util.TextNormalizer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decide el fin de la instrucción combinando el VAD con lo que va reconociendo Vosk: si el parcial
+ * no cambia y ya forma un pedido completo se corta con poco silencio; si termina en algo como
+ * "llamá a" o "y" se espera el máximo. Nunca corta antes que la pausa más larga que el usuario ya
+ * hizo dentro de la frase (por pauseFactor), así quien habla despacio no queda cortado.
+ * onFrame()/shouldEnd() desde el hilo de captura (now en tiempo de audio); onPartial() desde el
+ * del reconocedor.
+ */
+public final class Endpointer {
+
+    private static final String TAG = "Endpointer";
+    private static final int LOG_EVERY = 10;
+
+    public interface IntentCheck {
+        boolean isComplete(String text);
+    }
+
+    public enum Reason { INTENT, STABLE, SILENCE, MAX_DURATION }
+
+    public static class Config {
+        /** Silencio máximo (el trailingSilenceMs de la captura). */
+        public int maxTrailingMs = 1800;
+        /** Parcial estable y pedido completo. */
+        public int intentTrailingMs = 450;
+        /** Parcial estable sin pedido reconocible. */
+        public int stableTrailingMs = 1200;
+        /** Cuánto tiene que quedar igual el parcial para considerarlo estable. */
+        public int partialStableMs = 250;
+        /** El corte temprano espera al menos pausaMásLarga * pauseFactor. */
+        public double pauseFactor = 1.3;
+        /** Pausas más cortas que esto son entre sílabas, no cuentan. */
+        public int minPauseMs = 200;
+        /** El reconocedor puede ir atrasado esto respecto de la captura y seguir contando. */
+        public int decoderLagMs = 120;
+    }
+
+    private static final LatencyStats TIME_TO_ENDPOINT = new LatencyStats("endpoint", 256);
+    private static final Map<Reason, Integer> REASONS = new EnumMap<>(Reason.class);
+
+    /** Silencio desde la última voz hasta la decisión de cortar. */
+    public static LatencyStats stats() { return TIME_TO_ENDPOINT; }
+
+    public static synchronized String summary() {
+        return TIME_TO_ENDPOINT.summary() + " " + REASONS;
+    }
+
+    private static final String[] DANGLING = {
+            "y", "o", "e", "u", "que", "de", "del", "a", "al", "para", "con", "sin", "por", "en", "pero",
+            "porque", "el", "la", "los", "las", "un", "una", "mi", "tu", "su", "le", "les", "se", "me",
+            "como", "cuando", "donde", "mas", "llama", "llamame", "llamar", "mandale", "decile", "avisale",
+            "manda", "mandar", "pone", "poneme", "recordame", "despertame", "escribile"
+    };
+
+    private final Config cfg;
+    private final IntentCheck intent;
+    private final int sampleRate;
+
+    private long samples = 0;
+    private long firstVoiceAt = 0L;
+    private long lastVoiceAt = 0L;
+    private long lastVoiceSample = 0L;
+    private long silenceStartAt = 0L;
+    private long longestPauseMs = 0L;
+    private boolean inSilence = false;
+
+    private volatile String partial = "";
+    private volatile long partialChangedSample = 0L;
+    private volatile long decodedSamples = 0L;
+
+    private Reason reason = null;
+
+    public Endpointer(Config cfg, IntentCheck intent, int sampleRate) {
+        if (sampleRate <= 0) throw new IllegalArgumentException("sampleRate inválido: " + sampleRate);
+        this.cfg = cfg != null ? cfg : new Config();
+        this.intent = intent;
+        this.sampleRate = sampleRate;
+    }
+
+    /** appendedSamples: muestras que la captura agregó a la instrucción con este frame. */
+    public void onFrame(long now, boolean voiced, int appendedSamples) {
+        samples += appendedSamples;
+        if (voiced) {
+            if (firstVoiceAt == 0L) firstVoiceAt = now;
+            if (inSilence) {
+                long pause = now - silenceStartAt;
+                if (pause >= cfg.minPauseMs && pause > longestPauseMs) longestPauseMs = pause;
+            }
+            inSilence = false;
+            lastVoiceAt = now;
+            lastVoiceSample = samples;
+        } else if (firstVoiceAt != 0L && !inSilence) {
+            inSilence = true;
+            silenceStartAt = now;
+        }
+    }
+
+    /**
+     * text: lo reconocido hasta ahora; decoded: muestras de la instrucción que ya pasaron por el
+     * decoder. La estabilidad se mide en audio decodificado, no en tiempo de reloj.
+     */
+    public void onPartial(String text, long decoded) {
+        String t = text == null ? "" : text.trim();
+        if (!t.equals(partial)) {
+            partial = t;
+            partialChangedSample = decoded;
+        }
+        decodedSamples = decoded;
+    }
+
+    public boolean shouldEnd(long now) {
+        if (firstVoiceAt == 0L || !inSilence) return false;
+        long silence = now - lastVoiceAt;
+        Reason r = Reason.SILENCE;
+        long required = cfg.maxTrailingMs;
+        String p = partial;
+        long decoded = decodedSamples;
+        boolean caughtUp = decoded + (long) cfg.decoderLagMs * sampleRate / 1000 >= lastVoiceSample;
+        boolean stable = (decoded - partialChangedSample) * 1000L / sampleRate >= cfg.partialStableMs;
+        if (!p.isEmpty() && caughtUp && stable && !endsDangling(p)) {
+            boolean complete = intent != null && intent.isComplete(p);
+            r = complete ? Reason.INTENT : Reason.STABLE;
+            required = complete ? cfg.intentTrailingMs : cfg.stableTrailingMs;
+            required = Math.max(required, (long) (longestPauseMs * cfg.pauseFactor));
+            if (required >= cfg.maxTrailingMs) {
+                required = cfg.maxTrailingMs;
+                r = Reason.SILENCE;
+            }
+        }
+        if (silence < required) return false;
+        finish(now, r);
+        return true;
+    }
+
+    /** La captura se cortó por duración máxima. */
+    public void onMaxDuration(long now) {
+        if (reason == null) finish(now, Reason.MAX_DURATION);
+    }
+
+    public Reason reason() { return reason; }
+
+    public String partial() { return partial; }
+
+    private void finish(long now, Reason r) {
+        reason = r;
+        long ms = firstVoiceAt == 0L ? 0L : now - lastVoiceAt;
+        if (firstVoiceAt != 0L) TIME_TO_ENDPOINT.record(ms);
+        synchronized (Endpointer.class) {
+            Integer c = REASONS.get(r);
+            REASONS.put(r, c == null ? 1 : c + 1);
+        }
+        Log.d(TAG, String.format(Locale.US, "Fin por %s tras %dms de silencio (pausa máx %dms): \"%s\"",
+                r, ms, longestPauseMs, partial));
+        if (TIME_TO_ENDPOINT.count() % LOG_EVERY == 0) Log.d(TAG, summary());
+    }
+
+    /** El parcial termina en una palabra que pide continuación ("llamá a", "y", "que"...). */
+    static boolean endsDangling(String text) {
+        String n = TextNormalizer.FOLD.normalize(text);
+        String last = n.substring(n.lastIndexOf(' ') + 1);
+        for (String d : DANGLING) if (d.equals(last)) return true;
+        return false;
+    }
+}
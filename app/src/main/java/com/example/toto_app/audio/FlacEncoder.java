@@ -0,0 +1,301 @@
+package com.example.toto_app.audio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Encoder FLAC mínimo (mono, 16 bits) en Java puro: predictores fijos de orden 0..4 con residuo
+ * Rice particionado, CONSTANT/VERBATIM cuando convienen. Sin LPC ni MD5 (STREAMINFO lo deja en
+ * cero, que el formato define como "desconocido"). Para voz a 16 kHz da ~2x sobre el WAV.
+ */
+public final class FlacEncoder {
+
+    public static final int BLOCK_SIZE = 4096;
+    private static final int MAX_FIXED_ORDER = 4;
+    private static final int MAX_PARTITION_ORDER = 6;
+    private static final int MAX_RICE_PARAM = 14;
+
+    private final int sampleRate;
+    private final BitWriter out = new BitWriter(64 * 1024);
+    private final int[] residual = new int[BLOCK_SIZE];
+    private final int[] best = new int[BLOCK_SIZE];
+    private final int[] params = new int[1 << MAX_PARTITION_ORDER];
+    private final int[] bestParams = new int[1 << MAX_PARTITION_ORDER];
+    private final int[] scratchParams = new int[1 << MAX_PARTITION_ORDER];
+    private final long[] partitionSums = new long[1 << MAX_PARTITION_ORDER];
+    private final long[] partitionOrder = new long[1];
+    private long frameNumber = 0;
+    private long samples = 0;
+
+    /** totalSamples 0 si no se conoce de antemano. */
+    public FlacEncoder(int sampleRate, long totalSamples) {
+        if (sampleRate <= 0 || sampleRate >= (1 << 20)) {
+            throw new IllegalArgumentException("sampleRate inválido para FLAC: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        int block = (int) Math.max(16, Math.min(BLOCK_SIZE, totalSamples > 0 ? totalSamples : BLOCK_SIZE));
+        out.bytes("fLaC");
+        out.bits(1, 1);
+        out.bits(0, 7);
+        out.bits(34, 24);
+        out.bits(block, 16);
+        out.bits(block, 16);
+        out.bits(0, 24);
+        out.bits(0, 24);
+        out.bits(sampleRate, 20);
+        out.bits(0, 3);
+        out.bits(15, 5);
+        out.bits(totalSamples >>> 32, 4);
+        out.bits(totalSamples & 0xFFFFFFFFL, 32);
+        for (int i = 0; i < 16; i++) out.bits(0, 8);
+    }
+
+    /** Codifica un bloque de hasta BLOCK_SIZE muestras. Sólo el último puede ser más corto. */
+    public void writeBlock(int[] x, int n) {
+        if (n <= 0 || n > BLOCK_SIZE) throw new IllegalArgumentException("Bloque FLAC inválido: " + n);
+        int frameStart = out.length();
+        writeFrameHeader(n);
+
+        boolean constant = true;
+        for (int i = 1; i < n && constant; i++) constant = x[i] == x[0];
+        if (constant) {
+            out.bits(0, 8);
+            out.signed(x[0], 16);
+        } else {
+            long verbatimBits = 16L * n;
+            long bestBits = Long.MAX_VALUE;
+            int bestOrder = -1, bestPo = 0;
+            for (int order = 0; order <= Math.min(MAX_FIXED_ORDER, n - 1); order++) {
+                fixedResidual(x, n, order, residual);
+                long bits = 16L * order + 6 + riceCost(residual, n, order, params, partitionOrder);
+                if (bits < bestBits) {
+                    bestBits = bits;
+                    bestOrder = order;
+                    bestPo = (int) partitionOrder[0];
+                    System.arraycopy(residual, 0, best, 0, n);
+                    System.arraycopy(params, 0, bestParams, 0, 1 << bestPo);
+                }
+            }
+            if (bestOrder < 0 || bestBits >= verbatimBits) {
+                out.bits(1 << 1, 8);
+                for (int i = 0; i < n; i++) out.signed(x[i], 16);
+            } else {
+                out.bits((8 | bestOrder) << 1, 8);
+                for (int i = 0; i < bestOrder; i++) out.signed(x[i], 16);
+                out.bits(0, 2);
+                out.bits(bestPo, 4);
+                int parts = 1 << bestPo;
+                int per = n >> bestPo;
+                int i = bestOrder;
+                for (int p = 0; p < parts; p++) {
+                    int k = bestParams[p];
+                    out.bits(k, 4);
+                    int end = (p + 1) * per;
+                    for (; i < end; i++) out.rice(zigzag(best[i]), k);
+                }
+            }
+        }
+        out.alignToByte();
+        out.bits(Crc.crc16(out.buf, frameStart, out.length()), 16);
+        frameNumber++;
+        samples += n;
+    }
+
+    public long samples() { return samples; }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(out.buf, out.length());
+    }
+
+    /** WAV PCM16 mono (header incluido) a FLAC, leyendo de a bloques. */
+    public static byte[] encodeWav(InputStream wav) throws IOException {
+        WavReader.Header h = WavReader.readHeader(wav);
+        if (!h.isPcm() || h.bitsPerSample != 16 || h.channels != 1) {
+            throw new IOException("FLAC: sólo PCM16 mono (bits=" + h.bitsPerSample + " ch=" + h.channels + ")");
+        }
+        long total = h.dataSize > 0 ? h.dataSize / 2 : 0;
+        FlacEncoder enc = new FlacEncoder(h.sampleRate, total);
+        byte[] raw = new byte[BLOCK_SIZE * 2];
+        int[] block = new int[BLOCK_SIZE];
+        long left = total > 0 ? total * 2 : Long.MAX_VALUE;
+        while (left > 0) {
+            int want = (int) Math.min(raw.length, left);
+            int got = 0;
+            while (got < want) {
+                int r = wav.read(raw, got, want - got);
+                if (r < 0) break;
+                got += r;
+            }
+            int n = got / 2;
+            if (n == 0) break;
+            for (int i = 0; i < n; i++) block[i] = (short) ((raw[2 * i] & 0xFF) | (raw[2 * i + 1] << 8));
+            enc.writeBlock(block, n);
+            left -= got;
+            if (got < want) break;
+        }
+        return enc.toByteArray();
+    }
+
+    private void writeFrameHeader(int n) {
+        int start = out.length();
+        out.bits(0x3FFE, 14);
+        out.bits(0, 1);
+        out.bits(0, 1);
+        out.bits(n == BLOCK_SIZE ? 12 : 7, 4);
+        out.bits(rateCode(sampleRate), 4);
+        out.bits(0, 4);
+        out.bits(4, 3);
+        out.bits(0, 1);
+        out.utf8(frameNumber);
+        if (n != BLOCK_SIZE) out.bits(n - 1, 16);
+        out.bits(Crc.crc8(out.buf, start, out.length()), 8);
+    }
+
+    private static int rateCode(int sr) {
+        switch (sr) {
+            case 8000: return 4;
+            case 16000: return 5;
+            case 22050: return 6;
+            case 24000: return 7;
+            case 32000: return 8;
+            case 44100: return 9;
+            case 48000: return 10;
+            default: return 0;
+        }
+    }
+
+    private static void fixedResidual(int[] x, int n, int order, int[] r) {
+        for (int i = order; i < n; i++) {
+            switch (order) {
+                case 0: r[i] = x[i]; break;
+                case 1: r[i] = x[i] - x[i - 1]; break;
+                case 2: r[i] = x[i] - 2 * x[i - 1] + x[i - 2]; break;
+                case 3: r[i] = x[i] - 3 * x[i - 1] + 3 * x[i - 2] - x[i - 3]; break;
+                default: r[i] = x[i] - 4 * x[i - 1] + 6 * x[i - 2] - 4 * x[i - 3] + x[i - 4]; break;
+            }
+        }
+    }
+
+    /**
+     * Bits estimados del residuo con la mejor partición (costo Rice por suma de |residuo|, como
+     * libFLAC); deja los parámetros en params y el orden de partición en poOut[0].
+     */
+    private long riceCost(int[] r, int n, int order, int[] params, long[] poOut) {
+        int maxPo = 0;
+        while (maxPo < MAX_PARTITION_ORDER && (n & ((1 << (maxPo + 1)) - 1)) == 0
+                && (n >> (maxPo + 1)) > order) maxPo++;
+
+        long[] sums = partitionSums;
+        int parts = 1 << maxPo;
+        int per = n >> maxPo;
+        for (int p = 0, i = order; p < parts; p++) {
+            long sum = 0;
+            for (int end = (p + 1) * per; i < end; i++) sum += zigzag(r[i]);
+            sums[p] = sum;
+        }
+
+        long bestBits = Long.MAX_VALUE;
+        for (int po = maxPo; po >= 0; po--) {
+            parts = 1 << po;
+            per = n >> po;
+            long bits = 0;
+            for (int p = 0; p < parts; p++) {
+                int count = p == 0 ? per - order : per;
+                long pBest = Long.MAX_VALUE;
+                int kBest = 0;
+                for (int k = 0; k <= MAX_RICE_PARAM; k++) {
+                    long b = (long) count * (k + 1) + (sums[p] >>> k);
+                    if (b < pBest) { pBest = b; kBest = k; }
+                }
+                scratchParams[p] = kBest;
+                bits += 4 + pBest;
+            }
+            if (bits < bestBits) {
+                bestBits = bits;
+                poOut[0] = po;
+                System.arraycopy(scratchParams, 0, params, 0, parts);
+            }
+            for (int p = 0; p < parts / 2; p++) sums[p] = sums[2 * p] + sums[2 * p + 1];
+        }
+        return bestBits;
+    }
+
+    private static long zigzag(int v) {
+        return ((long) v << 1) ^ ((long) v >> 63);
+    }
+
+    private static final class BitWriter {
+        byte[] buf;
+        private int pos = 0;
+        private long acc = 0;
+        private int accBits = 0;
+
+        BitWriter(int capacity) { buf = new byte[capacity]; }
+
+        int length() { return pos; }
+
+        void bits(long v, int n) {
+            while (n > 0) {
+                int take = Math.min(n, 32);
+                n -= take;
+                acc = (acc << take) | ((v >>> n) & ((1L << take) - 1));
+                accBits += take;
+                while (accBits >= 8) {
+                    accBits -= 8;
+                    put((byte) (acc >>> accBits));
+                }
+            }
+        }
+
+        void signed(int v, int n) { bits(v & ((1L << n) - 1), n); }
+
+        void rice(long u, int k) {
+            long q = u >>> k;
+            while (q >= 32) { bits(0, 32); q -= 32; }
+            bits(1, (int) q + 1);
+            if (k > 0) bits(u & ((1L << k) - 1), k);
+        }
+
+        void utf8(long v) {
+            if (v < 0x80) { bits(v, 8); return; }
+            int extra = v < 0x800 ? 1 : v < 0x10000 ? 2 : v < 0x200000 ? 3 : v < 0x4000000 ? 4 : 5;
+            int lead = (0xFF00 >> (extra + 1)) & 0xFF;
+            bits(lead | (v >>> (6 * extra)), 8);
+            for (int i = extra - 1; i >= 0; i--) bits(0x80 | ((v >>> (6 * i)) & 0x3F), 8);
+        }
+
+        void bytes(String s) {
+            for (int i = 0; i < s.length(); i++) bits(s.charAt(i), 8);
+        }
+
+        void alignToByte() {
+            if (accBits > 0) bits(0, 8 - accBits);
+        }
+
+        private void put(byte b) {
+            if (pos == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            buf[pos++] = b;
+        }
+    }
+
+    private static final class Crc {
+        static int crc8(byte[] b, int from, int to) {
+            int c = 0;
+            for (int i = from; i < to; i++) {
+                c ^= b[i] & 0xFF;
+                for (int j = 0; j < 8; j++) c = (c & 0x80) != 0 ? ((c << 1) ^ 0x07) & 0xFF : (c << 1) & 0xFF;
+            }
+            return c;
+        }
+
+        static int crc16(byte[] b, int from, int to) {
+            int c = 0;
+            for (int i = from; i < to; i++) {
+                c ^= (b[i] & 0xFF) << 8;
+                for (int j = 0; j < 8; j++) c = (c & 0x8000) != 0 ? ((c << 1) ^ 0x8005) & 0xFFFF : (c << 1) & 0xFFFF;
+            }
+            return c;
+        }
+    }
+}
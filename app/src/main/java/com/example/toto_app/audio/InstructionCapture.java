@@ -4,21 +4,18 @@ import android.Manifest;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
 import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.content.ContextCompat;
 
 import java.io.File;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 public final class InstructionCapture {
 
     private static final String TAG = "InstructionCapture";
+    private static final long READ_TIMEOUT_MS = 250;
+    private static final long MIC_TIMEOUT_MS = 2000;
 
     public static class Config {
         public int sampleRate = 16000;
@@ -28,12 +25,20 @@ public final class InstructionCapture {
         public int maxDurationMs = 15000;
         public int trailingSilenceMs = 1800;
         public double silenceDbfs = -45.0;
-        public int frameMs = 30;
+        /** Frame del VAD que corta la captura; el mismo que usa el veredicto sobre archivo. */
+        public int frameMs = VadUtils.FRAME_MS;
         public int minSpeechMs = 300;
+        /**
+         * Posición del {@link CaptureHub} desde donde arranca la instrucción (pre-roll: lo que se
+         * dijo pegado a la wake word). -1 = desde ahora.
+         */
+        public long startPosition = -1;
     }
 
     public interface Listener {
         default void onLevel(double dbfs) {}
+        /** PCM16 LE exactamente como queda en la instrucción (para subirlo mientras se graba). */
+        default void onAudio(byte[] pcm, int len) {}
         default void onStarted() {}
         default void onFinished(File wavFile) {}
         default void onError(Exception e) {}
@@ -42,153 +47,189 @@ public final class InstructionCapture {
     private InstructionCapture() {}
 
     public static File captureToWav(Context ctx, File outWav, Config cfg, Listener listener) {
+        if (!hasPermission(ctx, listener)) return outWav;
+        return captureToWav(outWav, cfg, listener);
+    }
+
+    /** Como capture(), pero materializa el WAV en outWav (para quien necesita un archivo). */
+    public static File captureToWav(File outWav, Config cfg, Listener listener) {
+        try {
+            UtteranceBuffer utterance = new UtteranceBuffer(cfg.sampleRate, cfg.maxDurationMs);
+            record(utterance, cfg, listener, null);
+            utterance.writeWav(outWav);
+            if (listener != null) listener.onFinished(outWav);
+        } catch (Exception e) {
+            if (listener != null) listener.onError(e);
+            Log.e(TAG, "captureToWav error", e);
+        }
+        return outWav;
+    }
+
+    public static UtteranceBuffer capture(Context ctx, Config cfg, Listener listener) {
+        if (!hasPermission(ctx, listener)) return null;
+        return capture(cfg, listener);
+    }
+
+    /**
+     * Captura la instrucción en memoria, con las estadísticas de VAD ya calculadas.
+     * Ante un error devuelve lo que se llegó a capturar (o null si no se pudo empezar).
+     */
+    public static UtteranceBuffer capture(Config cfg, Listener listener) {
+        return capture(cfg, listener, null);
+    }
+
+    /** endpointer null = cortar sólo por trailingSilenceMs de silencio. */
+    public static UtteranceBuffer capture(Config cfg, Listener listener, Endpointer endpointer) {
+        UtteranceBuffer utterance = null;
+        try {
+            utterance = new UtteranceBuffer(cfg.sampleRate, cfg.maxDurationMs);
+            record(utterance, cfg, listener, endpointer);
+        } catch (Exception e) {
+            if (listener != null) listener.onError(e);
+            Log.e(TAG, "capture error", e);
+        }
+        return utterance;
+    }
+
+    /**
+     * ¿Sigue hablando el usuario a partir de la posición from? Lee hasta windowMs de audio del hub
+     * (lo ya grabado sale del ring sin esperar) y corta apenas junta minVoicedMs de voz.
+     */
+    public static boolean speechFollows(long from, int windowMs, int minVoicedMs) {
+        Config cfg = new Config();
+        VadEngine vad = new VadEngine(cfg.sampleRate, cfg.silenceDbfs);
+        short[] frame = new short[cfg.sampleRate / 100];
+        long wanted = (long) windowMs * cfg.sampleRate / 1000;
+        long got = 0;
+        try (CaptureHub.Subscription sub = CaptureHub.get().subscribeFrom("speech-probe", from)) {
+            while (got < wanted) {
+                int read = readFrame(sub, frame);
+                if (read <= 0) break;
+                got += read;
+                vad.process(frame, 0, read);
+                if (vad.voicedMs() >= minVoicedMs) break;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "speechFollows error", e);
+            return false;
+        }
+        Log.d(TAG, "Sonda de voz: " + vad.summary());
+        return vad.voicedMs() >= minVoicedMs;
+    }
+
+    private static boolean hasPermission(Context ctx, Listener listener) {
         int perm = ContextCompat.checkSelfPermission(ctx, Manifest.permission.RECORD_AUDIO);
         if (perm != PackageManager.PERMISSION_GRANTED) {
             SecurityException se = new SecurityException("RECORD_AUDIO not granted");
             if (listener != null) listener.onError(se);
             Log.e(TAG, "Permiso RECORD_AUDIO denegado", se);
-            return outWav;
+            return false;
         }
-        return captureToWav(outWav, cfg, listener);
+        return true;
     }
 
-    public static File captureToWav(File outWav, Config cfg, Listener listener) {
-        AudioRecord rec = null;
-        RandomAccessFile raf = null;
-        try {
-            int bytesPerSample = 2;
-            int frameBytes = (cfg.sampleRate * bytesPerSample * cfg.frameMs) / 1000;
-
-            int minBuf = AudioRecord.getMinBufferSize(cfg.sampleRate, cfg.channelConfig, cfg.audioFormat);
-            if (minBuf == AudioRecord.ERROR || minBuf == AudioRecord.ERROR_BAD_VALUE) {
-                throw new IllegalStateException("getMinBufferSize() inválido: " + minBuf);
-            }
-            int bufSize = Math.max(minBuf, frameBytes * 4);
-
-            try {
-                rec = new AudioRecord(
-                        MediaRecorder.AudioSource.VOICE_RECOGNITION,
-                        cfg.sampleRate,
-                        cfg.channelConfig,
-                        cfg.audioFormat,
-                        bufSize
-                );
-            } catch (SecurityException se) {
-                if (listener != null) listener.onError(se);
-                Log.e(TAG, "Sin permiso RECORD_AUDIO al crear AudioRecord", se);
-                return outWav;
-            }
+    /** Endpointer que sólo mira el silencio, con el máximo de la config (el comportamiento clásico). */
+    public static Endpointer.Config endpointerConfig(Config cfg) {
+        Endpointer.Config ec = new Endpointer.Config();
+        ec.maxTrailingMs = cfg.trailingSilenceMs;
+        return ec;
+    }
 
-            if (rec.getState() != AudioRecord.STATE_INITIALIZED) {
-                throw new IllegalStateException("AudioRecord no inicializó (state=" + rec.getState() + ")");
+    private static void record(UtteranceBuffer out, Config cfg, Listener listener, Endpointer endpointer) {
+        CaptureHub.Subscription sub = null;
+        try {
+            if (cfg.sampleRate != CaptureHub.SAMPLE_RATE
+                    || cfg.channelConfig != AudioFormat.CHANNEL_IN_MONO
+                    || cfg.audioFormat != AudioFormat.ENCODING_PCM_16BIT) {
+                throw new IllegalArgumentException("El hub de captura sólo entrega "
+                        + CaptureHub.SAMPLE_RATE + " Hz mono PCM16");
             }
+            int frameSamples = (cfg.sampleRate * cfg.frameMs) / 1000;
 
-            raf = new RandomAccessFile(outWav, "rw");
-            writeWavHeader(raf, cfg.sampleRate, (short) 1, (short) 16, 0);
-
-            byte[] buffer = new byte[frameBytes];
+            short[] frame = new short[frameSamples];
+            byte[] buffer = new byte[frameSamples * 2];
+            // Los tiempos de la captura son de audio, no de reloj: el pre-roll sale del ring de golpe
+            // y no tiene que contar como silencio ni como duración ya transcurrida.
             long start = SystemClock.elapsedRealtime();
+            long consumed = 0;
             long lastVoiceAt = start;
             long firstVoiceAt = 0L;
-            long totalWritten = 0;
-
+            // vad decide el corte y ve todo; verdict sólo ve lo que queda en la instrucción, en frames
+            // de FRAME_MS como el pase sobre el archivo, así el ruido previo o los golpes descartados
+            // no cuentan como voz.
+            VadEngine vad = new VadEngine(cfg.sampleRate, cfg.silenceDbfs);
+            VadEngine verdict = new VadEngine(cfg.sampleRate, cfg.silenceDbfs);
+            int verdictFrame = cfg.sampleRate * VadUtils.FRAME_MS / 1000;
+            out.attachVad(verdict);
+            Endpointer ep = endpointer != null ? endpointer
+                    : new Endpointer(endpointerConfig(cfg), null, cfg.sampleRate);
+
+            sub = CaptureHub.get().subscribeFrom("instruction", cfg.startPosition);
             if (listener != null) listener.onStarted();
 
-            try {
-                rec.startRecording();
-            } catch (SecurityException se) {
-                if (listener != null) listener.onError(se);
-                Log.e(TAG, "Sin permiso RECORD_AUDIO al startRecording()", se);
-                return outWav;
-            }
-
+            // El reloj de pared sólo vigila que el mic entregue audio; cortes y duración van por audio.
+            long lastAudioWall = start;
             while (true) {
-                int read = rec.read(buffer, 0, buffer.length);
-                if (read <= 0) continue;
-
-                double dbfs = dbfsPcm16(buffer, read);
-                if (listener != null) listener.onLevel(dbfs);
-
-                long now = SystemClock.elapsedRealtime();
-                boolean isVoice = dbfs > cfg.silenceDbfs;
+                int read = readFrame(sub, frame);
+                if (read < 0) break;
+                if (read == 0) {
+                    long stalled = SystemClock.elapsedRealtime() - lastAudioWall;
+                    if (!CaptureHub.get().isCapturing() && stalled >= MIC_TIMEOUT_MS) {
+                        throw new IllegalStateException("El micrófono no entrega audio");
+                    }
+                    if (stalled >= cfg.maxDurationMs) {
+                        Log.w(TAG, "El hub no entrega audio hace " + stalled + " ms; corto con lo capturado");
+                        break;
+                    }
+                    continue;
+                }
+                lastAudioWall = SystemClock.elapsedRealtime();
+                consumed += read;
+                long now = start + consumed * 1000L / cfg.sampleRate;
 
+                boolean isVoice = vad.process(frame, 0, read);
+                if (listener != null) listener.onLevel(vad.lastDbfs());
                 if (isVoice) {
                     if (firstVoiceAt == 0L) firstVoiceAt = now;
                     lastVoiceAt = now;
-                    raf.write(buffer, 0, read);
-                    totalWritten += read;
-                } else {
-                    if (firstVoiceAt != 0L && (now - lastVoiceAt) <= cfg.trailingSilenceMs) {
-                        raf.write(buffer, 0, read);
-                        totalWritten += read;
+                }
+                boolean keep = isVoice || (firstVoiceAt != 0L && (now - lastVoiceAt) <= cfg.trailingSilenceMs);
+                if (keep) {
+                    out.append(frame, read);
+                    for (int off = 0; off < read; off += verdictFrame) {
+                        verdict.process(frame, off, Math.min(verdictFrame, read - off));
                     }
                 }
+                ep.onFrame(now, isVoice, keep ? read : 0);
+                if (keep && listener != null) listener.onAudio(buffer, toLittleEndian(frame, read, buffer));
 
-                if (now - start >= cfg.maxDurationMs) break;
-                if (firstVoiceAt != 0L && (now - lastVoiceAt) >= cfg.trailingSilenceMs) break;
+                if (now - start >= cfg.maxDurationMs) { ep.onMaxDuration(now); break; }
+                if (ep.shouldEnd(now)) break;
             }
-
-            updateWavSizes(raf, totalWritten);
-
-            if (listener != null) listener.onFinished(outWav);
-            return outWav;
-
-        } catch (Exception e) {
-            if (listener != null) listener.onError(e);
-            Log.e(TAG, "captureToWav error", e);
-            return outWav;
+            Log.d(TAG, "VAD captura: " + vad.summary() + " | guardado: " + verdict.summary());
         } finally {
-            try { if (rec != null) rec.stop(); } catch (Exception ignored) {}
-            try { if (rec != null) rec.release(); } catch (Exception ignored) {}
-            try { if (raf != null) raf.close(); } catch (Exception ignored) {}
+            if (sub != null) sub.close();
+            out.seal();
         }
     }
 
-
-    private static double dbfsPcm16(byte[] data, int len) {
-        if (len < 2) return -120.0;
-        ByteBuffer bb = ByteBuffer.wrap(data, 0, len).order(ByteOrder.LITTLE_ENDIAN);
-        long sum = 0;
-        int n = 0;
-        while (bb.remaining() >= 2) {
-            short s = bb.getShort();
-            sum += (long) s * (long) s;
-            n++;
+    /** Junta un frame completo del hub; 0 si no llegó audio a tiempo, -1 si se cerró. */
+    private static int readFrame(CaptureHub.Subscription sub, short[] frame) {
+        int got = 0;
+        while (got < frame.length) {
+            int n = sub.read(frame, got, frame.length - got, READ_TIMEOUT_MS);
+            if (n < 0) return got > 0 ? got : -1;
+            if (n == 0) return got;
+            got += n;
         }
-        if (n == 0) return -120.0;
-        double rms = Math.sqrt(sum / (double) n) / 32768.0;
-        if (rms < 1e-9) return -120.0;
-        return 20.0 * Math.log10(rms);
+        return got;
     }
 
-    private static void writeWavHeader(RandomAccessFile raf,
-                                       int sampleRate,
-                                       short channels,
-                                       short bitsPerSample,
-                                       long dataLen) throws Exception {
-        raf.setLength(0);
-        raf.seek(0);
-        raf.writeBytes("RIFF");
-        raf.writeInt(Integer.reverseBytes((int) (36 + dataLen)));
-        raf.writeBytes("WAVE");
-        raf.writeBytes("fmt ");
-        raf.writeInt(Integer.reverseBytes(16));
-        raf.writeShort(Short.reverseBytes((short) 1));
-        raf.writeShort(Short.reverseBytes(channels));
-        raf.writeInt(Integer.reverseBytes(sampleRate));
-        int byteRate = sampleRate * channels * bitsPerSample / 8;
-        raf.writeInt(Integer.reverseBytes(byteRate));
-        short blockAlign = (short) (channels * bitsPerSample / 8);
-        raf.writeShort(Short.reverseBytes(blockAlign));
-        raf.writeShort(Short.reverseBytes(bitsPerSample));
-        raf.writeBytes("data");
-        raf.writeInt(Integer.reverseBytes((int) dataLen));
-    }
-
-    private static void updateWavSizes(RandomAccessFile raf, long dataLen) throws Exception {
-        raf.seek(4);
-        raf.writeInt(Integer.reverseBytes((int) (36 + dataLen)));
-        raf.seek(40);
-        raf.writeInt(Integer.reverseBytes((int) dataLen));
+    private static int toLittleEndian(short[] src, int n, byte[] dst) {
+        for (int i = 0, j = 0; i < n; i++, j += 2) {
+            dst[j] = (byte) src[i];
+            dst[j + 1] = (byte) (src[i] >> 8);
+        }
+        return n * 2;
     }
 }
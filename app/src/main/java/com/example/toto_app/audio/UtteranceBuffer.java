@@ -0,0 +1,141 @@
+package com.example.toto_app.audio;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Una instrucción capturada, en memoria: imagen WAV completa (header de 44 bytes + PCM16 LE mono)
+ * en un ByteBuffer directo. La captura le deja un {@link VadEngine} alimentado sólo con el audio
+ * guardado (mismos frames que el pase sobre el archivo), así el veredicto sale sin volver a leerlo.
+ * Sólo se escribe un archivo si algún consumidor lo pide con writeWav().
+ */
+public final class UtteranceBuffer {
+
+    public static final int HEADER_BYTES = 44;
+
+    private final int sampleRate;
+    private ByteBuffer data;
+    /** Vista de shorts sobre el PCM de data (índice 0 = primer sample), para no crear una por frame. */
+    private ShortBuffer samples;
+    private boolean sealed = false;
+    private VadEngine vad;
+
+    public UtteranceBuffer(int sampleRate, int maxDurationMs) {
+        if (sampleRate <= 0) throw new IllegalArgumentException("sampleRate inválido: " + sampleRate);
+        if (maxDurationMs <= 0) throw new IllegalArgumentException("maxDurationMs inválido: " + maxDurationMs);
+        this.sampleRate = sampleRate;
+        // Un frame de captura de margen: el último puede pasarse del máximo.
+        long bytes = HEADER_BYTES + (long) sampleRate * 2 * (maxDurationMs + 100) / 1000;
+        this.data = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, bytes)).order(ByteOrder.LITTLE_ENDIAN);
+        this.data.position(HEADER_BYTES);
+        this.samples = data.asShortBuffer();
+    }
+
+    public int sampleRate() { return sampleRate; }
+
+    /** Bytes de PCM (sin header). */
+    public int pcmBytes() { return data.position() - HEADER_BYTES; }
+
+    public int durationMs() { return (int) (pcmBytes() / 2 * 1000L / sampleRate); }
+
+    public void append(short[] src, int n) {
+        if (sealed) throw new IllegalStateException("UtteranceBuffer ya cerrado");
+        ensureRoom(n * 2);
+        samples.put(src, 0, n);
+        data.position(data.position() + n * 2);
+    }
+
+    private void ensureRoom(int bytes) {
+        if (data.remaining() >= bytes) return;
+        int cap = Math.max(data.capacity() * 2, data.position() + bytes);
+        ByteBuffer bigger = ByteBuffer.allocateDirect(cap).order(ByteOrder.LITTLE_ENDIAN);
+        data.flip();
+        bigger.put(data);
+        data = bigger;
+        ByteBuffer pcm = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        pcm.position(HEADER_BYTES);
+        samples = pcm.asShortBuffer();
+        samples.position(pcmBytes() / 2);
+    }
+
+    /** VAD del audio guardado (null si el buffer no vino de InstructionCapture). */
+    public VadEngine vad() { return vad; }
+
+    void attachVad(VadEngine vad) { this.vad = vad; }
+
+    /** Veredicto del VAD de la captura; sin VAD adjunto se corre uno sobre el audio guardado. */
+    public boolean hasEnoughVoice(double gateDbfs, int minVoicedMs) {
+        VadEngine v = vad;
+        if (v == null) {
+            v = new VadEngine(sampleRate, gateDbfs);
+            short[] frame = new short[sampleRate / 100];
+            ShortBuffer pcm = samples.duplicate();
+            pcm.flip();
+            while (pcm.remaining() >= frame.length) {
+                pcm.get(frame);
+                v.process(frame, 0, frame.length);
+            }
+        }
+        return v.hasEnoughVoice(minVoicedMs);
+    }
+
+    /** Escribe el header con los tamaños finales; después de esto no se puede agregar audio. */
+    public void seal() {
+        if (sealed) return;
+        sealed = true;
+        int dataLen = pcmBytes();
+        ByteBuffer h = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        h.clear();
+        h.put(new byte[]{'R', 'I', 'F', 'F'}).putInt(36 + dataLen)
+                .put(new byte[]{'W', 'A', 'V', 'E'})
+                .put(new byte[]{'f', 'm', 't', ' '}).putInt(16)
+                .putShort((short) 1).putShort((short) 1)
+                .putInt(sampleRate).putInt(sampleRate * 2)
+                .putShort((short) 2).putShort((short) 16)
+                .put(new byte[]{'d', 'a', 't', 'a'}).putInt(dataLen);
+    }
+
+    /** Vista de sólo lectura del WAV completo (header + PCM), independiente para cada lector. */
+    public ByteBuffer wav() {
+        seal();
+        ByteBuffer v = data.duplicate();
+        v.flip();
+        return v.asReadOnlyBuffer();
+    }
+
+    public int wavBytes() { return data.position(); }
+
+    public InputStream openWav() {
+        final ByteBuffer v = wav();
+        return new InputStream() {
+            @Override public int read() {
+                return v.hasRemaining() ? v.get() & 0xFF : -1;
+            }
+
+            @Override public int read(byte[] b, int off, int len) {
+                if (len == 0) return 0;
+                if (!v.hasRemaining()) return -1;
+                int n = Math.min(len, v.remaining());
+                v.get(b, off, n);
+                return n;
+            }
+
+            @Override public int available() { return v.remaining(); }
+        };
+    }
+
+    /** Materializa el WAV en disco, con una sola escritura desde el buffer directo. */
+    public File writeWav(File out) throws IOException {
+        ByteBuffer v = wav();
+        try (FileOutputStream fos = new FileOutputStream(out); FileChannel ch = fos.getChannel()) {
+            while (v.hasRemaining()) ch.write(v);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.toto_app.audio;
+
+import java.util.Locale;
+
+/**
+ * VAD incremental por frame sobre PCM16 mono, con memoria constante: nivel (dBFS), energía en la
+ * banda de voz (~300-3400 Hz, biquad pasabanda), cruces por cero y un piso de ruido que baja rápido
+ * y sube lento (sólo en frames sin voz). Un frame es voz si supera el umbral adaptativo y tiene
+ * forma de voz (no es zumbido grave ni siseo).
+ * El mismo pase sirve para cortar la captura y para el veredicto posterior (hasEnoughVoice).
+ */
+public final class VadEngine {
+
+    public static class Config {
+        /** Nivel de "silencio" configurado; el umbral adaptativo se mueve alrededor de él. */
+        public double gateDbfs = -45.0;
+        /** Margen sobre el piso de ruido. */
+        public double snrDb = 6.0;
+        /** El umbral queda en [gate - maxBelowGateDb, gate + maxAboveGateDb]. */
+        public double maxBelowGateDb = 6.0;
+        public double maxAboveGateDb = 10.0;
+        /** Fracción mínima de la energía dentro de la banda de voz (descarta zumbidos de red / golpes graves). */
+        public double minBandRatio = 0.20;
+        /** Cruces por cero por muestra por encima de esto = siseo/ruido blanco. */
+        public double maxZcr = 0.40;
+        public int noiseFallMs = 60;
+        public int noiseRiseMs = 3000;
+        /** Criterios del veredicto: racha continua (con decaimiento) o pico de amplitud. */
+        public int minContinuousMs = 120;
+        public double peakPass = 0.10;
+    }
+
+    private static final double BAND_LO_HZ = 300.0;
+    private static final double BAND_HI_HZ = 3400.0;
+
+    private final Config cfg;
+    private final int sampleRate;
+    private final double b0, b2, a1, a2;
+
+    private double x1, x2, y1, y2;
+    private double noiseDbfs;
+
+    private double lastDbfs = -120.0;
+    private double lastBandRatio = 0.0;
+    private double lastZcr = 0.0;
+    private boolean lastVoiced = false;
+
+    private long processedMs = 0;
+    private int voicedMs = 0;
+    private int continuousMs = 0;
+    private int maxContinuousMs = 0;
+    private double peak = 0.0;
+    private int frames = 0;
+
+    public VadEngine(int sampleRate, Config cfg) {
+        if (sampleRate <= 0) throw new IllegalArgumentException("sampleRate inválido: " + sampleRate);
+        this.sampleRate = sampleRate;
+        this.cfg = cfg != null ? cfg : new Config();
+        double hi = Math.min(BAND_HI_HZ, sampleRate * 0.45);
+        double f0 = Math.sqrt(BAND_LO_HZ * hi);
+        double q = f0 / (hi - BAND_LO_HZ);
+        double w0 = 2 * Math.PI * f0 / sampleRate;
+        double alpha = Math.sin(w0) / (2 * q);
+        double a0 = 1 + alpha;
+        this.b0 = alpha / a0;
+        this.b2 = -alpha / a0;
+        this.a1 = -2 * Math.cos(w0) / a0;
+        this.a2 = (1 - alpha) / a0;
+        reset();
+    }
+
+    public VadEngine(int sampleRate, double gateDbfs) {
+        this(sampleRate, configFor(gateDbfs));
+    }
+
+    private static Config configFor(double gateDbfs) {
+        Config c = new Config();
+        c.gateDbfs = gateDbfs;
+        return c;
+    }
+
+    public void reset() {
+        x1 = x2 = y1 = y2 = 0.0;
+        noiseDbfs = cfg.gateDbfs - cfg.snrDb;
+        lastDbfs = -120.0;
+        lastBandRatio = lastZcr = 0.0;
+        lastVoiced = false;
+        processedMs = 0;
+        voicedMs = continuousMs = maxContinuousMs = frames = 0;
+        peak = 0.0;
+    }
+
+    /** Procesa un frame y devuelve si es voz. */
+    public boolean process(short[] pcm, int off, int n) {
+        if (n <= 0) return false;
+        double sumSq = 0.0, bandSq = 0.0;
+        int crossings = 0, maxAbs = 0;
+        int prev = pcm[off];
+        for (int i = off, end = off + n; i < end; i++) {
+            int s = pcm[i];
+            double x = s / 32768.0;
+            sumSq += x * x;
+            double y = b0 * x + b2 * x2 - a1 * y1 - a2 * y2;
+            x2 = x1; x1 = x;
+            y2 = y1; y1 = y;
+            bandSq += y * y;
+            if ((s ^ prev) < 0) crossings++;
+            prev = s;
+            int a = s < 0 ? -s : s;
+            if (a > maxAbs) maxAbs = a;
+        }
+        int ms = Math.max(1, (int) (n * 1000L / sampleRate));
+        double rms = Math.sqrt(sumSq / n);
+        lastDbfs = rms < 1e-9 ? -120.0 : 20.0 * Math.log10(rms);
+        lastBandRatio = sumSq > 0 ? bandSq / sumSq : 0.0;
+        lastZcr = crossings / (double) n;
+        peak = Math.max(peak, maxAbs / 32768.0);
+
+        double thr = thresholdDbfs();
+        boolean speechLike = lastBandRatio >= cfg.minBandRatio && lastZcr <= cfg.maxZcr;
+        lastVoiced = lastDbfs > thr && speechLike;
+
+        if (lastDbfs < noiseDbfs) {
+            noiseDbfs += (lastDbfs - noiseDbfs) * smoothing(ms, cfg.noiseFallMs);
+        } else if (!lastVoiced) {
+            noiseDbfs += (lastDbfs - noiseDbfs) * smoothing(ms, cfg.noiseRiseMs);
+        }
+
+        if (lastVoiced) {
+            voicedMs += ms;
+            continuousMs += ms;
+            if (continuousMs > maxContinuousMs) maxContinuousMs = continuousMs;
+        } else {
+            continuousMs = Math.max(0, continuousMs - ms);
+        }
+        processedMs += ms;
+        frames++;
+        return lastVoiced;
+    }
+
+    private static double smoothing(int frameMs, int tauMs) {
+        return 1.0 - Math.exp(-frameMs / (double) Math.max(1, tauMs));
+    }
+
+    /** Umbral actual: piso de ruido + margen, acotado alrededor del gate configurado. */
+    public double thresholdDbfs() {
+        double thr = noiseDbfs + cfg.snrDb;
+        thr = Math.max(thr, cfg.gateDbfs - cfg.maxBelowGateDb);
+        return Math.min(thr, cfg.gateDbfs + cfg.maxAboveGateDb);
+    }
+
+    public boolean hasEnoughVoice(int minVoicedMs) {
+        return voicedMs >= minVoicedMs || maxContinuousMs >= cfg.minContinuousMs || peak > cfg.peakPass;
+    }
+
+    public double lastDbfs() { return lastDbfs; }
+    public double lastBandRatio() { return lastBandRatio; }
+    public double lastZcr() { return lastZcr; }
+    public boolean lastVoiced() { return lastVoiced; }
+    public double noiseFloorDbfs() { return noiseDbfs; }
+    public int voicedMs() { return voicedMs; }
+    public int maxContinuousMs() { return maxContinuousMs; }
+    public long processedMs() { return processedMs; }
+    public double peak() { return peak; }
+
+    public String summary() {
+        return String.format(Locale.US,
+                "noise=%.1f dBFS, thr=%.1f dBFS, voiced=%dms, cont=%dms, peak=%.2f, frames=%d, %dms",
+                noiseDbfs, thresholdDbfs(), voicedMs, maxContinuousMs, peak, frames, processedMs);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.toto_app.audio;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.toto_app.util.LatencyStats;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+import org.vosk.android.RecognitionListener;
+
+import java.io.IOException;
+
+/**
+ * Wake word con un único Recognizer de vida larga leyendo del {@link CaptureHub}.
+ * arm()/disarm() sólo abren o cierran la compuerta que alimenta al decoder; al rearmar se hace
+ * reset() del Recognizer en vez de reconstruir el estado nativo. release() suelta la suscripción
+ * (el mic se puede cerrar) sin destruir el Recognizer. Los callbacks llegan en el hilo principal.
+ */
+public final class WakeWordEngine {
+
+    private static final String TAG = "WakeWordEngine";
+    private static final int LOG_EVERY = 10;
+
+    private static final LatencyStats REARM = new LatencyStats("wake re-arm", 128);
+
+    /** Latencia desde el pedido de rearmar (p.ej. fin del TTS) hasta el primer audio en el decoder. */
+    public static LatencyStats rearmStats() { return REARM; }
+
+    private final Recognizer recognizer;
+    private final RecognitionListener listener;
+    private final int bufferSize;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Object gate = new Object();
+
+    private Thread thread;
+    private volatile boolean armed = false;
+    private volatile boolean attached = false;
+    private volatile boolean closed = false;
+    private boolean recognizerClosed = false;
+    private volatile boolean resetPending = false;
+    private volatile long armRequestedAt = 0L;
+    private volatile long deliveredPosition = -1L;
+
+    public WakeWordEngine(Model model, String grammar, RecognitionListener listener) throws IOException {
+        this.recognizer = new Recognizer(model, CaptureHub.SAMPLE_RATE);
+        this.recognizer.setGrammar(grammar);
+        this.listener = listener;
+        this.bufferSize = CaptureHub.SAMPLE_RATE / 10;
+    }
+
+    public boolean isArmed() { return armed; }
+
+    /**
+     * Posición del {@link CaptureHub} al final del audio que produjo el último callback entregado.
+     * Leída dentro de onResult/onPartialResult, marca dónde terminó lo que se reconoció (pre-roll).
+     */
+    public long deliveredPosition() { return deliveredPosition; }
+
+    public void arm() {
+        arm(SystemClock.elapsedRealtime());
+    }
+
+    /** requestedAt: desde cuándo se mide la latencia de rearmado (elapsedRealtime). */
+    public void arm(long requestedAt) {
+        if (closed) return;
+        synchronized (gate) {
+            if (armed) return;
+            armRequestedAt = requestedAt;
+            resetPending = true;
+            armed = true;
+            attached = true;
+            if (thread == null) {
+                thread = new Thread(this::run, "toto-wake-engine");
+                thread.start();
+            }
+            gate.notifyAll();
+        }
+    }
+
+    /** Cierra la compuerta; la suscripción al hub sigue abierta para rearmar sin costo. */
+    public void disarm() {
+        armed = false;
+    }
+
+    /** Como disarm(), pero además suelta la suscripción para que el mic pueda cerrarse (pausa). */
+    public void release() {
+        synchronized (gate) {
+            armed = false;
+            attached = false;
+            gate.notifyAll();
+        }
+    }
+
+    public void close() {
+        Thread t;
+        synchronized (gate) {
+            closed = true;
+            armed = false;
+            attached = false;
+            t = thread;
+            thread = null;
+            gate.notifyAll();
+        }
+        if (t == null) {
+            closeRecognizer();
+            return;
+        }
+        // El hilo cierra el Recognizer al salir: puede estar adentro de acceptWaveForm.
+        t.interrupt();
+        try { t.join(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        if (t.isAlive()) Log.w(TAG, "El hilo del decoder sigue vivo; cierra el Recognizer cuando termine");
+    }
+
+    private void closeRecognizer() {
+        synchronized (gate) {
+            if (recognizerClosed) return;
+            recognizerClosed = true;
+        }
+        try { recognizer.close(); } catch (Exception ignore) {}
+    }
+
+    private void run() {
+        short[] buf = new short[bufferSize];
+        CaptureHub.Subscription sub = null;
+        try {
+            while (!closed) {
+                if (!attached) {
+                    if (sub != null) { sub.close(); sub = null; }
+                    synchronized (gate) {
+                        while (!attached && !closed) gate.wait();
+                    }
+                    continue;
+                }
+                if (sub == null) sub = CaptureHub.get().subscribe("wake");
+
+                int n = sub.read(buf, 0, buf.length, 200);
+                if (n < 0) { sub = null; continue; }
+                if (n == 0 || !armed) continue;
+
+                if (resetPending) {
+                    resetPending = false;
+                    recognizer.reset();
+                    sub.skipToNow();
+                    long ms = SystemClock.elapsedRealtime() - armRequestedAt;
+                    REARM.record(ms);
+                    Log.d(TAG, "Rearmado en " + ms + "ms");
+                    if (REARM.count() % LOG_EVERY == 0) Log.d(TAG, REARM.summary());
+                    continue;
+                }
+
+                long pos = sub.position();
+                if (recognizer.acceptWaveForm(buf, n)) {
+                    String result = recognizer.getResult();
+                    main.post(() -> { if (armed) { deliveredPosition = pos; listener.onResult(result); } });
+                } else {
+                    String partial = recognizer.getPartialResult();
+                    main.post(() -> { if (armed) { deliveredPosition = pos; listener.onPartialResult(partial); } });
+                }
+            }
+        } catch (InterruptedException ignore) {
+        } catch (Exception e) {
+            Log.e(TAG, "Error en reconocimiento", e);
+            main.post(() -> listener.onError(e));
+        } finally {
+            if (sub != null) sub.close();
+            boolean last;
+            synchronized (gate) {
+                if (thread == Thread.currentThread()) thread = null;
+                last = closed;
+            }
+            if (last) closeRecognizer();
+        }
+    }
+}
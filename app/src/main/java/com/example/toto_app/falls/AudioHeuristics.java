@@ -4,6 +4,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import org.tensorflow.lite.support.label.Category;
+import org.tensorflow.lite.task.audio.classifier.Classifications;
 
 public class AudioHeuristics {
 
@@ -31,6 +32,48 @@ public class AudioHeuristics {
         return false;
     }
 
+    public static boolean hasImpactLabel(List<List<Category>> groups, float minScore, ImpactLabelIndex index) {
+        if (index == null) return hasImpactLabel(groups, minScore);
+        for (int g = 0; g < groups.size(); g++) {
+            List<Category> cats = groups.get(g);
+            for (int j = 0; j < cats.size(); j++) {
+                Category c = cats.get(j);
+                if (c.getScore() >= minScore && index.isImpact(c.getIndex(), c.getLabel())) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Top-k por grupo de clasificación; true si alguna de esas k tiene score >= minScore y es de impacto. */
+    public static boolean hasImpactTopK(List<Classifications> results, ImpactLabelIndex index, float minScore, int topK) {
+        if (results == null) return false;
+        for (int r = 0; r < results.size(); r++) {
+            List<Category> cats = results.get(r).getCategories();
+            if (cats == null || cats.isEmpty()) continue;
+            int limit = Math.min(topK, cats.size());
+            float prevScore = Float.POSITIVE_INFINITY;
+            int prevIdx = -1;
+            for (int i = 0; i < limit; i++) {
+                int bestIdx = -1;
+                float bestScore = 0f;
+                for (int j = 0; j < cats.size(); j++) {
+                    float sc = cats.get(j).getScore();
+                    boolean after = sc < prevScore || (sc == prevScore && j > prevIdx);
+                    if (after && (bestIdx < 0 || sc > bestScore)) { bestIdx = j; bestScore = sc; }
+                }
+                if (bestIdx < 0 || bestScore < minScore) break;
+                prevScore = bestScore; prevIdx = bestIdx;
+                Category c = cats.get(bestIdx);
+                if (index.isImpact(c.getIndex(), c.getLabel())) return true;
+            }
+        }
+        return false;
+    }
+
+    public static ImpactLabelIndex buildIndex(List<String> labels) {
+        return ImpactLabelIndex.build(labels, IMPACT_LABELS);
+    }
+
     public static float rms(float[] x, int start, int len) {
         int end = Math.min(x.length, start + len);
         double acc = 0;
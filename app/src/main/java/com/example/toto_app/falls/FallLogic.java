@@ -6,9 +6,7 @@ import com.example.toto_app.network.WhatsAppSendRequest;
 import com.example.toto_app.network.WhatsAppSendResponse;
 import com.example.toto_app.network.RetrofitClient;
 import com.example.toto_app.services.PendingEmergencyStore;
-
-import java.text.Normalizer;
-import java.util.Locale;
+import com.example.toto_app.util.TextNormalizer;
 
 public final class FallLogic {
     private FallLogic(){}
@@ -17,117 +15,39 @@ public final class FallLogic {
 
     public static String normEs(String raw) {
         if (raw == null) return "";
-        String s = Normalizer.normalize(raw, Normalizer.Form.NFD)
-                .replaceAll("\\p{M}", "")
-                .toLowerCase(Locale.ROOT);
-        s = s.replaceAll("([.,])", " $1 ");
-        s = s.replaceAll("[¿?¡!;:()\\[\\]\"]", " ");
-        s = s.replaceAll("\\s+", " ").trim();
-        return " " + s + " ";
+        return TextNormalizer.FALL.normalize(raw);
     }
 
     public static boolean saysHelp(String norm) {
-        return norm.contains(" no estoy bien ")
-                || norm.contains(" no esta bien ")
-                || norm.contains(" me caí ")
-                || norm.contains(" me he caído ")
-                || norm.contains(" estoy mal ")
-                || norm.contains(" me duele ")
-                || norm.contains(" duele ")
-                || norm.contains(" dolor ")
-                || norm.contains(" dolió ")
-                || norm.contains(" me lastime ") || norm.contains(" me lastimé ")
-                || norm.contains(" no me puedo mover ")
-                || norm.contains(" no puedo levantarme ") || norm.contains(" no puedo pararme ")
-                || norm.contains(" ayuda ") || norm.contains(" ayudame ") || norm.contains(" ayúdame ")
-                || norm.contains(" auxilio ") || norm.contains(" emergencia ") || norm.contains(" ambulancia ")
-                || norm.contains(" doctor ") || norm.contains(" medico ") || norm.contains(" médico ");
+        return FallPhraseMatcher.scan(norm).has(FallPhraseMatcher.Category.HELP);
     }
 
     public static boolean mentionsFall(String norm) {
-        if (norm.contains(" me cai ") || norm.contains(" me ca\u00ed ")
-                || norm.contains(" me caigo ") || norm.contains(" me estoy cayendo ")
-                || norm.contains(" caida ") || norm.contains(" ca\u00edda ")
-                || norm.contains(" me tropece ") || norm.contains(" me tropec\u00e9 ")
-                || norm.contains(" me pegue ") || norm.contains(" me pegu\u00e9 ")
-                || norm.contains(" me desmaye ") || norm.contains(" me desmay\u00e9 ")) return true;
-
-        if (norm.contains(" cae ") || norm.contains(" cayo ") || norm.contains(" caigo ")) return true;
-        if (norm.contains(" resbale ") || norm.contains(" resbal\u00e9 ") || norm.contains(" resbal\u00f3 ") || norm.contains(" resbalo ")) return true;
-
-        String s = norm.trim();
-        String[] toks = s.split("\\s+");
-        for (String t : toks) {
-            String tt = t.replaceAll("[^a-zA-Z0-9]", "");
-            if (approxEqual(tt, "cai", 1) || approxEqual(tt, "cayo", 1) || approxEqual(tt, "cae", 1)) return true;
-        }
-        return false;
+        return FallPhraseMatcher.scan(norm).has(FallPhraseMatcher.Category.FALL);
     }
 
-    private static boolean approxEqual(String a, String b, int maxDist) {
-        if (a == null || b == null) return false;
-        int d = levenshtein(a, b);
-        return d <= maxDist;
+    /** saysHelp(norm) || mentionsFall(norm), con una sola pasada. */
+    public static boolean saysHelpOrFall(String norm) {
+        FallPhraseMatcher.Result r = FallPhraseMatcher.scan(norm);
+        return r.has(FallPhraseMatcher.Category.HELP) || r.has(FallPhraseMatcher.Category.FALL);
     }
 
-    private static int levenshtein(String a, String b) {
-        int[] costs = new int[b.length() + 1];
-        for (int j = 0; j < costs.length; j++) costs[j] = j;
-        for (int i = 1; i <= a.length(); i++) {
-            costs[0] = i;
-            int nw = i - 1;
-            for (int j = 1; j <= b.length(); j++) {
-                int cj = Math.min(1 + Math.min(costs[j], costs[j - 1]), a.charAt(i - 1) == b.charAt(j - 1) ? nw : nw + 1);
-                nw = costs[j];
-                costs[j] = cj;
-            }
-        }
-        return costs[b.length()];
-    }
-
-    private static boolean saysOk(String norm) {
-        if (norm.contains(" no me puedo mover ")
-                || norm.contains(" no puedo levantarme ") || norm.contains(" no puedo pararme ")
-                || norm.contains(" estoy mal ")
-                || norm.contains(" me duele ")
-                || norm.contains(" me lastime ") || norm.contains(" me lastimé ")) {
-            return false;
-        }
-        if (norm.matches(".*\\bno\\s+estoy\\s+bien\\b.*")) return false;
-        if (norm.matches(".*\\bno\\s+esta\\s+bien\\b.*")) return false;
-        if (norm.contains(" estoy bien ")
-                || norm.contains(" esta bien ")
-                || norm.contains(" esta todo bien ")
-                || norm.contains(" todo bien ")
-                || norm.contains(" todo ok ")
-                || norm.contains(" estoy ok ")
-                || norm.contains(" tranquilo ") || norm.contains(" tranquila ")
-                || norm.contains(" ya estoy bien ")
-                || norm.contains(" no fue nada ")
-                || norm.contains(" no te preocupes ")
-                || norm.contains(" no hay problema ")
-                || norm.contains(" no estoy mal ")
-                || norm.contains(" no me paso nada ") || norm.contains(" no me pasó nada ")
-                || norm.matches(".*\\b(si|sí)\\b.*")) {
-            return true;
-        }
-        return false;
+    private static boolean saysOk(FallPhraseMatcher.Result r) {
+        return r.has(FallPhraseMatcher.Category.OK) && !r.has(FallPhraseMatcher.Category.OK_BLOCK);
     }
 
-    private static boolean hasStandaloneNo(String norm) {
-        return norm.matches(".*\\bno\\b.*")
-                && !norm.contains(" no fue nada ")
-                && !norm.contains(" no te preocupes ")
-                && !norm.contains(" no hay problema ")
-                && !norm.contains(" no gracias ")
-                && !saysOk(norm);
+    private static boolean hasStandaloneNo(FallPhraseMatcher.Result r) {
+        return r.has(FallPhraseMatcher.Category.NO)
+                && !r.has(FallPhraseMatcher.Category.NO_EXCEPTION)
+                && !saysOk(r);
     }
 
     public static FallReply assessFallReply(String norm) {
-        if (saysHelp(norm)) return FallReply.HELP;
-        if (saysOk(norm))   return FallReply.OK;
-        if (mentionsFall(norm)) return FallReply.HELP;
-        if (hasStandaloneNo(norm)) return FallReply.HELP;
+        FallPhraseMatcher.Result r = FallPhraseMatcher.scan(norm);
+        if (r.has(FallPhraseMatcher.Category.HELP)) return FallReply.HELP;
+        if (saysOk(r)) return FallReply.OK;
+        if (r.has(FallPhraseMatcher.Category.FALL)) return FallReply.HELP;
+        if (hasStandaloneNo(r)) return FallReply.HELP;
         return FallReply.UNKNOWN;
     }
 
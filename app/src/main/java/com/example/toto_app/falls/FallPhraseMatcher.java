@@ -0,0 +1,313 @@
+package com.example.toto_app.falls;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frases de la respuesta a "¿estás bien?" compiladas una vez en un autómata Aho-Corasick sobre
+ * palabras: una sola pasada lineal por el texto (ya pasado por {@link FallLogic#normEs}) devuelve
+ * todas las frases encontradas con su categoría, más los tokens que se parecen a "cai"/"cayo"/"cae"
+ * (distancia de edición 1). Replica exactamente los contains(" frase ") y los \bpalabra\b de la
+ * versión anterior de FallLogic.
+ */
+public final class FallPhraseMatcher {
+
+    private FallPhraseMatcher() {}
+
+    public enum Category {
+        /** Pide ayuda o dice que está mal. */
+        HELP,
+        /** Dice que está bien. */
+        OK,
+        /** Anula un OK ("no estoy bien", "me duele"). */
+        OK_BLOCK,
+        /** Un "no" suelto. */
+        NO,
+        /** "no" que no es negativo ("no fue nada", "no hay problema"). */
+        NO_EXCEPTION,
+        /** Menciona una caída (frase exacta o token parecido). */
+        FALL
+    }
+
+    public static final class Cue {
+        public final String phrase;
+        public final Category category;
+        /** true si vino de la comparación aproximada por token. */
+        public final boolean fuzzy;
+
+        Cue(String phrase, Category category, boolean fuzzy) {
+            this.phrase = phrase; this.category = category; this.fuzzy = fuzzy;
+        }
+
+        @Override public String toString() { return category + ":" + (fuzzy ? "~" : "") + phrase; }
+    }
+
+    public static final class Result {
+        private final List<Cue> cues;
+        private final int mask;
+
+        Result(List<Cue> cues, int mask) { this.cues = cues; this.mask = mask; }
+
+        public boolean has(Category c) { return (mask & (1 << c.ordinal())) != 0; }
+
+        /** Todas las frases encontradas, en orden de aparición (cada una una vez). */
+        public List<Cue> cues() { return cues; }
+
+        @Override public String toString() { return cues.toString(); }
+    }
+
+    // contains(" frase "): las palabras tienen que ser tokens completos separados por un espacio.
+    private static final String[] HELP = {
+            "no estoy bien", "no esta bien", "me caí", "me he caído", "estoy mal", "me duele", "duele",
+            "dolor", "dolió", "me lastime", "me lastimé", "no me puedo mover", "no puedo levantarme",
+            "no puedo pararme", "ayuda", "ayudame", "ayúdame", "auxilio", "emergencia", "ambulancia",
+            "doctor", "medico", "médico"
+    };
+    private static final String[] OK_BLOCK = {
+            "no me puedo mover", "no puedo levantarme", "no puedo pararme", "estoy mal", "me duele",
+            "me lastime", "me lastimé"
+    };
+    private static final String[] OK = {
+            "estoy bien", "esta bien", "esta todo bien", "todo bien", "todo ok", "estoy ok", "tranquilo",
+            "tranquila", "ya estoy bien", "no fue nada", "no te preocupes", "no hay problema", "no estoy mal",
+            "no me paso nada", "no me pasó nada"
+    };
+    private static final String[] NO_EXCEPTION = {
+            "no fue nada", "no te preocupes", "no hay problema", "no gracias"
+    };
+    private static final String[] FALL = {
+            "me cai", "me caí", "me caigo", "me estoy cayendo", "caida", "caída", "me tropece", "me tropecé",
+            "me pegue", "me pegué", "me desmaye", "me desmayé", "cae", "cayo", "caigo", "resbale", "resbalé",
+            "resbaló", "resbalo"
+    };
+    // \bfrase\b: límites de palabra y \s+ entre palabras.
+    private static final String[] OK_BLOCK_WORDS = { "no estoy bien", "no esta bien" };
+    private static final String[] OK_WORDS = { "si", "sí" };
+    private static final String[] NO_WORDS = { "no" };
+
+    private static final String[] FUZZY_FALL = { "cai", "cayo", "cae" };
+    private static final Cue[] FUZZY_CUES = new Cue[FUZZY_FALL.length];
+    private static final int MAX_FUZZY_LEN = 5;
+
+    private static final int MAX_WORDS;
+    private static final Cue[] CUES;
+    private static final int[] CUE_WORDS;
+    private static final boolean[] CUE_BOUNDED;
+
+    private static final String[] VOCAB;
+    private static final int[] VOCAB_TABLE;
+    private static final int[][] GOTO;
+    private static final int[][] OUT;
+
+    static {
+        List<Cue> cues = new ArrayList<>();
+        List<String[]> words = new ArrayList<>();
+        List<Boolean> bounded = new ArrayList<>();
+        Object[][] groups = {
+                {HELP, Category.HELP, false}, {OK_BLOCK, Category.OK_BLOCK, false}, {OK, Category.OK, false},
+                {NO_EXCEPTION, Category.NO_EXCEPTION, false}, {FALL, Category.FALL, false},
+                {OK_BLOCK_WORDS, Category.OK_BLOCK, true}, {OK_WORDS, Category.OK, true},
+                {NO_WORDS, Category.NO, true}
+        };
+        for (Object[] g : groups) {
+            for (String p : (String[]) g[0]) {
+                cues.add(new Cue(p, (Category) g[1], false));
+                words.add(p.split(" "));
+                bounded.add((Boolean) g[2]);
+            }
+        }
+        for (int i = 0; i < FUZZY_FALL.length; i++) FUZZY_CUES[i] = new Cue(FUZZY_FALL[i], Category.FALL, true);
+
+        Map<String, Integer> ids = new HashMap<>();
+        int maxWords = 0;
+        for (String[] ws : words) {
+            maxWords = Math.max(maxWords, ws.length);
+            for (String w : ws) if (!ids.containsKey(w)) ids.put(w, ids.size());
+        }
+        MAX_WORDS = maxWords;
+        CUES = cues.toArray(new Cue[0]);
+        CUE_WORDS = new int[CUES.length];
+        CUE_BOUNDED = new boolean[CUES.length];
+        for (int i = 0; i < CUES.length; i++) {
+            CUE_WORDS[i] = words.get(i).length;
+            CUE_BOUNDED[i] = bounded.get(i);
+        }
+
+        VOCAB = new String[ids.size()];
+        for (Map.Entry<String, Integer> e : ids.entrySet()) VOCAB[e.getValue()] = e.getKey();
+        int size = Integer.highestOneBit(Math.max(4, VOCAB.length * 4) - 1) << 1;
+        VOCAB_TABLE = new int[size];
+        Arrays.fill(VOCAB_TABLE, -1);
+        for (int id = 0; id < VOCAB.length; id++) {
+            int slot = VOCAB[id].hashCode() & (size - 1);
+            while (VOCAB_TABLE[slot] >= 0) slot = (slot + 1) & (size - 1);
+            VOCAB_TABLE[slot] = id;
+        }
+
+        // Trie sobre ids de palabra y después los enlaces de falla (BFS) para dejar un DFA completo.
+        List<int[]> go = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        go.add(newRow(VOCAB.length));
+        out.add(new ArrayList<>());
+        for (int c = 0; c < CUES.length; c++) {
+            int s = 0;
+            for (String w : words.get(c)) {
+                int id = ids.get(w);
+                if (go.get(s)[id] < 0) {
+                    go.get(s)[id] = go.size();
+                    go.add(newRow(VOCAB.length));
+                    out.add(new ArrayList<>());
+                }
+                s = go.get(s)[id];
+            }
+            out.get(s).add(c);
+        }
+        int[] fail = new int[go.size()];
+        int[] queue = new int[go.size()];
+        int head = 0, tail = 0;
+        for (int a = 0; a < VOCAB.length; a++) {
+            int t = go.get(0)[a];
+            if (t < 0) go.get(0)[a] = 0;
+            else { fail[t] = 0; queue[tail++] = t; }
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            out.get(s).addAll(out.get(fail[s]));
+            for (int a = 0; a < VOCAB.length; a++) {
+                int t = go.get(s)[a];
+                if (t < 0) {
+                    go.get(s)[a] = go.get(fail[s])[a];
+                } else {
+                    fail[t] = go.get(fail[s])[a];
+                    queue[tail++] = t;
+                }
+            }
+        }
+        GOTO = go.toArray(new int[0][]);
+        OUT = new int[out.size()][];
+        for (int s = 0; s < OUT.length; s++) {
+            OUT[s] = new int[out.get(s).size()];
+            for (int k = 0; k < OUT[s].length; k++) OUT[s][k] = out.get(s).get(k);
+        }
+    }
+
+    private static int[] newRow(int n) {
+        int[] r = new int[n];
+        Arrays.fill(r, -1);
+        return r;
+    }
+
+    /** Clasifica norm en una pasada. norm tiene que venir de FallLogic.normEs(). */
+    public static Result scan(String norm) {
+        if (norm == null) norm = "";
+        int n = norm.length();
+        int[] starts = new int[MAX_WORDS];
+        int[] ends = new int[MAX_WORDS];
+        long[] seen = new long[(CUES.length + 63) >>> 6];
+        List<Cue> found = null;
+        int mask = 0;
+
+        int state = 0, words = 0, wordStart = -1;
+        char[] tok = new char[MAX_FUZZY_LEN];
+        int tokLen = 0;
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? norm.charAt(i) : ' ';
+            boolean wordChar = i < n && isWordChar(c, wordStart >= 0);
+            if (wordChar) {
+                if (wordStart < 0) wordStart = i;
+            } else if (wordStart >= 0) {
+                int id = lookup(norm, wordStart, i);
+                state = id < 0 ? 0 : GOTO[state][id];
+                starts[words % MAX_WORDS] = wordStart;
+                ends[words % MAX_WORDS] = i;
+                words++;
+                wordStart = -1;
+                for (int cue : OUT[state]) {
+                    if ((seen[cue >>> 6] & (1L << cue)) != 0) continue;
+                    if (!boundariesOk(norm, cue, starts, ends, words)) continue;
+                    seen[cue >>> 6] |= 1L << cue;
+                    if (found == null) found = new ArrayList<>(4);
+                    found.add(CUES[cue]);
+                    mask |= 1 << CUES[cue].category.ordinal();
+                }
+            }
+
+            // Tokens separados por espacios, quedándose sólo con [a-zA-Z0-9], para la comparación aproximada.
+            if (i == n || isSpace(c)) {
+                if (tokLen > 0 && tokLen <= MAX_FUZZY_LEN) {
+                    for (int f = 0; f < FUZZY_FALL.length; f++) {
+                        if (!withinOneEdit(tok, tokLen, FUZZY_FALL[f])) continue;
+                        if (found == null) found = new ArrayList<>(4);
+                        if (!found.contains(FUZZY_CUES[f])) found.add(FUZZY_CUES[f]);
+                        mask |= 1 << Category.FALL.ordinal();
+                    }
+                }
+                tokLen = 0;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                if (tokLen < MAX_FUZZY_LEN) tok[tokLen] = c;
+                tokLen++;
+            }
+        }
+        return new Result(found == null ? Collections.<Cue>emptyList() : found, mask);
+    }
+
+    private static boolean boundariesOk(String s, int cue, int[] starts, int[] ends, int words) {
+        int len = CUE_WORDS[cue];
+        int first = words - len;
+        for (int k = 0; k < len - 1; k++) {
+            int gapFrom = ends[(first + k) % MAX_WORDS];
+            int gapTo = starts[(first + k + 1) % MAX_WORDS];
+            if (CUE_BOUNDED[cue]) {
+                for (int j = gapFrom; j < gapTo; j++) if (!isSpace(s.charAt(j))) return false;
+            } else if (gapTo - gapFrom != 1 || s.charAt(gapFrom) != ' ') {
+                return false;
+            }
+        }
+        if (CUE_BOUNDED[cue]) return true;
+        int start = starts[first % MAX_WORDS];
+        int end = ends[(words - 1) % MAX_WORDS];
+        return start > 0 && s.charAt(start - 1) == ' ' && end < s.length() && s.charAt(end) == ' ';
+    }
+
+    private static int lookup(String s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) h = 31 * h + s.charAt(i);
+        int mask = VOCAB_TABLE.length - 1;
+        int len = to - from;
+        for (int slot = h & mask; VOCAB_TABLE[slot] >= 0; slot = (slot + 1) & mask) {
+            String w = VOCAB[VOCAB_TABLE[slot]];
+            if (w.length() == len && w.regionMatches(0, s, from, len)) return VOCAB_TABLE[slot];
+        }
+        return -1;
+    }
+
+    /** Mismo criterio que \b en java.util.regex (letras, dígitos, '_' y marcas pegadas a una palabra). */
+    private static boolean isWordChar(char c, boolean inWord) {
+        return c == '_' || Character.isLetterOrDigit(c)
+                || (inWord && Character.getType(c) == Character.NON_SPACING_MARK);
+    }
+
+    /** \s de java.util.regex. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /** Levenshtein(a, b) <= 1 sin armar la matriz. */
+    private static boolean withinOneEdit(char[] a, int n, String b) {
+        int m = b.length();
+        if (Math.abs(n - m) > 1) return false;
+        int i = 0, j = 0, edits = 0;
+        while (i < n && j < m) {
+            if (a[i] == b.charAt(j)) { i++; j++; continue; }
+            if (++edits > 1) return false;
+            if (n > m) i++;
+            else if (m > n) j++;
+            else { i++; j++; }
+        }
+        return edits + (n - i) + (m - j) <= 1;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.toto_app.falls;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.toto_app.util.LatencyStats;
+
+import org.tensorflow.lite.support.audio.TensorAudio;
+import org.tensorflow.lite.task.audio.classifier.AudioClassifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/** Mide la latencia de classify() de YAMNet para distintas configuraciones (p50/p99). */
+public final class YamnetBenchmark {
+    private YamnetBenchmark(){}
+
+    private static final String TAG = "YamnetBenchmark";
+
+    public static final class Result {
+        public final YamnetConfig config;
+        /** Latencias en µs; -1 si la configuración no está disponible. */
+        public final long p50Us, p99Us;
+        public final String line;
+
+        Result(YamnetConfig config, long p50Us, long p99Us, String line) {
+            this.config = config;
+            this.p50Us = p50Us;
+            this.p99Us = p99Us;
+            this.line = line;
+        }
+
+        public boolean ok() { return p50Us >= 0; }
+    }
+
+    public static List<YamnetConfig> defaultSettings() {
+        return Arrays.asList(
+                new YamnetConfig(1, YamnetConfig.Backend.CPU),
+                new YamnetConfig(2, YamnetConfig.Backend.CPU),
+                new YamnetConfig(4, YamnetConfig.Backend.CPU),
+                new YamnetConfig(2, YamnetConfig.Backend.NNAPI)
+        );
+    }
+
+    public static List<Result> run(Context ctx, List<YamnetConfig> settings, int iterations, int windowSamples) {
+        float[] audio = new float[windowSamples];
+        Random rnd = new Random(7);
+        for (int i = 0; i < audio.length; i++) audio[i] = (float) (rnd.nextGaussian() * 0.05);
+
+        List<Result> out = new ArrayList<>();
+        for (YamnetConfig cfg : settings) {
+            AudioClassifier clf = null;
+            try {
+                long t0 = SystemClock.elapsedRealtimeNanos();
+                clf = AudioClassifier.createFromFileAndOptions(ctx, YamnetConfig.MODEL_FILE, cfg.toOptions());
+                long loadUs = (SystemClock.elapsedRealtimeNanos() - t0) / 1000;
+                TensorAudio tensor = clf.createInputTensorAudio();
+
+                tensor.load(audio);
+                t0 = SystemClock.elapsedRealtimeNanos();
+                clf.classify(tensor);
+                long firstUs = (SystemClock.elapsedRealtimeNanos() - t0) / 1000;
+
+                LatencyStats st = new LatencyStats(cfg.toString(), iterations);
+                for (int i = 0; i < iterations; i++) {
+                    tensor.load(audio);
+                    long s = SystemClock.elapsedRealtimeNanos();
+                    clf.classify(tensor);
+                    st.record((SystemClock.elapsedRealtimeNanos() - s) / 1000);
+                }
+                long p50 = st.percentile(50), p90 = st.percentile(90), p99 = st.percentile(99);
+                String line = String.format(Locale.US, "%s n=%d p50=%.2fms p90=%.2fms p99=%.2fms load=%.1fms first=%.2fms",
+                        cfg, st.count(), p50 / 1000.0, p90 / 1000.0, p99 / 1000.0, loadUs / 1000.0, firstUs / 1000.0);
+                Log.i(TAG, line);
+                out.add(new Result(cfg, p50, p99, line));
+            } catch (Exception e) {
+                Log.w(TAG, "Config " + cfg + " no disponible: " + e.getMessage());
+                out.add(new Result(cfg, -1, -1, cfg + " error: " + e.getMessage()));
+            } finally {
+                if (clf != null) try { clf.close(); } catch (Exception ignore) {}
+            }
+        }
+        return out;
+    }
+
+    /** La configuración con menor p50 entre las que funcionaron; null si ninguna. */
+    public static YamnetConfig best(List<Result> results) {
+        Result best = null;
+        for (Result r : results) {
+            if (r.ok() && (best == null || r.p50Us < best.p50Us)) best = r;
+        }
+        return best == null ? null : best.config;
+    }
+}
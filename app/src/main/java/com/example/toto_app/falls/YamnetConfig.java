@@ -0,0 +1,74 @@
+package com.example.toto_app.falls;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.tensorflow.lite.task.audio.classifier.AudioClassifier.AudioClassifierOptions;
+import org.tensorflow.lite.task.core.BaseOptions;
+
+import java.util.Locale;
+
+public final class YamnetConfig {
+
+    public enum Backend { CPU, NNAPI, GPU }
+
+    public static final String MODEL_FILE = "yamnet.tflite";
+
+    private static final String PREFS_NAME = "toto_yamnet";
+    private static final String KEY_THREADS = "threads";
+    private static final String KEY_BACKEND = "backend";
+    private static final String KEY_WARM_UP = "warm_up";
+
+    public int numThreads = 2;
+    public Backend backend = Backend.CPU;
+    public boolean warmUp = true;
+    public int maxResults = 10;
+
+    public YamnetConfig() {}
+
+    public YamnetConfig(int numThreads, Backend backend) {
+        this.numThreads = numThreads;
+        this.backend = backend;
+    }
+
+    public static YamnetConfig load(Context ctx) {
+        SharedPreferences p = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        YamnetConfig c = new YamnetConfig();
+        c.numThreads = Math.max(1, p.getInt(KEY_THREADS, c.numThreads));
+        try {
+            c.backend = Backend.valueOf(p.getString(KEY_BACKEND, c.backend.name()));
+        } catch (IllegalArgumentException ignore) {
+            c.backend = Backend.CPU;
+        }
+        c.warmUp = p.getBoolean(KEY_WARM_UP, c.warmUp);
+        return c;
+    }
+
+    public void save(Context ctx) {
+        ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putInt(KEY_THREADS, numThreads)
+                .putString(KEY_BACKEND, backend.name())
+                .putBoolean(KEY_WARM_UP, warmUp)
+                .apply();
+    }
+
+    public AudioClassifierOptions toOptions() {
+        BaseOptions.Builder base = BaseOptions.builder().setNumThreads(Math.max(1, numThreads));
+        if (backend == Backend.NNAPI) base.useNnapi();
+        else if (backend == Backend.GPU) base.useGpu();
+        return AudioClassifierOptions.builder()
+                .setBaseOptions(base.build())
+                .setScoreThreshold(0f)
+                .setMaxResults(maxResults)
+                .build();
+    }
+
+    /** Mismo backend y cantidad de hilos (lo que cambia el intérprete). */
+    public boolean sameEngine(YamnetConfig o) {
+        return o != null && o.backend == backend && o.numThreads == numThreads;
+    }
+
+    @Override public String toString() {
+        return String.format(Locale.US, "%s x%d", backend.name(), numThreads);
+    }
+}
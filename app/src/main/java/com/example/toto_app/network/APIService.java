@@ -120,6 +120,15 @@ public interface APIService {
             @Part("language") RequestBody language,
             @Part("userName") RequestBody userName);
 
+    /** encoding: "flac" cuando el audio va comprimido (audio/flac); null equivale a WAV. */
+    @Multipart
+    @POST("api/stt")
+    Call<TranscriptionResponse> transcribe(
+            @Part MultipartBody.Part audio,
+            @Part("language") RequestBody language,
+            @Part("userName") RequestBody userName,
+            @Query("encoding") String encoding);
+
     @POST("api/ask")
     Call<AskResponse> ask(@Body AskRequest body);
 
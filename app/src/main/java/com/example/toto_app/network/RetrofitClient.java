@@ -4,6 +4,7 @@ import android.content.Context;
 
 import ar.edu.uade.toto_app.BuildConfig;
 
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
@@ -12,6 +13,7 @@ import retrofit2.converter.gson.GsonConverterFactory;
 public final class RetrofitClient {
 
     private static volatile APIService INSTANCE;
+    private static volatile OkHttpClient CLIENT;
     private static Context appContext;
 
     private RetrofitClient() {
@@ -25,6 +27,24 @@ public final class RetrofitClient {
         if (INSTANCE == null) {
             synchronized (RetrofitClient.class) {
                 if (INSTANCE == null) {
+                    Retrofit r = new Retrofit.Builder()
+                            .baseUrl(BuildConfig.BACKEND_BASE_URL)
+                            .client(http())
+                            .addConverterFactory(GsonConverterFactory.create())
+                            .build();
+
+                    INSTANCE = r.create(APIService.class);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** Cliente HTTP compartido (logging + auth), para llamadas que no pasan por Retrofit. */
+    public static OkHttpClient http() {
+        if (CLIENT == null) {
+            synchronized (RetrofitClient.class) {
+                if (CLIENT == null) {
                     HttpLoggingInterceptor log = new HttpLoggingInterceptor();
                     log.setLevel(HttpLoggingInterceptor.Level.BASIC);
 
@@ -35,18 +55,14 @@ public final class RetrofitClient {
                         clientBuilder.addInterceptor(new AuthInterceptor(appContext));
                     }
 
-                    OkHttpClient client = clientBuilder.build();
-
-                    Retrofit r = new Retrofit.Builder()
-                            .baseUrl(BuildConfig.BACKEND_BASE_URL)
-                            .client(client)
-                            .addConverterFactory(GsonConverterFactory.create())
-                            .build();
-
-                    INSTANCE = r.create(APIService.class);
+                    CLIENT = clientBuilder.build();
                 }
             }
         }
-        return INSTANCE;
+        return CLIENT;
+    }
+
+    public static HttpUrl baseUrl() {
+        return HttpUrl.get(BuildConfig.BACKEND_BASE_URL);
     }
 }
@@ -1,7 +1,7 @@
 package com.example.toto_app.nlp;
 
-import java.text.Normalizer;
-import java.util.Locale;
+import com.example.toto_app.util.TextNormalizer;
+
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,9 +30,11 @@ public final class InstructionRouter {
     }
 
     public static Result route(String raw) {
-        String pre = raw == null ? "" : raw;
+        return route(TextNormalizer.turn(raw));
+    }
 
-        String t = " " + norm(pre) + " ";
+    public static Result route(TextNormalizer.Turn turn) {
+        String t = " " + turn.intent() + " ";
 
         if (t.contains(" que hora ") || t.contains(" hora es ") || t.contains(" hora tenemos ")
                 || t.contains(" hora actual ") || t.matches(".*\\b(dime|decime)\\s+la?\\s+hora\\b.*")) {
@@ -168,16 +170,6 @@ public final class InstructionRouter {
         return out.toString();
     }
 
-    private static String norm(String s) {
-        if (s == null) return "";
-        String n = Normalizer.normalize(s, Normalizer.Form.NFD)
-                .replaceAll("\\p{M}+", "");
-        n = n.toLowerCase(Locale.ROOT);
-        n = n.replaceAll("[¿?¡!.,;:()\\[\\]\"]", " ");
-        n = n.replaceAll("\\s+", " ").trim();
-        return n;
-    }
-
     private static int clamp(int v, int min, int max) { return Math.max(min, Math.min(max, v)); }
     private static int parseIntSafe(String s, int def) {
         if (s == null) return def;
@@ -0,0 +1,100 @@
+package com.example.toto_app.nlp;
+
+import com.example.toto_app.falls.FallLogic;
+import com.example.toto_app.network.NluRouteResponse;
+import com.example.toto_app.util.TextNormalizer;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Primer nivel del NLU, en el teléfono: sólo pedidos cortos y sin ambigüedad (hora, fecha, alarma
+ * con hora, llamar a alguien, sí/no del medicamento, pausar/pasar tema). Ante cualquier duda
+ * devuelve null y decide el backend. Nunca contesta si hay una aclaración pendiente o si la frase
+ * habla de una caída o de pedir ayuda.
+ */
+final class LocalNlu {
+
+    private LocalNlu() {}
+
+    static final double CONFIDENCE = 0.95;
+    private static final int MAX_WORDS = 8;
+
+    private static final Pattern CALL = Pattern.compile(
+            "^(?:por favor )?(?:me )?(?:(?:podes|podrias|puedes|quiero|necesito|quisiera) )?"
+                    + "(?:llama|llamar|llamale|llamalo|llamala|llamame)(?: por favor)? a [a-z0-9]");
+    private static final Pattern ALARM_CHANGE = Pattern.compile(
+            "\\b(cancel\\w*|borr\\w*|sac\\w*|apag\\w*|quit\\w*|elimin\\w*|desactiv\\w*|cambi\\w*)\\b");
+    private static final Pattern CONFIRM = Pattern.compile(
+            "^(?:si|sii|si si|ya|ya esta|listo|si ya|si ya la tome|ya la tome|ya lo tome|la tome|lo tome"
+                    + "|si la tome|si lo tome|si ya lo tome|ya me la tome|ya me lo tome|si ya me la tome)$");
+    private static final Pattern DENY = Pattern.compile(
+            "^(?:no|no no|todavia no|aun no|no todavia|no la tome|no lo tome|todavia no la tome"
+                    + "|todavia no lo tome|no me la tome|no me lo tome)$");
+    private static final String ASK = "^(?:(?:me )?(?:decis|decime|dime|sabes|podes decirme|podrias decirme) )?";
+    private static final Pattern TIME = Pattern.compile(ASK
+            + "(?:que hora es|que horas son|que hora tenemos|la hora)(?: ahora)?(?: por favor)?$");
+    private static final Pattern DATE = Pattern.compile(ASK
+            + "(?:hoy )?(?:que dia es|que dia estamos|en que dia estamos|que fecha es|cual es la fecha"
+            + "|la fecha|el dia)(?: hoy| de hoy)?(?: por favor)?$");
+    private static final Pattern SPOTIFY_PAUSE = Pattern.compile(
+            "^(?:pausa|pausar|pausala|para|frena|deten|detene|corta|pone pausa)"
+                    + "(?: la musica| la cancion| el tema| spotify)?$");
+    private static final Pattern SPOTIFY_NEXT = Pattern.compile(
+            "^(?:(?:pasa al|pasa a la|pone la|pone el|poneme la|poneme el|la|el) )?siguiente(?: cancion| tema)?$"
+                    + "|^(?:pasa|cambia)(?: de)? (?:tema|cancion)$|^otro tema$|^otra cancion$");
+    private static final Pattern SPOTIFY_PREV = Pattern.compile(
+            "^(?:(?:volve al|volve a la|pone la|pone el|poneme la|poneme el|la|el) )?(?:(?:tema|cancion) )?anterior$");
+
+    static NluRouteResponse resolve(TextNormalizer.Turn turn, Map<String, Object> context) {
+        String t = turn.intent();
+        if (t.isEmpty() || t.split(" ").length > MAX_WORDS) return null;
+        if (context != null && context.containsKey("awaiting_clarification")) return null;
+
+        if (FallLogic.saysHelpOrFall(turn.fall())) return null;
+
+        if (context != null && Boolean.TRUE.equals(context.get("awaiting_medication_confirmation"))) {
+            if (CONFIRM.matcher(t).matches()) return make("CONFIRM_MEDICATION");
+            if (DENY.matcher(t).matches()) return make("DENY_MEDICATION");
+            return null;
+        }
+
+        if (SPOTIFY_PAUSE.matcher(t).matches()) return make("SPOTIFY_PAUSE");
+        if (SPOTIFY_NEXT.matcher(t).matches()) return make("SPOTIFY_NEXT");
+        if (SPOTIFY_PREV.matcher(t).matches()) return make("SPOTIFY_PREV");
+
+        InstructionRouter.Result r = InstructionRouter.route(turn);
+        switch (r.action) {
+            case QUERY_TIME:
+                return TIME.matcher(t).matches() ? make("QUERY_TIME") : null;
+            case QUERY_DATE:
+                return DATE.matcher(t).matches() ? make("QUERY_DATE") : null;
+            case SET_ALARM: {
+                if (ALARM_CHANGE.matcher(t).find()) return null;
+                NluRouteResponse alarm = NluResolver.tryAlarmFallback(turn);
+                if (alarm != null) alarm.confidence = CONFIDENCE;
+                return alarm;
+            }
+            case CALL: {
+                Matcher m = CALL.matcher(t);
+                if (!m.find() || r.contactName == null || r.contactName.trim().isEmpty()) return null;
+                NluRouteResponse out = make("CALL");
+                out.slots.contact_query = r.contactName.trim();
+                return out;
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static NluRouteResponse make(String intent) {
+        NluRouteResponse r = new NluRouteResponse();
+        r.intent = intent;
+        r.confidence = CONFIDENCE;
+        r.needs_confirmation = false;
+        r.slots = new NluRouteResponse.Slots();
+        return r;
+    }
+
+}
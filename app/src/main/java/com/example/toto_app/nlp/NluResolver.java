@@ -1,14 +1,18 @@
 package com.example.toto_app.nlp;
 
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.example.toto_app.network.NluRouteRequest;
 import com.example.toto_app.network.NluRouteResponse;
 import com.example.toto_app.network.RetrofitClient;
+import com.example.toto_app.util.LatencyStats;
+import com.example.toto_app.util.TextNormalizer;
 
-import java.text.Normalizer;
 import java.util.Calendar;
+import java.util.EnumMap;
 import java.util.Locale;
+import java.util.Map;
 
 import retrofit2.Response;
 
@@ -18,19 +22,92 @@ public final class NluResolver {
 
     private NluResolver() {}
 
+    /** Quién resolvió: gramática local, caché de ruteos, backend (api/nlu/route) o el parser de alarmas sin red. */
+    public enum Tier { LOCAL, CACHE, BACKEND, FALLBACK }
+
+    private static final int LOG_EVERY = 20;
+    private static final Map<Tier, LatencyStats> LATENCY = new EnumMap<>(Tier.class);
+    private static final Map<Tier, Integer> HITS = new EnumMap<>(Tier.class);
+    private static int total = 0;
+    static {
+        for (Tier t : Tier.values()) {
+            LATENCY.put(t, new LatencyStats("nlu " + t.name().toLowerCase(Locale.ROOT), 128));
+            HITS.put(t, 0);
+        }
+    }
+
+    public static LatencyStats latency(Tier tier) { return LATENCY.get(tier); }
+
+    /** Fracción de las resoluciones que salió de ese nivel. */
+    public static synchronized double hitRate(Tier tier) {
+        return total == 0 ? 0.0 : HITS.get(tier) / (double) total;
+    }
+
+    public static synchronized String stats() {
+        StringBuilder sb = new StringBuilder("NLU n=").append(total);
+        for (Tier t : Tier.values()) {
+            sb.append(String.format(Locale.US, " | %s %.0f%% ", t, hitRate(t) * 100)).append(LATENCY.get(t).summary());
+        }
+        return sb.toString();
+    }
+
+    private static void record(Tier tier, long startedAt) {
+        LATENCY.get(tier).record(SystemClock.elapsedRealtime() - startedAt);
+        boolean log;
+        synchronized (NluResolver.class) {
+            HITS.put(tier, HITS.get(tier) + 1);
+            total++;
+            log = total % LOG_EVERY == 0;
+        }
+        if (log) Log.d(TAG, stats());
+    }
+
 
     public static NluRouteResponse resolveWithFallback(String transcript) {
         return resolveWithFallback(transcript, null);
     }
 
+    /**
+     * Primero la gramática local ({@link LocalNlu}): lo simple y seguro ("¿qué hora es?") se contesta
+     * sin red. Después la caché de ruteos ({@link ResponseCache}); el resto va al backend y, si falla,
+     * al parser de alarmas.
+     */
     public static NluRouteResponse resolveWithFallback(String transcript, java.util.Map<String, Object> context) {
+        return resolveWithFallback(TextNormalizer.turn(transcript), context);
+    }
+
+    /** Con el Turn del transcript: las formas normalizadas se calculan una vez para todos los niveles. */
+    public static NluRouteResponse resolveWithFallback(TextNormalizer.Turn turn, java.util.Map<String, Object> context) {
+        long t0 = SystemClock.elapsedRealtime();
+        NluRouteResponse local = null;
+        try {
+            local = LocalNlu.resolve(turn, context);
+        } catch (Exception e) {
+            Log.w(TAG, "NLU local falló", e);
+        }
+        if (local != null) {
+            record(Tier.LOCAL, t0);
+            Log.d(TAG, "NLU local → " + local.intent);
+            return local;
+        }
+
+        String cacheKey = ResponseCache.routeKey(turn, context);
+        NluRouteResponse cached = ResponseCache.getRoute(cacheKey);
+        if (cached != null) {
+            record(Tier.CACHE, t0);
+            Log.d(TAG, "NLU caché → " + cached.intent);
+            return cached;
+        }
+
         try {
             NluRouteRequest rq = new NluRouteRequest();
-            rq.text = transcript;
+            rq.text = turn.raw;
             rq.context = context;
 
             Response<NluRouteResponse> r = RetrofitClient.api().nluRoute(rq).execute();
             if (r.isSuccessful() && r.body() != null && r.body().intent != null) {
+                record(Tier.BACKEND, t0);
+                ResponseCache.putRoute(cacheKey, r.body());
                 return r.body();
             } else {
                 Log.w(TAG, "NLU backend not OK → HTTP=" + (r != null ? r.code() : -1));
@@ -39,7 +116,8 @@ public final class NluResolver {
             Log.e(TAG, "NLU backend call failed", e);
         }
 
-        NluRouteResponse alarm = tryAlarmFallback(transcript);
+        NluRouteResponse alarm = tryAlarmFallback(turn);
+        record(Tier.FALLBACK, t0);
         if (alarm != null) return alarm;
 
         NluRouteResponse out = new NluRouteResponse();
@@ -51,9 +129,10 @@ public final class NluResolver {
     }
 
 
-    private static NluRouteResponse tryAlarmFallback(String raw) {
-        if (raw == null || raw.trim().isEmpty()) return null;
-        if (!looksLikeAlarmRequest(raw)) return null;
+    static NluRouteResponse tryAlarmFallback(TextNormalizer.Turn turn) {
+        String raw = turn.raw;
+        if (raw.trim().isEmpty()) return null;
+        if (!looksLikeAlarmRequest(turn)) return null;
 
         QuickTimeParser.Relative rel = QuickTimeParser.parseRelativeEsAr(raw);
         if (rel != null && rel.minutesTotal > 0) {
@@ -93,12 +172,8 @@ public final class NluResolver {
         return r;
     }
 
-    private static boolean looksLikeAlarmRequest(String raw) {
-        String s = Normalizer.normalize(raw, Normalizer.Form.NFD)
-                .replaceAll("\\p{M}", "")
-                .toLowerCase(Locale.ROOT)
-                .replaceAll("[¿?¡!.,;:()\\[\\]\"]", " ");
-        s = " " + s.replaceAll("\\s+", " ").trim() + " ";
+    private static boolean looksLikeAlarmRequest(TextNormalizer.Turn turn) {
+        String s = " " + turn.intent() + " ";
         return s.contains(" alarma ")
                 || s.contains(" despert")
                 || s.contains(" pone una alarma ")
@@ -1,8 +1,8 @@
 package com.example.toto_app.nlp;
 
-import java.text.Normalizer;
+import com.example.toto_app.util.TextNormalizer;
+
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -22,9 +22,7 @@ public final class QuickTimeParser {
     }
 
     private static String norm(String s) {
-        String n = Normalizer.normalize(s, Normalizer.Form.NFD)
-                .replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
-        return n.toLowerCase(Locale.ROOT).trim();
+        return TextNormalizer.FOLD.normalize(s);
     }
 
     private static final Map<String,Integer> WORD2NUM = new HashMap<>();
@@ -0,0 +1,148 @@
+package com.example.toto_app.nlp;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.toto_app.network.NluRouteResponse;
+import com.example.toto_app.util.TextNormalizer;
+import com.example.toto_app.util.TtlLruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Caché de respuestas del backend: ruteos de api/nlu/route y respuestas de api/ask, con clave en el
+ * transcript normalizado (más el contexto que cambia el ruteo) y TTL por intención. Las intenciones
+ * que dependen del momento (hora, fecha, recordatorios) se cachean sólo como ruteo: la respuesta se
+ * arma en vivo al ejecutarlas. Lo que crea, borra o manda algo, o pide confirmación, no se cachea.
+ * De api/ask sólo se cachean preguntas autocontenidas: las repreguntas ("¿y después?", "¿por qué?")
+ * dependen de la conversación y los pedidos abiertos ("contame un chiste") esperan algo nuevo.
+ */
+public final class ResponseCache {
+
+    private static final String TAG = "ResponseCache";
+
+    private ResponseCache() {}
+
+    public static class Config {
+        public int routeCapacity = 64;
+        public int answerCapacity = 32;
+        public boolean persistRoutes = false;
+        public boolean persistAnswers = false;
+        public long answerTtlMs = 6 * HOUR;
+        /** TTL por intención; las que no están no se cachean. */
+        public final Map<String, Long> routeTtlMs = new HashMap<>();
+
+        public Config() {
+            for (String i : new String[]{"QUERY_TIME", "QUERY_DATE", "SPOTIFY_PAUSE", "SPOTIFY_RESUME",
+                    "SPOTIFY_NEXT", "SPOTIFY_PREV"}) {
+                routeTtlMs.put(i, 24 * HOUR);
+            }
+            routeTtlMs.put("QUERY_REMINDERS", 6 * HOUR);
+            routeTtlMs.put("SPOTIFY_PLAY", HOUR);
+            routeTtlMs.put("CALL", HOUR);
+            routeTtlMs.put("ANSWER", HOUR);
+        }
+    }
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final int LOG_EVERY = 20;
+
+    /** Preguntas cuya respuesta cambia con el día o con la hora: no se cachean. */
+    private static final Pattern TIME_SENSITIVE = Pattern.compile(
+            "\\b(hoy|ahora|ayer|manana|hora|horas|fecha|dia|clima|tiempo|temperatura|lluvia|llueve|noticias?"
+                    + "|dolar|cotizacion|partido|resultado|gano|ultimo|ultima|actual|esta semana|este mes)\\b");
+
+    /** Menos palabras que esto no alcanza para una pregunta que se entienda sin contexto. */
+    private static final int MIN_ANSWER_WORDS = 3;
+
+    /** Repreguntas: arrancan enganchadas a lo anterior o lo nombran ("eso", "otra vez"). */
+    private static final Pattern FOLLOW_UP = Pattern.compile(
+            "^(?:y|e|o|entonces|pero|ademas|tambien|o sea|por que|porque|como asi|en serio)\\b"
+                    + "|\\b(?:eso|esa|ese|esos|esas|esto|aquello|lo anterior|de nuevo|otra vez"
+                    + "|el mismo|la misma|lo mismo)\\b");
+
+    /** Pedidos abiertos: se espera una respuesta distinta cada vez. */
+    private static final Pattern OPEN_ENDED = Pattern.compile(
+            "\\b(?:chistes?|cuentos?|cuentito|historias?|poemas?|poesia|adivinanzas?|trabalenguas|cancion|refran"
+                    + "|dato curioso|curiosidad|sorprendeme|inventa|inventame|imagina|recomendame|recomenda"
+                    + "|sugerime|contame algo|decime algo|otro|otra)\\b");
+
+    public static final Config CONFIG = new Config();
+
+    private static final TtlLruCache<NluRouteResponse> ROUTES = new TtlLruCache<>("nlu route", CONFIG.routeCapacity);
+    private static final TtlLruCache<String> ANSWERS = new TtlLruCache<>("ask", CONFIG.answerCapacity);
+    private static int lookups = 0;
+
+    /** Activa el nivel persistente según CONFIG. Se puede llamar en cada onCreate. */
+    public static void init(Context ctx) {
+        if (CONFIG.persistRoutes) ROUTES.persistTo(ctx, "toto_cache_nlu_route", NluRouteResponse.class);
+        if (CONFIG.persistAnswers) ANSWERS.persistTo(ctx, "toto_cache_ask", String.class);
+    }
+
+    /** null = este turno no se cachea (hay una aclaración pendiente). */
+    static String routeKey(TextNormalizer.Turn turn, Map<String, Object> context) {
+        String norm = turn.intent();
+        if (norm.isEmpty()) return null;
+        if (context == null || context.isEmpty()) return norm;
+        if (context.containsKey("awaiting_clarification")) return null;
+        if (context.containsKey("awaiting_medication_confirmation")) {
+            return norm + "|med=" + context.get("pending_medication_id");
+        }
+        return norm;
+    }
+
+    static NluRouteResponse getRoute(String key) {
+        if (key == null) return null;
+        NluRouteResponse r = ROUTES.get(key);
+        logMaybe();
+        return r;
+    }
+
+    static void putRoute(String key, NluRouteResponse r) {
+        if (key == null || r == null || r.intent == null) return;
+        if (r.needs_confirmation || (r.clarifying_question != null && !r.clarifying_question.trim().isEmpty())) return;
+        if ("QUERY_REMINDERS".equals(r.intent) && r.slots != null && r.slots.datetime_iso != null) return;
+        Long ttl = CONFIG.routeTtlMs.get(r.intent);
+        if (ttl != null) ROUTES.put(key, r, ttl);
+    }
+
+    public static String getAnswer(String userId, TextNormalizer.Turn prompt) {
+        String key = answerKey(userId, prompt);
+        if (key == null) return null;
+        String reply = ANSWERS.get(key);
+        logMaybe();
+        return reply;
+    }
+
+    public static void putAnswer(String userId, TextNormalizer.Turn prompt, String reply) {
+        if (reply == null || reply.trim().isEmpty()) return;
+        ANSWERS.put(answerKey(userId, prompt), reply, CONFIG.answerTtlMs);
+    }
+
+    private static String answerKey(String userId, TextNormalizer.Turn prompt) {
+        String norm = prompt.intent();
+        if (norm.isEmpty() || TIME_SENSITIVE.matcher(norm).find()) return null;
+        if (norm.split(" ").length < MIN_ANSWER_WORDS || FOLLOW_UP.matcher(norm).find()
+                || OPEN_ENDED.matcher(norm).find()) return null;
+        return (userId != null ? userId : "") + "|" + norm;
+    }
+
+    public static void clear() {
+        ROUTES.clear();
+        ANSWERS.clear();
+    }
+
+    public static String stats() {
+        return ROUTES.summary() + " | " + ANSWERS.summary();
+    }
+
+    private static void logMaybe() {
+        boolean log;
+        synchronized (ResponseCache.class) {
+            log = ++lookups % LOG_EVERY == 0;
+        }
+        if (log) Log.d(TAG, stats());
+    }
+}
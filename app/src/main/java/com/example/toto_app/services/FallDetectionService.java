@@ -6,9 +6,10 @@ import android.app.NotificationManager;
 import android.app.Service;
 import android.content.Intent;
 import android.content.pm.ServiceInfo;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
 import android.os.Build;
 import android.os.IBinder;
 import android.os.SystemClock;
@@ -18,19 +19,27 @@ import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
 
+import com.example.toto_app.audio.CaptureHub;
+import com.example.toto_app.falls.AudioHeuristics;
+import com.example.toto_app.falls.BufferPool;
+import com.example.toto_app.falls.FallCascade;
+import com.example.toto_app.falls.ImpactLabelIndex;
+import com.example.toto_app.falls.MotionFallDetector;
 import com.example.toto_app.falls.STFT;
+import com.example.toto_app.falls.SpectralFeatures;
+import com.example.toto_app.falls.YamnetBenchmark;
+import com.example.toto_app.falls.YamnetConfig;
 import com.example.toto_app.util.UserDataManager;
 
 import org.tensorflow.lite.support.audio.TensorAudio;
 import org.tensorflow.lite.support.label.Category;
 import org.tensorflow.lite.task.audio.classifier.AudioClassifier;
-import org.tensorflow.lite.task.audio.classifier.AudioClassifier.AudioClassifierOptions;
 import org.tensorflow.lite.task.audio.classifier.Classifications;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import ar.edu.uade.toto_app.R;
@@ -43,48 +52,58 @@ public class FallDetectionService extends Service {
 
     public static final String ACTION_PAUSE_FALL  = "com.example.toto_app.action.PAUSE_FALL";
     public static final String ACTION_RESUME_FALL = "com.example.toto_app.action.RESUME_FALL";
+    public static final String ACTION_BENCHMARK_YAMNET = "com.example.toto_app.action.BENCHMARK_YAMNET";
+    public static final String EXTRA_BENCH_ITERATIONS = "bench_iterations";
 
-    private static final int SR   = 16000;
-    private static final int CH   = AudioFormat.CHANNEL_IN_MONO;
-    private static final int FMT  = AudioFormat.ENCODING_PCM_16BIT;
+    private static final int SR   = CaptureHub.SAMPLE_RATE;
     private static final int SEC  = 3;
     private static final int HOP  = 160;
     private static final int FFTN = 512;
 
-    private static final Set<String> IMPACT_LABELS = new HashSet<>();
-    static {
-        String[] labs = new String[]{
-                "thump","thud","bang","slam","impact","collision","knock","tap","slap",
-                "wood","wood thud","door","door slam","drop","object impact","smash","crash",
-                "bump","hit","boom","punch","object drop","body","floor","ground",
-                "cap gun","gunshot","explosion","chop"
-        };
-        for (String s : labs) IMPACT_LABELS.add(s.toLowerCase());
-    }
-
     private static final float YAMNET_IMPACT_THRESHOLD = 0.20f;
     private static final int   IMPACT_TOP_K            = 3;
-    private static final float RMS_PEAK_THRESHOLD      = 0.15f;
-    private static final float LOWFREQ_RATIO_THRESHOLD = 0.35f;
-    private static final float POST_SILENCE_RMS        = 0.04f;
-    private static final float POST_SILENCE_SECONDS    = 0.40f;
-
-    private static final float HF1_MIN_HZ              = 2000f;
-    private static final float HF1_MAX_HZ              = 6000f;
-    private static final float HF1_RATIO_MAX           = 0.65f;
-    private static final float CENTROID_MAX_HZ         = 4200f;
-    private static final float MIN_WIDTH_MS            = 30f;
-
-    private static final float FF_RMS_MIN              = 0.27f;
-    private static final float FF_HF_RATIO_MAX         = 0.46f;
-    private static final float FF_CENTROID_MAX_HZ      = 4050f;
-    private static final float FF_WIDTH_MS_MIN         = 28f;
+    /** Lo que YAMNet ve antes del pico; el resto de su entrada es el golpe y lo que sigue. */
+    private static final int   IMPACT_PRE_ROLL         = SR / 4;
+    /** Dos picos a menos de esto (en muestras absolutas) son el mismo golpe visto en ventanas solapadas. */
+    private static final int   SAME_PEAK_SAMPLES       = SR / 10;
 
     private Thread worker;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final AtomicBoolean paused  = new AtomicBoolean(false);
+    private final AtomicBoolean benchmarkRequested = new AtomicBoolean(false);
+    private volatile int benchIterations = 30;
 
     private AudioClassifier yamnet;
+    private YamnetConfig yamnetCfg;
+    private TensorAudio tensor;
+    private List<Classifications> lastResults;
+    private long lastPeakAbs = Long.MIN_VALUE;
+    private long windowStartAbs = 0;
+    private int reusedVerdicts = 0;
+    private ImpactLabelIndex impactIndex;
+
+    private static final FallCascade CASCADE = new FallCascade(SR, HOP);
+    private static final int STATS_LOG_EVERY = 40;
+
+    /** En modo ocioso el hilo duerme esto entre lecturas y toma el audio acumulado de una vez. */
+    private static final long IDLE_READ_MS = 1000;
+
+    private static final int MOTION_PERIOD_US  = 20_000;
+    private static final int MOTION_BATCH_US   = 1_000_000;
+
+    private final MotionFallDetector motion = new MotionFallDetector();
+    private SensorManager sensors;
+    private volatile boolean motionAvailable = false;
+
+    private final SensorEventListener motionListener = new SensorEventListener() {
+        @Override public void onSensorChanged(SensorEvent e) {
+            MotionFallDetector.Event ev = motion.onSample(e.timestamp, e.values[0], e.values[1], e.values[2]);
+            if (ev != null) Log.d(TAG, "Acelerómetro: " + ev + " → audio a tasa completa");
+        }
+        @Override public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+    };
+
+    public static FallCascade cascade() { return CASCADE; }
 
     @Nullable @Override public IBinder onBind(Intent intent) { return null; }
 
@@ -106,18 +125,22 @@ public class FallDetectionService extends Service {
             startForeground(NOTIF_ID, n);
         }
 
+        yamnetCfg = YamnetConfig.load(getApplicationContext());
         try {
-            AudioClassifierOptions opts = AudioClassifierOptions.builder()
-                    .setScoreThreshold(0f)
-                    .setMaxResults(10)
-                    .build();
-            yamnet = AudioClassifier.createFromFileAndOptions(getApplicationContext(), "yamnet.tflite", opts);
+            long t0 = SystemClock.elapsedRealtime();
+            yamnet = AudioClassifier.createFromFileAndOptions(getApplicationContext(), YamnetConfig.MODEL_FILE, yamnetCfg.toOptions());
+            Log.d(TAG, "YAMNet cargado (" + yamnetCfg + ") en " + (SystemClock.elapsedRealtime() - t0) + "ms");
         } catch (Exception e) {
             Log.e(TAG, "No se pudo cargar YAMNet", e);
             stopSelf();
             return;
         }
 
+        impactIndex = loadImpactIndex();
+
+        sensors = ContextCompat.getSystemService(this, SensorManager.class);
+        startMotion();
+
         running.set(true);
         worker = new Thread(this::loop, "toto-yamnet-loop");
         worker.start();
@@ -128,12 +151,19 @@ public class FallDetectionService extends Service {
             switch (intent.getAction()) {
                 case ACTION_PAUSE_FALL:
                     paused.set(true);
+                    stopMotion();
                     Log.d(TAG, "Fall detection PAUSED");
                     break;
                 case ACTION_RESUME_FALL:
                     paused.set(false);
+                    startMotion();
                     Log.d(TAG, "Fall detection RESUMED");
                     break;
+                case ACTION_BENCHMARK_YAMNET:
+                    benchIterations = Math.max(5, intent.getIntExtra(EXTRA_BENCH_ITERATIONS, 30));
+                    benchmarkRequested.set(true);
+                    Log.d(TAG, "Benchmark YAMNet solicitado");
+                    break;
             }
         }
         return START_STICKY;
@@ -141,16 +171,21 @@ public class FallDetectionService extends Service {
 
     @Override public void onDestroy() {
         running.set(false);
+        stopMotion();
         try { if (worker != null) worker.join(500); } catch (Exception ignore) {}
         worker = null;
         super.onDestroy();
     }
 
     private void loop() {
-        AudioRecord rec = null;
+        CaptureHub.Subscription sub = null;
         short[] cap = null;
-        TensorAudio tensor;
+        short[] tmp = null;
+        float[] audio = null;
+        final int readBuf = SR * SEC / 2;
+        long lastAllocs = -1;
 
+        if (yamnetCfg.warmUp) warmUp();
         try {
             tensor = yamnet.createInputTensorAudio();
         } catch (Exception e) {
@@ -162,110 +197,86 @@ public class FallDetectionService extends Service {
         final int frame = FFTN;
         final int hop   = HOP;
         int off = 0;
+        int windows = 0;
+        int idleWindows = 0;
+        int skippedWindows = 0;
+        // Pico absoluto de la mitad retenida y de lo leído desde el último corrimiento.
+        int keptPeak = 0;
+        int freshPeak = 0;
+        FallCascade.ImpactClassifier impact = (a, len, peak) -> {
+            long peakAbs = windowStartAbs + peak;
+            boolean idle = motionAvailable && !motion.wantsFullRate(SystemClock.elapsedRealtimeNanos());
+            if (!idle || lastResults == null || Math.abs(peakAbs - lastPeakAbs) > SAME_PEAK_SAMPLES) {
+                lastResults = classifyImpact(a, len, peak);
+                lastPeakAbs = peakAbs;
+            } else {
+                reusedVerdicts++;
+            }
+            return AudioHeuristics.hasImpactTopK(lastResults, impactIndex, YAMNET_IMPACT_THRESHOLD, IMPACT_TOP_K);
+        };
+        SpectralFeatures feats = new SpectralFeatures(SR, frame, hop, STFT.WindowType.HANN);
 
         while (running.get()) {
+            if (benchmarkRequested.getAndSet(false)) {
+                if (sub != null) {
+                    sub.close();
+                    sub = null;
+                    off = 0;
+                }
+                lastResults = null;
+                YamnetConfig best = YamnetBenchmark.best(YamnetBenchmark.run(getApplicationContext(),
+                        YamnetBenchmark.defaultSettings(), benchIterations, SR * SEC));
+                if (best != null && !best.sameEngine(yamnetCfg)) applyYamnetConfig(best);
+                continue;
+            }
+
             if (paused.get()) {
-                if (rec != null) {
-                    try { rec.stop(); } catch (Exception ignore) {}
-                    rec.release();
-                    rec = null;
-                    cap = null;
+                if (sub != null) {
+                    sub.close();
+                    sub = null;
                     off = 0;
                 }
                 SystemClock.sleep(150);
                 continue;
             }
 
-            if (rec == null) {
-                int minBuf = AudioRecord.getMinBufferSize(SR, CH, FMT);
-                int readBuf = Math.max(minBuf, SR / 2);
-                rec = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, SR, CH, FMT, readBuf);
-                if (rec.getState() != AudioRecord.STATE_INITIALIZED) {
-                    Log.e(TAG, "AudioRecord no inicializó; reintento en 500ms");
-                    rec.release();
-                    rec = null;
-                    SystemClock.sleep(500);
-                    continue;
-                }
-                try { rec.startRecording(); } catch (Exception e) {
-                    Log.e(TAG, "No se pudo iniciar grabación; reintento", e);
-                    rec.release();
-                    rec = null;
-                    SystemClock.sleep(500);
-                    continue;
-                }
-                cap = new short[SR * SEC];
+            if (sub == null) {
+                sub = CaptureHub.get().subscribe("falls");
+                cap = BufferPool.ensure(cap, SR * SEC);
+                tmp = BufferPool.ensure(tmp, readBuf);
                 off = 0;
+                keptPeak = freshPeak = 0;
+                lastResults = null;
             }
 
-            int readBuf = Math.max(AudioRecord.getMinBufferSize(SR, CH, FMT), SR / 2);
-            short[] tmp = new short[readBuf];
-            int n = rec.read(tmp, 0, tmp.length);
-            if (n <= 0) continue;
+            boolean idle = motionAvailable && !motion.wantsFullRate(SystemClock.elapsedRealtimeNanos());
+            if (idle) SystemClock.sleep(IDLE_READ_MS);
+
+            int n = sub.read(tmp, 0, Math.min(readBuf, cap.length - off), 500);
+            if (n < 0) { sub = null; continue; }
+            if (n == 0) continue;
 
-            int remaining = cap.length - off;
-            int copy = Math.min(remaining, n);
-            System.arraycopy(tmp, 0, cap, off, copy);
-            off += copy;
+            System.arraycopy(tmp, 0, cap, off, n);
+            freshPeak = Math.max(freshPeak, peakAbs(tmp, n));
+            off += n;
 
             if (off >= cap.length) {
-                float[] audio = new float[off];
-                for (int i = 0; i < off; i++) audio[i] = cap[i] / 32768f;
-
-                float[][] mag  = STFT.computeMagnitudeSpectrogram(audio, SR, frame, hop, STFT.WindowType.HANN);
-                float[][] db01 = STFT.toDecibel(mag, -80f);
-
-                List<Classifications> results = null;
-                String topLabel = null; float topScore = -1f;
-                try {
-                    tensor.load(audio);
-                    results = yamnet.classify(tensor);
-                    if (results != null) {
-                        for (Classifications cls : results) {
-                            for (Category c : cls.getCategories()) {
-                                if (c.getScore() > topScore) { topScore = c.getScore(); topLabel = c.getLabel(); }
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "YAMNet classify error", e);
+                // Quieto y sin nada que llegue al umbral de PEAK: la cascada la rechazaría igual.
+                boolean skip = idle && !FallCascade.mayPassPeak(Math.max(keptPeak, freshPeak));
+                boolean isFall = false;
+                if (skip) {
+                    skippedWindows++;
+                } else {
+                    audio = BufferPool.ensure(audio, off);
+                    for (int i = 0; i < off; i++) audio[i] = cap[i] / 32768f;
+                    feats.reset(audio, off);
+                    isFall = CASCADE.evaluate(feats, audio, off, impact);
                 }
 
-                boolean hasImpact = hasImpactLabelTopK(results, YAMNET_IMPACT_THRESHOLD, IMPACT_TOP_K);
-
-                RmsPeakInfo peak = computePeakAndWidth(audio, SR, hop);
-                float rmsPeak   = peak.rmsPeak;
-                int   peakF     = peak.peakFrame;
-                float widthMs   = peak.widthMs50;
-
-                float lfRatio   = lowFreqRatioMAG(mag,   peakF, SR, frame, 500f);
-                float hfRatio   = bandRatioMAG  (mag,    peakF, SR, frame, HF1_MIN_HZ, HF1_MAX_HZ);
-                float centroid  = spectralCentroidMAG(mag, peakF, SR, frame);
-
-                int postStart = Math.min(audio.length, peakF * hop + Math.round(0.2f * SR));
-                boolean postSilent = isPostSilent(audio, SR, postStart, POST_SILENCE_RMS, POST_SILENCE_SECONDS);
-
-                boolean strongPeak = rmsPeak >= RMS_PEAK_THRESHOLD;
-                boolean calmAfter  = postSilent;
-                boolean widthOk    = widthMs  >= MIN_WIDTH_MS;
-
-                boolean bassy      = lfRatio  >= LOWFREQ_RATIO_THRESHOLD;
-                boolean vetoAgudo  = (hfRatio >= HF1_RATIO_MAX) || (centroid >= CENTROID_MAX_HZ);
-                boolean passBassy  = strongPeak && widthOk && calmAfter && bassy && !vetoAgudo;
-
-                boolean passFarField =
-                        strongPeak &&
-                                calmAfter &&
-                                (widthMs >= FF_WIDTH_MS_MIN) &&
-                                (rmsPeak >= FF_RMS_MIN) &&
-                                (hfRatio <= FF_HF_RATIO_MAX) &&
-                                (centroid <= FF_CENTROID_MAX_HZ);
-
-                boolean isFall = hasImpact && (passBassy || passFarField);
-
-                String path = passBassy ? "LF" : (passFarField ? "FF" : "--");
-
                 if (isFall) {
+                    if (motion.corroborates(SystemClock.elapsedRealtimeNanos())) {
+                        Log.i(TAG, "Caída por audio corroborada por el acelerómetro");
+                    }
                     if (!com.example.toto_app.falls.FallSignals.tryActivate()) {
                         
                     } else {
@@ -289,141 +300,136 @@ public class FallDetectionService extends Service {
                     }
 
                     SystemClock.sleep(1200);
+                    sub.skipToNow();
+                    lastResults = null;
                 }
 
+                // Siempre 50% de solapamiento: las etapas baratas ven cada golpe con margen para el silencio posterior.
                 int keep = cap.length / 2;
                 System.arraycopy(cap, keep, cap, 0, cap.length - keep);
                 off = cap.length - keep;
-            }
-        }
-
-        try {
-            if (rec != null) {
-                try { rec.stop(); } catch (Exception ignore) {}
-                rec.release();
-            }
-        } catch (Exception ignore) {}
-    }
+                windowStartAbs += keep;
+                keptPeak = freshPeak;
+                freshPeak = 0;
+                if (idle) idleWindows++;
+
+                if (++windows % STATS_LOG_EVERY == 0) {
+                    Log.d(TAG, "Cascada: " + CASCADE.summary() + " ociosas=" + idleWindows + "/" + windows
+                            + " salteadas=" + skippedWindows + " YAMNet reutilizado=" + reusedVerdicts);
+                }
 
-    private static boolean hasImpactLabelTopK(List<Classifications> results, float minScore, int topK) {
-        if (results == null) return false;
-        for (Classifications cls : results) {
-            List<Category> cats = cls.getCategories();
-            if (cats == null || cats.isEmpty()) continue;
-            ArrayList<Category> sorted = new ArrayList<>(cats);
-            sorted.sort((a,b) -> Float.compare(b.getScore(), a.getScore()));
-            int limit = Math.min(topK, sorted.size());
-            for (int i = 0; i < limit; i++) {
-                Category c = sorted.get(i);
-                String lbl = c.getLabel() == null ? "" : c.getLabel().toLowerCase();
-                if (c.getScore() >= minScore) {
-                    for (String k : IMPACT_LABELS) if (lbl.contains(k)) return true;
+                long allocs = BufferPool.allocations();
+                if (allocs != lastAllocs) {
+                    Log.d(TAG, "Buffers: allocs=" + allocs + " bytes=" + BufferPool.allocatedBytes());
+                    lastAllocs = allocs;
                 }
             }
         }
-        return false;
+
+        if (sub != null) sub.close();
     }
 
-    private static class RmsPeakInfo {
-        final float rmsPeak;
-        final int peakFrame;
-        final float widthMs50;
-        RmsPeakInfo(float rmsPeak, int peakFrame, float widthMs50) {
-            this.rmsPeak = rmsPeak; this.peakFrame = peakFrame; this.widthMs50 = widthMs50;
+    private static int peakAbs(short[] pcm, int n) {
+        int max = 0;
+        for (int i = 0; i < n; i++) {
+            int a = pcm[i] < 0 ? -pcm[i] : pcm[i];
+            if (a > max) max = a;
         }
+        return max;
     }
 
-    private static RmsPeakInfo computePeakAndWidth(float[] audio, int sampleRate, int hopSize) {
-        int win = Math.max(1, hopSize);
-        int frames = Math.max(1, 1 + (audio.length - win) / hopSize);
-        float[] rms = new float[frames];
-
-        float best = -1f; int bestIdx = 0;
-        for (int f = 0; f < frames; f++) {
-            int start = f * hopSize;
-            float r = rms(audio, start, win);
-            rms[f] = r;
-            if (r > best) { best = r; bestIdx = f; }
+    /** Acelerómetro con batching: el SoC no se despierta por cada muestra. */
+    private void startMotion() {
+        if (sensors == null) return;
+        Sensor acc = sensors.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        if (acc == null) {
+            Log.w(TAG, "Sin acelerómetro; audio siempre a tasa completa");
+            return;
         }
-        float thr = 0.5f * best;
-        int left = bestIdx, right = bestIdx;
-        while (left  > 0         && rms[left-1]  >= thr) left--;
-        while (right < frames-1  && rms[right+1] >= thr) right++;
-
-        int widthFrames = (right - left + 1);
-        float widthMs = widthFrames * (1000f * hopSize / sampleRate);
-
-        return new RmsPeakInfo(best, bestIdx, widthMs);
+        motion.reset();
+        motionAvailable = sensors.registerListener(motionListener, acc, MOTION_PERIOD_US, MOTION_BATCH_US);
+        Log.d(TAG, "Acelerómetro " + (motionAvailable ? "activo" : "no disponible"));
     }
 
-    private static float rms(float[] x, int start, int len) {
-        int end = Math.min(x.length, start + len);
-        double acc = 0; int n = 0;
-        for (int i = start; i < end; i++) { acc += x[i] * x[i]; n++; }
-        return n > 0 ? (float)Math.sqrt(acc / n) : 0f;
+    private void stopMotion() {
+        if (sensors == null || !motionAvailable) return;
+        sensors.unregisterListener(motionListener);
+        motionAvailable = false;
     }
 
-
-    private static float lowFreqRatioMAG(float[][] mag, int frameIdx, int sampleRate, int frameSize, float cutoffHz) {
-        if (mag == null || mag.length == 0) return 0f;
-        frameIdx = Math.max(0, Math.min(frameIdx, mag.length - 1));
-        float[] col = mag[frameIdx];
-        if (col == null || col.length == 0) return 0f;
-
-        float binHz = sampleRate / 2f / (col.length - 1);
-        int cutoffBin = Math.min(col.length - 1, Math.max(1, Math.round(cutoffHz / binHz)));
-
-        double low = 0, tot = 0;
-        for (int k = 0; k < col.length; k++) {
-            double v = col[k];
-            tot += v;
-            if (k <= cutoffBin) low += v;
+    /** En el hilo del detector: la primera inferencia no bloquea onCreate. */
+    private void warmUp() {
+        try {
+            TensorAudio t = yamnet.createInputTensorAudio();
+            t.load(new float[SR * SEC]);
+            long t0 = SystemClock.elapsedRealtime();
+            yamnet.classify(t);
+            Log.d(TAG, "YAMNet warm-up en " + (SystemClock.elapsedRealtime() - t0) + "ms");
+        } catch (Exception e) {
+            Log.w(TAG, "YAMNet warm-up falló", e);
         }
-        return (float)((tot > 1e-9) ? (low / tot) : 0f);
     }
 
-    private static float bandRatioMAG(float[][] mag, int frameIdx, int sampleRate, int frameSize, float lowHz, float highHz) {
-        if (mag == null || mag.length == 0) return 0f;
-        frameIdx = Math.max(0, Math.min(frameIdx, mag.length - 1));
-        float[] col = mag[frameIdx];
-        if (col == null || col.length == 0) return 0f;
-
-        float binHz = sampleRate / 2f / (col.length - 1);
-        int lo = Math.max(0, Math.round(lowHz  / binHz));
-        int hi = Math.min(col.length - 1, Math.round(highHz / binHz));
-
-        double acc = 0, tot = 0;
-        for (int k = 0; k < col.length; k++) {
-            double v = col[k];
-            tot += v;
-            if (k >= lo && k <= hi) acc += v;
+    /** Cambia al intérprete ganador del benchmark y lo guarda para los próximos arranques. */
+    private void applyYamnetConfig(YamnetConfig best) {
+        best.warmUp = yamnetCfg.warmUp;
+        best.maxResults = yamnetCfg.maxResults;
+        try {
+            AudioClassifier next = AudioClassifier.createFromFileAndOptions(getApplicationContext(), YamnetConfig.MODEL_FILE, best.toOptions());
+            TensorAudio nextTensor = next.createInputTensorAudio();
+            AudioClassifier old = yamnet;
+            yamnet = next;
+            tensor = nextTensor;
+            try { old.close(); } catch (Exception ignore) {}
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo aplicar " + best + "; sigo con " + yamnetCfg, e);
+            return;
         }
-        return (float)((tot > 1e-9) ? (acc / tot) : 0f);
+        best.save(getApplicationContext());
+        Log.i(TAG, "YAMNet: " + yamnetCfg + " → " + best + " (guardado)");
+        yamnetCfg = best;
+        if (best.warmUp) warmUp();
     }
 
-    private static float spectralCentroidMAG(float[][] mag, int frameIdx, int sampleRate, int frameSize) {
-        if (mag == null || mag.length == 0) return 0f;
-        frameIdx = Math.max(0, Math.min(frameIdx, mag.length - 1));
-        float[] col = mag[frameIdx];
-        if (col == null || col.length == 0) return 0f;
-
-        float binHz = sampleRate / 2f / (col.length - 1);
-        double num = 0, den = 0;
-        for (int k = 0; k < col.length; k++) {
-            double f = k * binHz;
-            double v = col[k];
-            num += f * v;
-            den += v;
+    /** YAMNet sobre un tramo del largo de su entrada que arranca un poco antes del pico (no la cola de la ventana). */
+    private List<Classifications> classifyImpact(float[] audio, int length, int peakSample) {
+        List<Classifications> results = null;
+        String topLabel = null; float topScore = -1f;
+        try {
+            int size = Math.min(length, tensor.getTensorBuffer().getFlatSize());
+            int start = Math.max(0, Math.min(length - size, peakSample - IMPACT_PRE_ROLL));
+            tensor.load(audio, start, size);
+            results = yamnet.classify(tensor);
+            if (results != null) {
+                for (int r = 0; r < results.size(); r++) {
+                    List<Category> cats = results.get(r).getCategories();
+                    for (int j = 0; j < cats.size(); j++) {
+                        Category c = cats.get(j);
+                        if (c.getScore() > topScore) { topScore = c.getScore(); topLabel = c.getLabel(); }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "YAMNet classify error", e);
         }
-        return (float)((den > 1e-12) ? (num / den) : 0f);
+        Log.d(TAG, "YAMNet top=" + topLabel + " score=" + topScore);
+        return results;
     }
 
-    private static boolean isPostSilent(float[] audio, int sampleRate, int fromSample, float rmsThresh, float seconds) {
-        int need = Math.round(seconds * sampleRate);
-        int end = Math.min(audio.length, fromSample + need);
-        if (end <= fromSample) return false;
-        float r = rms(audio, fromSample, end - fromSample);
-        return r <= rmsThresh;
+    private ImpactLabelIndex loadImpactIndex() {
+        List<String> labels = null;
+        try (InputStream in = getAssets().open(YamnetConfig.MODEL_FILE)) {
+            labels = ImpactLabelIndex.readLabels(in);
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudieron leer etiquetas de YAMNet", e);
+        }
+        if (labels == null) {
+            Log.w(TAG, "Sin etiquetas en el modelo; se compara por texto");
+            labels = Collections.emptyList();
+        }
+        ImpactLabelIndex idx = ImpactLabelIndex.build(labels, Arrays.asList(ImpactLabelIndex.FALL_IMPACT_KEYWORDS));
+        Log.d(TAG, "Índice de impacto: " + idx.impactCount() + "/" + idx.size() + " clases");
+        return idx;
     }
 
     private void ensureChannel() {
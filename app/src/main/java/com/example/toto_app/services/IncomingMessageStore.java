@@ -4,13 +4,13 @@ import android.os.SystemClock;
 
 import androidx.annotation.Nullable;
 
-import java.text.Normalizer;
+import com.example.toto_app.util.TextNormalizer;
+
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 public final class IncomingMessageStore {
@@ -106,12 +106,7 @@ public final class IncomingMessageStore {
 
     private static String normKey(String s) {
         if (s == null) return "";
-        String t = Normalizer.normalize(s, Normalizer.Form.NFD)
-                .replaceAll("\\p{M}", "")
-                .toLowerCase(Locale.ROOT)
-                .replaceAll("[“”\"']", "")
-                .replaceAll("\\s+", " ")
-                .trim();
+        String t = TextNormalizer.KEY.normalize(s);
         if (t.length() > 280) t = t.substring(0, 280);
         return t;
     }
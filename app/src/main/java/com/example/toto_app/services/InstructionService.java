@@ -8,8 +8,9 @@ import android.util.Log;
 import androidx.annotation.Nullable;
 
 import com.example.toto_app.actions.DeviceActions;
+import com.example.toto_app.audio.Endpointer;
 import com.example.toto_app.audio.InstructionCapture;
-import com.example.toto_app.audio.VadUtils;
+import com.example.toto_app.audio.UtteranceBuffer;
 import com.example.toto_app.calls.AppState;
 import com.example.toto_app.calls.PhoneCallExecutor;
 import com.example.toto_app.falls.FallLogic;
@@ -25,12 +26,16 @@ import com.example.toto_app.network.SpotifyResponse;
 import com.example.toto_app.network.SpotifyShuffleRequest;
 import com.example.toto_app.network.SpotifyStatus;
 import com.example.toto_app.network.SpotifyVolumeRequest;
+import com.example.toto_app.nlp.InstructionRouter;
 import com.example.toto_app.nlp.NluResolver;
+import com.example.toto_app.nlp.ResponseCache;
+import com.example.toto_app.stt.StreamingSttSession;
 import com.example.toto_app.stt.SttClient;
+import com.example.toto_app.stt.VoskPartialTracker;
+import com.example.toto_app.util.TextNormalizer;
 import com.example.toto_app.util.TtsSanitizer;
 import com.example.toto_app.util.UserDataManager;
 
-import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -40,6 +45,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
 
 import retrofit2.Response;
 
@@ -60,6 +66,12 @@ public class InstructionService extends android.app.Service {
     private UserDataManager userDataManager;
 
     private static final String EXTRA_FALL_MODE = "fall_mode";
+    /** Posición del CaptureHub donde arrancó el comando dicho de corrido con la wake word. */
+    public static final String EXTRA_PREROLL_POSITION = "preroll_position";
+    private static final Pattern LEADING_WAKE_WORD = Pattern.compile("^\\s*toto\\b[\\s,.;:!¡?¿]*",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private long prerollPosition = -1L;
+    @Nullable private volatile IntentPrefetcher prefetch = null;
     private boolean confirmWhatsApp = false;
     @Nullable private String fallMode = null;
     private int fallRetry = 0;
@@ -69,6 +81,7 @@ public class InstructionService extends android.app.Service {
     public void onCreate() {
         super.onCreate();
         userDataManager = new UserDataManager(getApplicationContext());
+        ResponseCache.init(getApplicationContext());
     }
 
     @Override
@@ -87,6 +100,7 @@ public class InstructionService extends android.app.Service {
                     }
                 }
             }
+            prerollPosition = intent.getLongExtra(EXTRA_PREROLL_POSITION, -1L);
             if (intent.hasExtra("confirm_whatsapp")) {
                 confirmWhatsApp = intent.getBooleanExtra("confirm_whatsapp", false);
             }
@@ -123,31 +137,52 @@ public class InstructionService extends android.app.Service {
             return;
         }
 
-        File cacheDir = getExternalCacheDir() != null ? getExternalCacheDir() : getCacheDir();
-        File wav = new File(cacheDir, "toto_instruction_" + SystemClock.elapsedRealtime() + ".wav");
-
         InstructionCapture.Config cfg = new InstructionCapture.Config();
         cfg.sampleRate = 16000;
         cfg.maxDurationMs = 15000;
         cfg.trailingSilenceMs = 1800;
         cfg.silenceDbfs = -45.0;
-        cfg.frameMs = 30;
 
         if ("AWAIT".equals(fallMode) || "AWAIT_ACTION".equals(fallMode)) {
             cfg.maxDurationMs     = 12000;
             cfg.trailingSilenceMs = 3500;
             cfg.silenceDbfs       = -50.0;
         }
-
-        Log.d(TAG, "Grabando a WAV: " + wav.getAbsolutePath());
-        InstructionCapture.captureToWav(wav, cfg, new InstructionCapture.Listener(){});
+        final boolean preRolled = fallMode == null && prerollPosition >= 0;
+        if (preRolled) cfg.startPosition = prerollPosition;
+
+        final boolean awaitingFallReply = "AWAIT".equals(fallMode);
+        Endpointer endpointer = new Endpointer(InstructionCapture.endpointerConfig(cfg),
+                text -> awaitingFallReply
+                        ? FallLogic.assessFallReply(FallLogic.normEs(text)) != FallLogic.FallReply.UNKNOWN
+                        : isCompleteLocalIntent(text),
+                cfg.sampleRate);
+        if (prefetch != null) prefetch.close();
+        prefetch = null;
+        if (fallMode == null) {
+            prefetch = new IntentPrefetcher(this, userDataManager.getUserId());
+            prefetch.warmUp();
+        }
+        final IntentPrefetcher speculative = prefetch;
+        final VoskPartialTracker partials = VoskPartialTracker.start(endpointer, cfg.sampleRate,
+                speculative != null ? speculative::onPartial : null);
+        final StreamingSttSession sttStream = SttClient.openStream();
+        UtteranceBuffer utterance = InstructionCapture.capture(cfg, new InstructionCapture.Listener() {
+            @Override public void onAudio(byte[] pcm, int len) {
+                if (sttStream != null) sttStream.write(pcm, 0, len);
+                if (partials != null) partials.write(pcm, len);
+            }
+        }, endpointer);
+        if (partials != null) partials.close();
+        if (sttStream != null) sttStream.finish();
 
         int minVoicedMs =
                 ("AWAIT".equals(fallMode) || "AWAIT_ACTION".equals(fallMode) || "CHECK".equals(fallMode))
                         ? 220 : 320;
 
-        if (!VadUtils.hasEnoughVoice(wav, cfg.silenceDbfs, minVoicedMs)) {
+        if (utterance == null || !utterance.hasEnoughVoice(cfg.silenceDbfs, minVoicedMs)) {
             Log.d(TAG, "VAD: silencio o voz insuficiente");
+            if (sttStream != null) sttStream.cancel();
             if ("AWAIT".equals(fallMode)) {
                 if (fallRetry <= 0) {
                     sayThenListenHere("No te escuché. ¿Estás bien?", "AWAIT:1");
@@ -179,7 +214,6 @@ public class InstructionService extends android.app.Service {
                         androidx.core.content.ContextCompat.startForegroundService(this, resume);
                     }
                 }
-                try { wav.delete(); } catch (Exception ignore) {}
                 stopSelf();
                 return;
             } else {
@@ -193,27 +227,28 @@ public class InstructionService extends android.app.Service {
                         Intent resume = new Intent(this, WakeWordService.class).setAction(WakeWordService.ACTION_RESUME_LISTEN);
                         androidx.core.content.ContextCompat.startForegroundService(this, resume);
                     } catch (Exception ignored) {}
-                    try { wav.delete(); } catch (Exception ignore) {}
                     stopSelf();
                     return;
                 }
 
                 sayViaWakeService("No te escuché bien.", 0);
-                try { wav.delete(); } catch (Exception ignore) {}
                 stopSelf();
                 return;
             }
         }
 
-        String transcript = "";
-        try {
-            transcript = SttClient.transcribe(wav);
-        } finally {
-            try { wav.delete(); } catch (Exception ignored) {}
+        Log.d(TAG, "Instrucción en memoria: " + utterance.durationMs() + "ms");
+        String transcript = SttClient.transcribe(utterance, sttStream);
+        if (preRolled) {
+            // El pre-roll arranca un poco antes del fin de la wake word: sacar el "toto" del comando.
+            transcript = LEADING_WAKE_WORD.matcher(transcript).replaceFirst("");
+            Log.d(TAG, "Comando con pre-roll: \"" + transcript + "\"");
         }
+        // Las formas normalizadas del transcript se calculan una vez y las comparten todos los consumidores.
+        TextNormalizer.Turn turn = TextNormalizer.turn(transcript);
 
         if ("AWAIT".equals(fallMode)) {
-            String norm = FallLogic.normEs(transcript);
+            String norm = turn.fall();
             if (norm.isEmpty()) {
                 if (fallRetry <= 0) {
                     sayThenListenHere("No te escuché. ¿Estás bien?", "AWAIT:1");
@@ -319,15 +354,10 @@ public class InstructionService extends android.app.Service {
             return;
         }
 
-        String normAll = FallLogic.normEs(transcript);
+        String normAll = turn.fall();
 
         try {
-            String norm = java.text.Normalizer.normalize(transcript, java.text.Normalizer.Form.NFD)
-                    .replaceAll("\\p{M}", "")
-                    .toLowerCase(java.util.Locale.ROOT)
-                    .replaceAll("[¿?¡!.,;:()\\[\\]\"]", " ")
-                    .replaceAll("\\s+", " ")
-                    .trim();
+            String norm = turn.intent();
 
             boolean saysAffirm =
                     norm.matches("^(si|dale|claro|ok|de una|bueno|obvio|por favor|si por favor|si dale)(\\s.*)?$");
@@ -426,7 +456,7 @@ public class InstructionService extends android.app.Service {
             context.put("pending_medication_id", awaitingReminder.getId());
         }
 
-        NluRouteResponse nres = NluResolver.resolveWithFallback(transcript, context);
+        NluRouteResponse nres = NluResolver.resolveWithFallback(turn, context);
         String intentName = (nres != null && nres.intent != null)
                 ? nres.intent.trim().toUpperCase(java.util.Locale.ROOT) : "UNKNOWN";
 
@@ -565,10 +595,10 @@ public class InstructionService extends android.app.Service {
                     stopSelf(); return;
                 }
 
-                DeviceActions.ResolvedContact rc = DeviceActions.resolveContactByNameFuzzy(this, who);
+                DeviceActions.ResolvedContact rc = resolveContact(who);
                 if ((rc == null || rc.number == null || rc.number.isEmpty())
                         && who.startsWith("a") && who.length() >= 3) {
-                    rc = DeviceActions.resolveContactByNameFuzzy(this, who.substring(1));
+                    rc = resolveContact(who.substring(1));
                 }
                 if ((rc == null || rc.number == null || rc.number.isEmpty()) && looksLikePhoneNumber(who)) {
                     String dial = normalizeDialable(who);
@@ -633,7 +663,7 @@ public class InstructionService extends android.app.Service {
                 String msg = (nres != null && nres.slots != null) ? nres.slots.message_text : null;
 
                 if ((who == null || who.isBlank()) || (msg == null || msg.isBlank())) {
-                    FallbackMessage fm = fallbackExtractMessage(transcript);
+                    FallbackMessage fm = fallbackExtractMessage(turn);
                     if (who == null || who.isBlank()) who = (fm != null ? fm.who : null);
                     if (msg == null || msg.isBlank()) msg = (fm != null ? fm.text : null);
                 }
@@ -657,7 +687,7 @@ public class InstructionService extends android.app.Service {
                     stopSelf(); return;
                 }
 
-                DeviceActions.ResolvedContact rc = DeviceActions.resolveContactByNameFuzzy(this, who);
+                DeviceActions.ResolvedContact rc = resolveContact(who);
                 if (rc == null || rc.number == null || rc.number.isEmpty()) {
                     sayViaWakeService("No encontré a " + who + " en tus contactos.", 0);
                     stopSelf(); return;
@@ -713,7 +743,8 @@ public class InstructionService extends android.app.Service {
                 }
 
                 try {
-                    retrofit2.Response<SpotifyStatus> s = RetrofitClient.api().spotifyStatus().execute();
+                    retrofit2.Response<SpotifyStatus> s = prefetch != null
+                            ? prefetch.spotifyStatus() : RetrofitClient.api().spotifyStatus().execute();
                     SpotifyStatus st = s.isSuccessful() ? s.body() : null;
                     if (st == null) { sayViaWakeService("No pude verificar Spotify ahora.", 0); stopSelf(); return; }
 
@@ -992,8 +1023,9 @@ public class InstructionService extends android.app.Service {
                         }
                     }
 
-                    retrofit2.Response<java.util.List<ReminderDTO>> r = 
-                        RetrofitClient.api().getTodayReminders(elderlyId, queryType, dateFilter).execute();
+                    retrofit2.Response<java.util.List<ReminderDTO>> r = prefetch != null
+                        ? prefetch.todayReminders(elderlyId, queryType, dateFilter)
+                        : RetrofitClient.api().getTodayReminders(elderlyId, queryType, dateFilter).execute();
                     
                     if (r.isSuccessful() && r.body() != null && !r.body().isEmpty()) {
                         String typeLabel = "";
@@ -1174,7 +1206,7 @@ public class InstructionService extends android.app.Service {
                 try { backendUp = com.example.toto_app.services.BackendHealthManager.get().isBackendUp(); } catch (Throwable ignore) { backendUp = true; }
                 
                 if (!backendUp) {
-                    if (FallLogic.saysHelp(normAll) || FallLogic.mentionsFall(normAll)) {
+                    if (FallLogic.saysHelpOrFall(normAll)) {
                         sayThenListenHere("¿Estás bien?", "AWAIT:0");
                         stopSelf();
                         return;
@@ -1190,15 +1222,21 @@ public class InstructionService extends android.app.Service {
                     AskRequest rq = new AskRequest();
                     rq.prompt = transcript;
                     rq.userId = userDataManager.getUserName();
-                    Response<AskResponse> r2 = RetrofitClient.api().ask(rq).execute();
-                    String reply = (r2.isSuccessful() && r2.body() != null && r2.body().reply != null)
-                            ? r2.body().reply.trim()
-                            : "No estoy seguro, ¿podés repetir?";
+                    String reply = ResponseCache.getAnswer(rq.userId, turn);
+                    if (reply == null) {
+                        Response<AskResponse> r2 = RetrofitClient.api().ask(rq).execute();
+                        if (r2.isSuccessful() && r2.body() != null && r2.body().reply != null) {
+                            reply = r2.body().reply.trim();
+                            ResponseCache.putAnswer(rq.userId, turn, reply);
+                        } else {
+                            reply = "No estoy seguro, ¿podés repetir?";
+                        }
+                    }
                     sayViaWakeService(TtsSanitizer.sanitizeForTTS(reply), 0);
                 } catch (Exception ex) {
                     Log.e(TAG, "Error /api/ask", ex);
                     
-                    if (FallLogic.saysHelp(normAll) || FallLogic.mentionsFall(normAll)) {
+                    if (FallLogic.saysHelpOrFall(normAll)) {
                         sayThenListenHere("¿Estás bien?", "AWAIT:0");
                         stopSelf();
                         return;
@@ -1211,6 +1249,22 @@ public class InstructionService extends android.app.Service {
         }
     }
 
+    /** Para el endpointer: el parcial ya alcanza para un pedido local (hora, fecha, alarma con hora, llamada con nombre). */
+    private static boolean isCompleteLocalIntent(String text) {
+        InstructionRouter.Result r = InstructionRouter.route(text);
+        switch (r.action) {
+            case QUERY_TIME:
+            case QUERY_DATE:
+                return true;
+            case SET_ALARM:
+                return r.hour != null;
+            case CALL:
+                return r.contactName != null && !r.contactName.isEmpty();
+            default:
+                return false;
+        }
+    }
+
     private void sayThenListenHere(String text, @Nullable String nextFallMode) {
         Intent say = new Intent(this, WakeWordService.class)
                 .setAction(WakeWordService.ACTION_SAY)
@@ -1285,6 +1339,11 @@ public class InstructionService extends android.app.Service {
     @Override public void onDestroy() {
         super.onDestroy();
         sConversationActive = false;
+        if (prefetch != null) prefetch.close();
+    }
+
+    private DeviceActions.ResolvedContact resolveContact(String who) {
+        return prefetch != null ? prefetch.resolveContact(who) : DeviceActions.resolveContactByNameFuzzy(this, who);
     }
 
     @Nullable
@@ -1440,14 +1499,8 @@ public class InstructionService extends android.app.Service {
     }
 
     @Nullable
-    private static FallbackMessage fallbackExtractMessage(String raw) {
-        if (raw == null) return null;
-        String s = java.text.Normalizer.normalize(raw, java.text.Normalizer.Form.NFD)
-                .replaceAll("\\p{M}", "")
-                .toLowerCase(java.util.Locale.ROOT)
-                .replaceAll("[“”\"']", "")
-                .replaceAll("\\s+", " ")
-                .trim();
+    private static FallbackMessage fallbackExtractMessage(TextNormalizer.Turn turn) {
+        String s = turn.key();
 
         String[] pats = new String[] {
                 "\\b(?:mandale|manda|mandar|escribile|escribe|escribir|decile|decime|dile|avisale|avisa|avisar)(?:\\s+un\\s+mensaje)?\\s+a\\s+([a-z0-9ñáéíóúü\\s.-]{1,40})\\s*(?:que|de que|diciendole|diciendole que|:|–|-)\\s*(.+)$",
@@ -0,0 +1,219 @@
+package com.example.toto_app.services;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.toto_app.actions.DeviceActions;
+import com.example.toto_app.network.ReminderDTO;
+import com.example.toto_app.network.RetrofitClient;
+import com.example.toto_app.network.SpotifyStatus;
+import com.example.toto_app.nlp.InstructionRouter;
+import com.example.toto_app.util.LatencyStats;
+import com.example.toto_app.util.TextNormalizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Response;
+
+/**
+ * Prefetch especulativo mientras el usuario habla: mira los parciales de Vosk con reglas locales y,
+ * si adivina la intención, adelanta en segundo plano lo lento (buscar el contacto, estado de Spotify,
+ * recordatorios de hoy). Después del NLU, los métodos de consulta devuelven lo ya buscado si coincide
+ * con lo que pidió el NLU; si no, hacen la llamada normal. Acotado (pocas tareas, 2 hilos) y
+ * cancelable: una adivinanza equivocada sólo cuesta una consulta descartada.
+ */
+public final class IntentPrefetcher {
+
+    private static final String TAG = "IntentPrefetch";
+    private static final int MAX_TASKS = 4;
+    private static final long MAX_AGE_MS = 20_000;
+    private static final long MAX_WAIT_MS = 5_000;
+
+    private static final ThreadPoolExecutor EXEC = new ThreadPoolExecutor(0, 2, 10, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, "toto-prefetch");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private static final LatencyStats HEAD_START = new LatencyStats("prefetch head start", 128);
+    private static long speculated = 0, used = 0, wasted = 0;
+
+    private static final class Task<T> {
+        final Future<T> future;
+        final long startedAt = SystemClock.elapsedRealtime();
+        boolean consumed = false;
+
+        Task(Future<T> future) { this.future = future; }
+    }
+
+    private final Context ctx;
+    private final Long userId;
+    private final Map<String, Task<DeviceActions.ResolvedContact>> contacts = new HashMap<>();
+    private final Map<String, Task<Response<List<ReminderDTO>>>> reminders = new HashMap<>();
+    private Task<Response<SpotifyStatus>> spotify;
+    private final List<Task<?>> all = new ArrayList<>();
+    private String lastText = "";
+    private boolean closed = false;
+
+    /** userId null = no se adelantan recordatorios. */
+    public IntentPrefetcher(Context ctx, Long userId) {
+        this.ctx = ctx.getApplicationContext();
+        this.userId = userId;
+    }
+
+    /** Calienta la conexión al backend (DNS/TLS) mientras se graba; no cuenta como especulación. */
+    public void warmUp() {
+        try {
+            EXEC.execute(() -> {
+                try {
+                    RetrofitClient.api().health().execute();
+                } catch (Exception e) {
+                    Log.d(TAG, "warm-up: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ignore) {
+        }
+    }
+
+    /** Texto parcial de la instrucción (hilo del reconocedor). */
+    public synchronized void onPartial(String text) {
+        if (closed || text == null) return;
+        String t = " " + norm(text) + " ";
+        if (t.equals(lastText)) return;
+        lastText = t;
+
+        InstructionRouter.Result r = InstructionRouter.route(text);
+        if (r.action == InstructionRouter.Action.CALL && r.contactName != null && r.contactName.length() >= 3) {
+            final String who = r.contactName;
+            String key = norm(who);
+            if (!contacts.containsKey(key)) {
+                Task<DeviceActions.ResolvedContact> task =
+                        submit("contacto \"" + who + "\"", () -> DeviceActions.resolveContactByNameFuzzy(ctx, who));
+                if (task != null) contacts.put(key, task);
+            }
+        } else if (spotify == null && (t.contains(" spotify ") || t.contains(" musica ")
+                || t.contains(" cancion ") || t.contains(" reproduci"))) {
+            spotify = submit("estado de Spotify", () -> RetrofitClient.api().spotifyStatus().execute());
+        } else if (userId != null && !t.contains(" recorda") && !t.contains(" anota")
+                && (t.contains(" recordatorio") || t.contains(" que tengo ") || t.contains(" medicamento")
+                || t.contains(" pastilla") || t.contains(" remedio") || t.contains(" turno") || t.contains(" cita"))) {
+            final String type = t.contains(" medicamento") || t.contains(" pastilla") || t.contains(" remedio")
+                    ? "medication" : t.contains(" turno") || t.contains(" cita") ? "appointment" : null;
+            String key = String.valueOf(type);
+            if (!reminders.containsKey(key)) {
+                Task<Response<List<ReminderDTO>>> task = submit("recordatorios " + key,
+                        () -> RetrofitClient.api().getTodayReminders(userId, type, null).execute());
+                if (task != null) reminders.put(key, task);
+            }
+        }
+    }
+
+    private <T> Task<T> submit(String what, Callable<T> job) {
+        if (all.size() >= MAX_TASKS) return null;
+        try {
+            Task<T> task = new Task<>(EXEC.submit(job));
+            all.add(task);
+            synchronized (IntentPrefetcher.class) { speculated++; }
+            Log.d(TAG, "Adelanto " + what);
+            return task;
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /** Como DeviceActions.resolveContactByNameFuzzy, usando la búsqueda adelantada si es el mismo nombre. */
+    public DeviceActions.ResolvedContact resolveContact(String who) {
+        Task<DeviceActions.ResolvedContact> task;
+        synchronized (this) { task = who == null ? null : contacts.get(norm(who)); }
+        if (task != null) {
+            try {
+                return consume(task);
+            } catch (Exception e) {
+                Log.w(TAG, "Contacto adelantado falló: " + e.getMessage());
+            }
+        }
+        return DeviceActions.resolveContactByNameFuzzy(ctx, who);
+    }
+
+    /** Como api().spotifyStatus().execute(). */
+    public Response<SpotifyStatus> spotifyStatus() throws IOException {
+        Task<Response<SpotifyStatus>> task;
+        synchronized (this) { task = spotify; }
+        if (task != null) {
+            try {
+                return consume(task);
+            } catch (Exception e) {
+                Log.w(TAG, "Spotify adelantado falló: " + e.getMessage());
+            }
+        }
+        return RetrofitClient.api().spotifyStatus().execute();
+    }
+
+    /** Como api().getTodayReminders(...).execute(); sólo reutiliza si el NLU pidió lo mismo sin fecha. */
+    public Response<List<ReminderDTO>> todayReminders(Long elderlyId, String type, String date) throws IOException {
+        Task<Response<List<ReminderDTO>>> task = null;
+        if (date == null && elderlyId != null && elderlyId.equals(userId)) {
+            synchronized (this) { task = reminders.get(String.valueOf(type)); }
+        }
+        if (task != null) {
+            try {
+                return consume(task);
+            } catch (Exception e) {
+                Log.w(TAG, "Recordatorios adelantados fallaron: " + e.getMessage());
+            }
+        }
+        return RetrofitClient.api().getTodayReminders(elderlyId, type, date).execute();
+    }
+
+    private <T> T consume(Task<T> task) throws Exception {
+        long now = SystemClock.elapsedRealtime();
+        if (now - task.startedAt > MAX_AGE_MS) throw new IllegalStateException("resultado viejo");
+        T value;
+        try {
+            value = task.future.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        synchronized (this) { task.consumed = true; }
+        synchronized (IntentPrefetcher.class) { used++; }
+        HEAD_START.record(now - task.startedAt);
+        return value;
+    }
+
+    /** Cancela lo que siga corriendo; lo no usado cuenta como desperdicio. */
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        int unused = 0;
+        for (Task<?> t : all) {
+            if (t.consumed) continue;
+            unused++;
+            t.future.cancel(true);
+        }
+        synchronized (IntentPrefetcher.class) { wasted += unused; }
+        if (!all.isEmpty()) Log.d(TAG, summary());
+    }
+
+    public static synchronized String summary() {
+        return String.format(Locale.US, "prefetch: especulados=%d usados=%d descartados=%d, %s",
+                speculated, used, wasted, HEAD_START.summary());
+    }
+
+    private static String norm(String s) {
+        return TextNormalizer.INTENT.normalize(s);
+    }
+}
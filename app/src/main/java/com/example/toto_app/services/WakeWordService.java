@@ -29,9 +29,7 @@ import org.json.JSONObject;
 import org.vosk.LibVosk;
 import org.vosk.LogLevel;
 import org.vosk.Model;
-import org.vosk.Recognizer;
 import org.vosk.android.RecognitionListener;
-import org.vosk.android.SpeechService;
 import org.vosk.android.StorageService;
 
 import java.io.IOException;
@@ -39,7 +37,11 @@ import java.util.Locale;
 import java.util.Random;
 import java.util.regex.Pattern;
 
+import com.example.toto_app.audio.CaptureHub;
+import com.example.toto_app.audio.InstructionCapture;
+import com.example.toto_app.audio.WakeWordEngine;
 import com.example.toto_app.falls.FallSignals;
+import com.example.toto_app.stt.VoskRecognizerPool;
 import com.example.toto_app.util.TtsSanitizer;
 import com.example.toto_app.util.UserDataManager;
 
@@ -77,6 +79,19 @@ public class WakeWordService extends Service implements RecognitionListener {
 
     private static final long MIN_COOLDOWN_MS = 1500;
     private static final long DEDUPE_WINDOW_MS = 2500;
+    private static final long REARM_AFTER_TTS_MS = 3000;
+
+    /** Comando dicho de corrido con la wake word ("Toto, qué hora es"): sin ACK y sin perder audio. */
+    public static class FastPathConfig {
+        public boolean skipAckWhenSpeaking = true;
+        /** La instrucción arranca esto antes de donde se detectó "toto" (el decoder va atrasado). */
+        public int preRollMs = 300;
+        /** Cuánto audio después de la detección se mira para decidir si el usuario sigue hablando. */
+        public int probeMs = 450;
+        public int minSpeechMs = 150;
+    }
+
+    public static final FastPathConfig FAST_PATH = new FastPathConfig();
 
     private long lastTriggerAt = 0L;
     private long lastDetectionAt = 0L;
@@ -86,7 +101,8 @@ public class WakeWordService extends Service implements RecognitionListener {
     private UserDataManager userDataManager;
 
     private Model model;
-    private SpeechService speechService;
+    private WakeWordEngine wakeEngine;
+    private volatile long ttsDoneAt = 0L;
 
     private TextToSpeech tts;
     private volatile boolean ttsReady = false;
@@ -222,6 +238,13 @@ public class WakeWordService extends Service implements RecognitionListener {
                     public void onComplete(Model m) {
                         model = m;
                         com.example.toto_app.services.WakeWordServiceModelHolder.setModel(m);
+                        try {
+                            wakeEngine = new WakeWordEngine(m, "[\"toto\"]", WakeWordService.this);
+                        } catch (IOException e) {
+                            Log.e(TAG, "No se pudo crear el reconocedor de wake word", e);
+                            stopSelf();
+                            return;
+                        }
                         startWakeListening();
                     }
                 },
@@ -272,6 +295,7 @@ public class WakeWordService extends Service implements RecognitionListener {
                     @Override
                     public void onDone(String utteranceId) {
                         Log.d(TAG, "TTS onDone utteranceId=" + utteranceId);
+                        ttsDoneAt = SystemClock.elapsedRealtime();
                         new android.os.Handler(getMainLooper()).post(() -> {
                             finishAfterTts(currentUtteranceKind);
                         });
@@ -311,7 +335,7 @@ public class WakeWordService extends Service implements RecognitionListener {
     private void startWakeListening() {
         try {
             stopListening();
-            if (model == null) return;
+            if (model == null || wakeEngine == null) return;
 
             if (listeningPaused) {
                 Log.d(TAG, "startWakeListening: en pausa → no inicio reconocimiento");
@@ -319,10 +343,10 @@ public class WakeWordService extends Service implements RecognitionListener {
                 return;
             }
 
-            Recognizer rec = new Recognizer(model, 16000.0f);
-            rec.setGrammar("[\"toto\"]");
-            speechService = new SpeechService(rec, 16000.0f);
-            speechService.startListening(this);
+            long now = SystemClock.elapsedRealtime();
+            long since = ttsDoneAt;
+            ttsDoneAt = 0L;
+            wakeEngine.arm(since > 0 && now - since <= REARM_AFTER_TTS_MS ? since : now);
 
             acquireWakeLock();
             Log.d(TAG, "Wake listening iniciado");
@@ -343,17 +367,7 @@ public class WakeWordService extends Service implements RecognitionListener {
     }
 
     private void stopListening() {
-        if (speechService != null) {
-            try {
-                speechService.stop();
-            } catch (Exception ignored) {
-            }
-            try {
-                speechService.shutdown();
-            } catch (Exception ignored) {
-            }
-            speechService = null;
-        }
+        if (wakeEngine != null) wakeEngine.disarm();
         abandonAudioFocus();
         releaseWakeLock();
     }
@@ -394,9 +408,15 @@ public class WakeWordService extends Service implements RecognitionListener {
     }
 
     private void startInstructionService() {
+        startInstructionService(-1L);
+    }
+
+    /** prerollPosition >= 0: la instrucción arranca en esa posición del CaptureHub. */
+    private void startInstructionService(long prerollPosition) {
         stopListening();
         Intent i = new Intent(this, InstructionService.class);
         i.putExtra("user_name", userDataManager.getUserName());
+        if (prerollPosition >= 0) i.putExtra(InstructionService.EXTRA_PREROLL_POSITION, prerollPosition);
         startService(i);
     }
 
@@ -570,8 +590,13 @@ public class WakeWordService extends Service implements RecognitionListener {
         } catch (Exception ignored) {
         }
         stopListening();
+        if (wakeEngine != null) {
+            wakeEngine.close();
+            wakeEngine = null;
+        }
         if (model != null) {
-            model.close();
+            WakeWordServiceModelHolder.setModel(null);
+            VoskRecognizerPool.get().retire(model);
             model = null;
         }
         if (tts != null) {
@@ -671,6 +696,39 @@ public class WakeWordService extends Service implements RecognitionListener {
             return;
         }
 
+        long wakePos = wakeEngine != null ? wakeEngine.deliveredPosition() : -1L;
+        if (FAST_PATH.skipAckWhenSpeaking && wakePos >= 0) {
+            probeSpeechAfterWake(wakePos);
+        } else {
+            acknowledgeAndListen();
+        }
+    }
+
+    /**
+     * Mira el audio que sigue a "toto" (ya está en el ring del hub) sin frenar el hilo principal:
+     * si el usuario siguió hablando va directo a la instrucción desde un poco antes de la detección;
+     * si no, el ACK de siempre.
+     */
+    private void probeSpeechAfterWake(long wakePos) {
+        final long preRoll = (long) FAST_PATH.preRollMs * CaptureHub.SAMPLE_RATE / 1000;
+        final android.os.Handler main = new android.os.Handler(getMainLooper());
+        new Thread(() -> {
+            long t0 = SystemClock.elapsedRealtime();
+            boolean speaking = InstructionCapture.speechFollows(wakePos, FAST_PATH.probeMs, FAST_PATH.minSpeechMs);
+            long ms = SystemClock.elapsedRealtime() - t0;
+            main.post(() -> {
+                if (listeningPaused || isSpeaking || FallSignals.isActive() || !triggered) return;
+                if (speaking) {
+                    Log.d(TAG, "Comando pegado a la wake word (sonda " + ms + "ms) → sin ACK");
+                    startInstructionService(Math.max(0L, wakePos - preRoll));
+                } else {
+                    acknowledgeAndListen();
+                }
+            });
+        }, "toto-wake-probe").start();
+    }
+
+    private void acknowledgeAndListen() {
         if (ttsReady && tts != null) {
             String template = ACK_TEMPLATES[rng.nextInt(ACK_TEMPLATES.length)];
             String text = String.format(Locale.getDefault(), template, userDataManager.getUserName());
@@ -739,6 +797,7 @@ public class WakeWordService extends Service implements RecognitionListener {
     private void pauseListening() {
         listeningPaused = true;
         stopListening();
+        if (wakeEngine != null) wakeEngine.release();
         updateForegroundNotification("Pausa: no estoy escuchando");
         Log.d(TAG, "Wake pausado por acción de usuario");
     }
@@ -0,0 +1,155 @@
+package com.example.toto_app.stt;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.toto_app.network.TranscriptionResponse;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+
+/**
+ * Sube PCM16 mono a medida que se captura, en un único POST con transfer-encoding chunked
+ * (audio/l16). El backend va decodificando mientras llega el audio y responde el mismo
+ * TranscriptionResponse que api/stt cuando se cierra el cuerpo con finish().
+ * write() nunca bloquea al hilo de captura: encola y el hilo de OkHttp escribe al socket.
+ */
+public final class StreamingSttSession {
+
+    private static final String TAG = "StreamingStt";
+    public static final String PATH = "api/stt/stream";
+    private static final MediaType L16 = MediaType.get("audio/l16; rate=16000; channels=1");
+    private static final byte[] EOS = new byte[0];
+
+    private final LinkedBlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final Call call;
+
+    private volatile boolean finished = false;
+    private volatile String transcript = null;
+    private volatile int httpCode = 0;
+    private volatile IOException error = null;
+    private volatile long finishedAt = 0L;
+    private volatile long bytes = 0;
+
+    /** url apunta al endpoint (p.ej. un servidor local de prueba); sampleRate es informativo para el backend. */
+    public StreamingSttSession(OkHttpClient client, HttpUrl url, String language) {
+        HttpUrl full = url.newBuilder()
+                .addQueryParameter("sampleRate", "16000")
+                .addQueryParameter("language", language)
+                .build();
+        Request req = new Request.Builder().url(full).post(new PcmBody()).build();
+        this.call = client.newCall(req);
+    }
+
+    public void start() {
+        call.enqueue(new Callback() {
+            @Override public void onFailure(Call c, IOException e) {
+                if (!c.isCanceled()) Log.w(TAG, "Streaming STT falló: " + e.getMessage());
+                error = e;
+                done.countDown();
+            }
+
+            @Override public void onResponse(Call c, Response resp) {
+                try (ResponseBody body = resp.body()) {
+                    httpCode = resp.code();
+                    if (resp.isSuccessful() && body != null) {
+                        TranscriptionResponse tr = new Gson().fromJson(body.charStream(), TranscriptionResponse.class);
+                        transcript = (tr != null && tr.text != null) ? tr.text.trim() : "";
+                    } else {
+                        Log.w(TAG, "Streaming STT HTTP " + resp.code());
+                    }
+                } catch (Exception e) {
+                    Log.w(TAG, "Respuesta de streaming STT inválida", e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+    }
+
+    /** Copia y encola; se puede llamar desde el hilo de captura. */
+    public void write(byte[] pcm, int off, int len) {
+        if (finished || len <= 0 || done.getCount() == 0) return;
+        byte[] copy = new byte[len];
+        System.arraycopy(pcm, off, copy, 0, len);
+        chunks.offer(copy);
+    }
+
+    /** Fin del audio: el backend cierra la decodificación y responde. */
+    public void finish() {
+        if (finished) return;
+        finished = true;
+        finishedAt = SystemClock.elapsedRealtime();
+        chunks.offer(EOS);
+    }
+
+    public void cancel() {
+        finished = true;
+        chunks.offer(EOS);
+        call.cancel();
+    }
+
+    /** Transcripción, o null si el stream falló o no llegó a tiempo (el llamador debe caer al upload normal). */
+    public String await(long timeoutMs) {
+        finish();
+        try {
+            if (!done.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Streaming STT sin respuesta en " + timeoutMs + "ms");
+                call.cancel();
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel();
+            return null;
+        }
+        if (transcript != null) {
+            Log.d(TAG, "Transcripción " + (SystemClock.elapsedRealtime() - finishedAt)
+                    + "ms después del fin de captura (" + bytes + " bytes)");
+        }
+        return transcript;
+    }
+
+    /** Código HTTP de la respuesta (0 si no hubo respuesta). */
+    public int httpCode() { return httpCode; }
+
+    public IOException error() { return error; }
+
+    private final class PcmBody extends RequestBody {
+        @Override public MediaType contentType() { return L16; }
+
+        @Override public long contentLength() { return -1; }
+
+        @Override public boolean isOneShot() { return true; }
+
+        @Override public void writeTo(BufferedSink sink) throws IOException {
+            try {
+                while (true) {
+                    byte[] c = chunks.take();
+                    if (c == EOS) break;
+                    sink.write(c);
+                    bytes += c.length;
+                    if (chunks.isEmpty()) sink.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Streaming STT interrumpido", e);
+            }
+        }
+    }
+}
@@ -1,82 +1,437 @@
 package com.example.toto_app.stt;
 
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.example.toto_app.audio.FlacEncoder;
+import com.example.toto_app.audio.UtteranceBuffer;
+import com.example.toto_app.audio.WavReader;
 import com.example.toto_app.network.APIService;
 import com.example.toto_app.network.RetrofitClient;
 import com.example.toto_app.network.TranscriptionResponse;
+import com.example.toto_app.util.LatencyStats;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
+import okio.BufferedSink;
 import retrofit2.Call;
 import retrofit2.Response;
 
 public final class SttClient {
     private SttClient(){}
 
-    public static String transcribe(File wav) {
-        String transcript = "";
-        boolean up = true;
+    private static final String TAG = "SttClient";
+
+    private static final long STREAM_RESULT_TIMEOUT_MS = 4000;
+    /** 0.25 s de PCM16 a 16 kHz por llamada a acceptWaveForm. */
+    private static final int VOSK_CHUNK_BYTES = 8000;
+    private static final MediaType WAV = MediaType.parse("audio/wav");
+    private static final MediaType FLAC = MediaType.parse("audio/flac");
+    static volatile boolean streamUnsupported = false;
+    private static volatile boolean flacUnsupported = false;
+
+    /**
+     * Carrera backend vs. Vosk local. Vosk es de menor calidad: su texto sólo se usa si el backend
+     * falló o se pasó de backendBudgetMs; mientras tanto un texto del backend siempre gana.
+     */
+    public static class HedgeConfig {
+        public boolean enabled = true;
+        /** Vosk arranca después de esta espera, o antes si el backend ya falló. */
+        public long voskDelayMs = 0;
+        /** Latencia hasta la que se espera al backend aunque Vosk ya tenga texto. */
+        public long backendBudgetMs = 2500;
+        /** Tope total; pasado esto se devuelve "" aunque alguno siga corriendo. */
+        public long timeoutMs = 12000;
+    }
+
+    public static final HedgeConfig HEDGE = new HedgeConfig();
+
+    public static class UploadConfig {
+        /** Subir FLAC (sin pérdida, ~2x menos bytes) con ?encoding=flac; si el backend lo rechaza se vuelve a WAV. */
+        public boolean flac = true;
+    }
+
+    public static final UploadConfig UPLOAD = new UploadConfig();
+
+    public enum Source { BACKEND, VOSK }
+
+    private static final LatencyStats BACKEND_MS = new LatencyStats("stt backend", 128);
+    private static final LatencyStats VOSK_MS = new LatencyStats("stt vosk", 128);
+    private static final AtomicLong BACKEND_WINS = new AtomicLong();
+    private static final AtomicLong VOSK_WINS = new AtomicLong();
+    private static final AtomicLong NO_RESULT = new AtomicLong();
+    private static final LatencyStats FLAC_ENCODE_MS = new LatencyStats("flac encode", 128);
+    private static final AtomicLong UPLOAD_RAW_BYTES = new AtomicLong();
+    private static final AtomicLong UPLOAD_FLAC_BYTES = new AtomicLong();
+
+    private static final ExecutorService POOL = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "toto-stt");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public static LatencyStats latency(Source s) { return s == Source.BACKEND ? BACKEND_MS : VOSK_MS; }
+
+    public static long wins(Source s) { return (s == Source.BACKEND ? BACKEND_WINS : VOSK_WINS).get(); }
+
+    public static String stats() {
+        long b = BACKEND_WINS.get(), v = VOSK_WINS.get(), n = NO_RESULT.get();
+        long total = Math.max(1, b + v + n);
+        return String.format(Locale.US, "gana backend %d (%.0f%%), vosk %d (%.0f%%), sin texto %d | %s | %s | flac x%.2f, %s",
+                b, 100.0 * b / total, v, 100.0 * v / total, n, BACKEND_MS.summary(), VOSK_MS.summary(),
+                compressionRatio(), FLAC_ENCODE_MS.summary());
+    }
+
+    /** Bytes de WAV / bytes de FLAC subidos, acumulado (0 si todavía no se subió FLAC). */
+    public static double compressionRatio() {
+        long flac = UPLOAD_FLAC_BYTES.get();
+        return flac > 0 ? UPLOAD_RAW_BYTES.get() / (double) flac : 0.0;
+    }
+
+    public static LatencyStats flacEncodeLatency() { return FLAC_ENCODE_MS; }
+
+    /**
+     * Abre un upload en streaming para ir mandando el audio mientras se graba.
+     * No consulta el health check (puede tardar y demoraría el inicio de la captura);
+     * si el backend no responde, transcribe() cae al camino normal.
+     * Devuelve null si el backend ya respondió que no tiene el endpoint.
+     */
+    public static StreamingSttSession openStream() {
+        if (streamUnsupported) return null;
         try {
-            try { up = com.example.toto_app.services.BackendHealthManager.get().isBackendUp(); }
-            catch (Throwable ignore) { up = true; }
-        } catch (Throwable ignored) { up = true; }
+            StreamingSttSession s = new StreamingSttSession(RetrofitClient.http(),
+                    RetrofitClient.baseUrl().resolve(StreamingSttSession.PATH), "es");
+            s.start();
+            return s;
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo abrir streaming STT", e);
+            return null;
+        }
+    }
 
-        if (up) {
+    public static String transcribe(File wav) {
+        return transcribe(wav, null);
+    }
+
+    public static String transcribe(File wav, StreamingSttSession stream) {
+        return transcribe(Audio.of(wav), stream);
+    }
+
+    /** Igual que con archivo, pero el upload y Vosk leen directo de la memoria de la captura. */
+    public static String transcribe(UtteranceBuffer utterance, StreamingSttSession stream) {
+        return transcribe(Audio.of(utterance), stream);
+    }
+
+    /** Backend (stream si hay, si no upload del WAV) en carrera con Vosk local, según HEDGE. */
+    private static String transcribe(Audio wav, StreamingSttSession stream) {
+        if (!HEDGE.enabled) return sequential(wav, stream);
+
+        long t0 = SystemClock.elapsedRealtime();
+        LinkedBlockingQueue<Object[]> results = new LinkedBlockingQueue<>();
+        CountDownLatch backendDone = new CountDownLatch(1);
+        AtomicReference<Call<?>> backendCall = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        POOL.execute(() -> {
+            String text = null;
             try {
-                APIService api = RetrofitClient.api();
-                RequestBody fileBody = RequestBody.create(wav, MediaType.parse("audio/wav"));
-                MultipartBody.Part audioPart = MultipartBody.Part.createFormData("audio", wav.getName(), fileBody);
-                Call<TranscriptionResponse> call = api.transcribe(audioPart, null, null);
-                Response<TranscriptionResponse> resp = call.execute();
-
-                if (resp.isSuccessful() && resp.body() != null) {
-                    transcript = resp.body().text != null ? resp.body().text.trim() : "";
-                    Log.d("SttClient", "INSTRUCCIÓN (backend STT): " + transcript);
-                    return transcript == null ? "" : transcript;
-                } else {
-                    Log.w("SttClient", "Transcribe error HTTP: " + (resp != null ? resp.code(): -1));
-                    try { com.example.toto_app.services.BackendHealthManager.get().markFailure(); } catch (Exception ignore) {}
+                text = backend(wav, stream, backendCall, cancelled);
+            } finally {
+                if (text != null && !text.isEmpty()) BACKEND_MS.record(SystemClock.elapsedRealtime() - t0);
+                results.offer(new Object[]{Source.BACKEND, text == null ? "" : text});
+                backendDone.countDown();
+            }
+        });
+        POOL.execute(() -> {
+            String text = null;
+            try {
+                backendDone.await(HEDGE.voskDelayMs, TimeUnit.MILLISECONDS);
+                if (!cancelled.get()) text = vosk(wav, cancelled);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (text != null && !text.isEmpty()) VOSK_MS.record(SystemClock.elapsedRealtime() - t0);
+                results.offer(new Object[]{Source.VOSK, text == null ? "" : text});
+            }
+        });
+
+        String winner = "";
+        Source from = null;
+        try {
+            long deadline = t0 + HEDGE.timeoutMs;
+            long budget = Math.min(t0 + HEDGE.backendBudgetMs, deadline);
+            String voskText = null;
+            boolean backendFailed = false;
+            for (int got = 0; got < 2; got++) {
+                long wait = (voskText != null ? budget : deadline) - SystemClock.elapsedRealtime();
+                Object[] r = wait > 0 ? results.poll(wait, TimeUnit.MILLISECONDS) : null;
+                if (r == null) break;
+                String text = (String) r[1];
+                if (r[0] == Source.BACKEND) {
+                    if (!text.isEmpty()) {
+                        winner = text;
+                        from = Source.BACKEND;
+                        break;
+                    }
+                    backendFailed = true;
+                } else if (!text.isEmpty()) {
+                    voskText = text;
                 }
-            } catch (Exception e) {
-                Log.w("SttClient", "Error llamando backend STT", e);
+                if (voskText != null && (backendFailed || SystemClock.elapsedRealtime() >= budget)) break;
+            }
+            if (from == null && voskText != null) {
+                winner = voskText;
+                from = Source.VOSK;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cancelled.set(true);
+            Call<?> c = backendCall.get();
+            if (c != null) c.cancel();
+            if (stream != null) stream.cancel();
+        }
+
+        if (from == Source.BACKEND) BACKEND_WINS.incrementAndGet();
+        else if (from == Source.VOSK) VOSK_WINS.incrementAndGet();
+        else NO_RESULT.incrementAndGet();
+        Log.d(TAG, "INSTRUCCIÓN (" + (from == null ? "sin resultado" : from.name().toLowerCase(Locale.ROOT))
+                + ", " + (SystemClock.elapsedRealtime() - t0) + "ms): " + winner);
+        Log.d(TAG, "STT: " + stats());
+        return winner;
+    }
+
+    /** Camino sin carrera: backend si está arriba, si no (o si falla) Vosk local. */
+    private static String sequential(Audio wav, StreamingSttSession stream) {
+        boolean up = true;
+        try { up = com.example.toto_app.services.BackendHealthManager.get().isBackendUp(); }
+        catch (Throwable ignore) { up = true; }
+
+        String text = up ? backend(wav, stream, new AtomicReference<>(), new AtomicBoolean(false)) : null;
+        if (text != null) return text;
+        if (stream != null) stream.cancel();
+        text = vosk(wav, new AtomicBoolean(false));
+        return text == null ? "" : text;
+    }
+
+    /** Transcripción del backend, o null si falló. */
+    private static String backend(Audio wav, StreamingSttSession stream,
+                                  AtomicReference<Call<?>> callRef, AtomicBoolean cancelled) {
+        if (stream != null) {
+            String text = awaitStream(stream, STREAM_RESULT_TIMEOUT_MS);
+            if (text != null) return text;
+        }
+        if (cancelled.get()) return null;
+
+        try {
+            APIService api = RetrofitClient.api();
+            MultipartBody.Part audioPart = UPLOAD.flac && !flacUnsupported ? flacPart(wav) : null;
+            boolean flac = audioPart != null;
+            if (!flac) audioPart = MultipartBody.Part.createFormData("audio", wav.name(), wav.body());
+            Call<TranscriptionResponse> call = flac
+                    ? api.transcribe(audioPart, null, null, "flac")
+                    : api.transcribe(audioPart, null, null);
+            callRef.set(call);
+            if (cancelled.get()) return null;
+            Response<TranscriptionResponse> resp = call.execute();
+
+            if (flac && !resp.isSuccessful() && rejectsFlac(resp.code(), errorText(resp))) {
+                Log.w(TAG, "Backend no acepta FLAC (HTTP " + resp.code() + "); uso WAV de acá en más");
+                flacUnsupported = true;
+                return backend(wav, null, callRef, cancelled);
+            }
+
+            if (resp.isSuccessful() && resp.body() != null) {
+                String transcript = resp.body().text != null ? resp.body().text.trim() : "";
+                Log.d(TAG, "INSTRUCCIÓN (backend STT): " + transcript);
+                return transcript;
+            } else {
+                Log.w(TAG, "Transcribe error HTTP: " + (resp != null ? resp.code(): -1));
                 try { com.example.toto_app.services.BackendHealthManager.get().markFailure(); } catch (Exception ignore) {}
             }
+        } catch (Exception e) {
+            if (cancelled.get()) return null;
+            Log.w(TAG, "Error llamando backend STT", e);
+            try { com.example.toto_app.services.BackendHealthManager.get().markFailure(); } catch (Exception ignore) {}
         }
+        return null;
+    }
 
+    /**
+     * Resultado del stream, o null si hay que caer al upload completo. Si el backend no tiene el
+     * endpoint (404/405) no se vuelve a abrir streaming en este proceso.
+     */
+    static String awaitStream(StreamingSttSession stream, long timeoutMs) {
+        String text = stream.await(timeoutMs);
+        if (text != null) {
+            Log.d(TAG, "INSTRUCCIÓN (backend STT streaming): " + text);
+            return text;
+        }
+        if (stream.httpCode() == 404 || stream.httpCode() == 405) {
+            Log.w(TAG, "Backend sin streaming STT; uso upload completo de acá en más");
+            streamUnsupported = true;
+        }
+        return null;
+    }
+
+    /**
+     * 415, o un 400 que dice que el encoding no está soportado. Cualquier otro 400 (audio vacío,
+     * parámetro mal) es de esta llamada y no apaga FLAC para todo el proceso.
+     */
+    static boolean rejectsFlac(int code, String errorBody) {
+        if (code == 415) return true;
+        if (code != 400 || errorBody == null) return false;
+        String b = errorBody.toLowerCase(Locale.ROOT);
+        return (b.contains("flac") || b.contains("encoding"))
+                && (b.contains("unsupported") || b.contains("not supported") || b.contains("soportad"));
+    }
+
+    private static String errorText(Response<?> resp) {
+        if (resp.code() != 400 || resp.errorBody() == null) return null;
         try {
-            org.vosk.Model model = com.example.toto_app.services.WakeWordServiceModelHolder.getModel();
-            if (model != null) {
-                org.vosk.Recognizer rec = new org.vosk.Recognizer(model, 16000.0f);
-                java.io.FileInputStream fis = null;
+            return resp.errorBody().string();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Parte multipart con el audio en FLAC, o null si no se pudo codificar (se sube WAV). */
+    private static MultipartBody.Part flacPart(Audio wav) {
+        try {
+            long t0 = SystemClock.elapsedRealtime();
+            byte[] flac;
+            try (InputStream in = wav.open()) {
+                flac = FlacEncoder.encodeWav(in);
+            }
+            long ms = SystemClock.elapsedRealtime() - t0;
+            long raw = wav.length();
+            FLAC_ENCODE_MS.record(ms);
+            UPLOAD_RAW_BYTES.addAndGet(raw);
+            UPLOAD_FLAC_BYTES.addAndGet(flac.length);
+            Log.d(TAG, String.format(Locale.US, "FLAC: %d → %d bytes (x%.2f) en %dms",
+                    raw, flac.length, raw / (double) Math.max(1, flac.length), ms));
+            String name = wav.name().replaceFirst("\\.wav$", "") + ".flac";
+            return MultipartBody.Part.createFormData("audio", name, RequestBody.create(flac, FLAC));
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo codificar FLAC; subo WAV", e);
+            return null;
+        }
+    }
+
+    /** Transcripción local con Vosk, o null si no hay modelo o falló. */
+    private static String vosk(Audio wav, AtomicBoolean cancelled) {
+        try (InputStream in = wav.open()) {
+            return vosk(in, cancelled);
+        } catch (IOException e) {
+            Log.e(TAG, "Vosk local STT failed", e);
+            return null;
+        }
+    }
+
+    /** Origen del WAV: archivo en disco o captura en memoria. */
+    private interface Audio {
+        String name();
+        long length();
+        RequestBody body();
+        InputStream open() throws IOException;
+
+        static Audio of(File f) {
+            return new Audio() {
+                @Override public String name() { return f.getName(); }
+                @Override public long length() { return f.length(); }
+                @Override public RequestBody body() { return RequestBody.create(f, WAV); }
+                @Override public InputStream open() throws IOException {
+                    return new BufferedInputStream(new FileInputStream(f), VOSK_CHUNK_BYTES * 2);
+                }
+            };
+        }
+
+        static Audio of(UtteranceBuffer u) {
+            return new Audio() {
+                @Override public String name() { return "instruction.wav"; }
+                @Override public long length() { return u.wavBytes(); }
+                @Override public RequestBody body() {
+                    return new RequestBody() {
+                        @Override public MediaType contentType() { return WAV; }
+                        @Override public long contentLength() { return u.wavBytes(); }
+                        @Override public void writeTo(BufferedSink sink) throws IOException {
+                            ByteBuffer v = u.wav();
+                            while (v.hasRemaining()) sink.write(v);
+                        }
+                    };
+                }
+                @Override public InputStream open() { return u.openWav(); }
+            };
+        }
+    }
+
+    /**
+     * Lee el header WAV del stream y alimenta al recognizer de a VOSK_CHUNK_BYTES, así la
+     * decodificación avanza mientras se lee y se puede cortar entre chunks si se cancela.
+     */
+    static String vosk(InputStream wav, AtomicBoolean cancelled) {
+        try {
+            WavReader.Header h = WavReader.readHeader(wav);
+            if (!h.isPcm() || h.bitsPerSample != 16 || h.channels != 1) {
+                Log.w(TAG, "Vosk local: formato no soportado (fmt=" + h.audioFormat
+                        + " bits=" + h.bitsPerSample + " ch=" + h.channels + ")");
+                return null;
+            }
+            try (VoskRecognizerPool.Lease lease = VoskRecognizerPool.get().acquire(null, h.sampleRate)) {
+                if (lease == null) return null;
                 try {
-                    fis = new java.io.FileInputStream(wav);
-                    long skip = fis.skip(44);
-                    int avail = (int) Math.max(0, wav.length() - 44);
-                    byte[] raw = new byte[avail];
-                    int offset = 0; int read;
-                    while (offset < avail && (read = fis.read(raw, offset, avail - offset)) > 0) offset += read;
-                    if (offset > 0) rec.acceptWaveForm(raw, offset);
+                    org.vosk.Recognizer rec = lease.recognizer();
+                    byte[] buf = new byte[VOSK_CHUNK_BYTES];
+                    long left = h.dataSize > 0 ? h.dataSize : Long.MAX_VALUE;
+                    int carry = 0;
+                    while (left > 0) {
+                        if (cancelled.get()) return null;
+                        int r = wav.read(buf, carry, (int) Math.min(buf.length - carry, left));
+                        if (r < 0) break;
+                        left -= r;
+                        int n = carry + r;
+                        int even = n & ~1;
+                        if (even > 0) rec.acceptWaveForm(buf, even);
+                        carry = n - even;
+                        if (carry > 0) buf[0] = buf[even];
+                    }
                     String res = rec.getFinalResult();
-                    if (res != null) {
-                        try {
-                            org.json.JSONObject jo = new org.json.JSONObject(res);
-                            transcript = jo.optString("text", "");
-                        } catch (Exception jex) {
-                            transcript = res;
-                        }
-                        Log.d("SttClient", "INSTRUCCIÓN (vosk local): " + transcript);
-                        return transcript == null ? "" : transcript;
+                    if (res == null) return null;
+                    String transcript;
+                    try {
+                        org.json.JSONObject jo = new org.json.JSONObject(res);
+                        transcript = jo.optString("text", "");
+                    } catch (Exception jex) {
+                        transcript = res;
                     }
-                } finally { if (fis != null) try { fis.close(); } catch (Exception ignore) {} }
+                    Log.d(TAG, "INSTRUCCIÓN (vosk local): " + transcript + " [" + VoskRecognizerPool.get().stats() + "]");
+                    return transcript == null ? "" : transcript;
+                } catch (Exception e) {
+                    // El recognizer puede haber quedado a mitad de decodificación: no vuelve al pool.
+                    lease.discard();
+                    throw e;
+                }
             }
         } catch (Exception e) {
-            Log.e("SttClient", "Vosk local STT failed", e);
+            Log.e(TAG, "Vosk local STT failed", e);
         }
-
-        return transcript == null ? "" : transcript;
-     }
- }
+        return null;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.toto_app.stt;
+
+import android.util.Log;
+
+import com.example.toto_app.audio.Endpointer;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Pasa la instrucción por un Recognizer de Vosk (del pool) mientras se graba y le informa al
+ * {@link Endpointer} el texto parcial. Corre en su propio hilo: write() sólo copia y encola, así
+ * la captura nunca espera al decoder.
+ */
+public final class VoskPartialTracker {
+
+    private static final String TAG = "VoskPartials";
+    private static final byte[] EOS = new byte[0];
+
+    /** Recibe el texto cada vez que cambia (en el hilo del reconocedor). */
+    public interface TextListener {
+        void onText(String text);
+    }
+
+    private final LinkedBlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+    private final Endpointer endpointer;
+    private final TextListener textListener;
+    private final int sampleRate;
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    /** null si no hay modelo de Vosk cargado (el endpointer sigue sólo con el VAD). */
+    public static VoskPartialTracker start(Endpointer endpointer, int sampleRate) {
+        return start(endpointer, sampleRate, null);
+    }
+
+    public static VoskPartialTracker start(Endpointer endpointer, int sampleRate, TextListener textListener) {
+        try {
+            VoskRecognizerPool.Lease lease = VoskRecognizerPool.get().acquire(null, sampleRate);
+            if (lease == null) return null;
+            return new VoskPartialTracker(endpointer, sampleRate, textListener, lease);
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo abrir el recognizer para parciales", e);
+            return null;
+        }
+    }
+
+    private VoskPartialTracker(Endpointer endpointer, int sampleRate, TextListener textListener,
+                               VoskRecognizerPool.Lease lease) {
+        this.endpointer = endpointer;
+        this.textListener = textListener;
+        this.sampleRate = sampleRate;
+        this.thread = new Thread(() -> run(lease), "toto-vosk-partials");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** PCM16 LE mono, tal como llega en InstructionCapture.Listener.onAudio. */
+    public void write(byte[] pcm, int len) {
+        if (closed || len <= 0) return;
+        byte[] copy = new byte[len];
+        System.arraycopy(pcm, 0, copy, 0, len);
+        chunks.offer(copy);
+    }
+
+    public void close() {
+        closed = true;
+        chunks.clear();
+        chunks.offer(EOS);
+    }
+
+    private void run(VoskRecognizerPool.Lease lease) {
+        boolean ok = false;
+        StringBuilder finals = new StringBuilder();
+        long decoded = 0;
+        String last = "";
+        try {
+            org.vosk.Recognizer rec = lease.recognizer();
+            while (true) {
+                byte[] c = chunks.take();
+                if (c == EOS) break;
+                String current;
+                if (rec.acceptWaveForm(c, c.length)) {
+                    String seg = field(rec.getResult(), "text");
+                    if (!seg.isEmpty()) finals.append(finals.length() > 0 ? " " : "").append(seg);
+                    current = "";
+                } else {
+                    current = field(rec.getPartialResult(), "partial");
+                }
+                decoded += c.length / 2;
+                String text = current.isEmpty() ? finals.toString()
+                        : finals.length() > 0 ? finals + " " + current : current;
+                endpointer.onPartial(text, decoded);
+                if (textListener != null && !text.equals(last)) {
+                    last = text;
+                    textListener.onText(text);
+                }
+            }
+            ok = true;
+        } catch (InterruptedException ignore) {
+            ok = true;
+        } catch (Exception e) {
+            Log.w(TAG, "Parciales de Vosk fallaron", e);
+        } finally {
+            if (ok) lease.close(); else lease.discard();
+            Log.d(TAG, "Parciales: " + (decoded * 1000L / Math.max(1, sampleRate)) + "ms decodificados");
+        }
+    }
+
+    private static String field(String json, String key) {
+        if (json == null) return "";
+        try {
+            return new JSONObject(json).optString(key, "").trim();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.toto_app.stt;
+
+import android.util.Log;
+
+import com.example.toto_app.services.WakeWordServiceModelHolder;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Recognizers de Vosk reutilizables, por (gramática, sample rate), sobre el modelo de
+ * {@link WakeWordServiceModelHolder}. Cada préstamo se devuelve con reset(); los que sobran
+ * se cierran en el momento (memoria nativa liberada sin esperar al GC).
+ * El pool es dueño del cierre del Model: retire() lo cierra recién cuando vuelve el último préstamo.
+ */
+public final class VoskRecognizerPool {
+
+    private static final String TAG = "VoskPool";
+    private static final int MAX_IDLE_PER_KEY = 2;
+
+    private static VoskRecognizerPool instance;
+
+    public static synchronized VoskRecognizerPool get() {
+        if (instance == null) instance = new VoskRecognizerPool();
+        return instance;
+    }
+
+    private final Map<String, ArrayDeque<Recognizer>> idle = new HashMap<>();
+    /** Préstamos sin devolver por modelo; los retirados se cierran cuando llegan a 0. */
+    private final Map<Model, Integer> outstanding = new IdentityHashMap<>();
+    private final Map<Model, Boolean> retired = new IdentityHashMap<>();
+    private Model model;
+    private long created = 0;
+    private long reused = 0;
+    private long closed = 0;
+
+    private VoskRecognizerPool() {}
+
+    /** null si todavía no hay modelo cargado. grammar null = vocabulario completo. */
+    public Lease acquire(String grammar, float sampleRate) throws IOException {
+        Model current = WakeWordServiceModelHolder.getModel();
+        if (current == null) return null;
+        String key = key(grammar, sampleRate);
+        synchronized (this) {
+            if (retired.containsKey(current)) return null;
+            if (current != model) {
+                closeIdle();
+                model = current;
+            }
+            outstanding.merge(current, 1, Integer::sum);
+            ArrayDeque<Recognizer> q = idle.get(key);
+            Recognizer r = q != null ? q.pollFirst() : null;
+            if (r != null) {
+                reused++;
+                return new Lease(key, current, r);
+            }
+            created++;
+        }
+        try {
+            Recognizer r = grammar == null
+                    ? new Recognizer(current, sampleRate)
+                    : new Recognizer(current, sampleRate, grammar);
+            return new Lease(key, current, r);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) { returned(current); }
+            throw e;
+        }
+    }
+
+    private synchronized void release(Lease l, boolean reusable) {
+        try {
+            if (reusable && l.model == model) {
+                try {
+                    l.recognizer.reset();
+                    ArrayDeque<Recognizer> q = idle.get(l.key);
+                    if (q == null) idle.put(l.key, q = new ArrayDeque<>());
+                    if (q.size() < MAX_IDLE_PER_KEY) {
+                        q.addFirst(l.recognizer);
+                        return;
+                    }
+                } catch (Exception e) {
+                    Log.w(TAG, "reset() falló; descarto el recognizer", e);
+                }
+            }
+            closeQuietly(l.recognizer);
+        } finally {
+            returned(l.model);
+        }
+    }
+
+    private void returned(Model m) {
+        Integer n = outstanding.get(m);
+        if (n == null || n <= 1) {
+            outstanding.remove(m);
+            if (retired.remove(m) != null) closeModel(m);
+        } else {
+            outstanding.put(m, n - 1);
+        }
+    }
+
+    /**
+     * El servicio deja de usar el Model: se cierran los ociosos y el Model se cierra ahora si no hay
+     * préstamos en curso, o cuando vuelva el último (un decode en vuelo sigue sobre memoria válida).
+     * Sacarlo antes de WakeWordServiceModelHolder para que nadie pida préstamos nuevos.
+     */
+    public synchronized void retire(Model m) {
+        if (m == null) return;
+        if (m == model) {
+            closeIdle();
+            model = null;
+        }
+        if (outstanding.containsKey(m)) {
+            retired.put(m, Boolean.TRUE);
+            Log.d(TAG, "Model retirado con " + outstanding.get(m) + " préstamo(s) en curso; se cierra al devolverlos");
+        } else {
+            closeModel(m);
+        }
+    }
+
+    private static void closeModel(Model m) {
+        try { m.close(); } catch (Exception ignore) {}
+    }
+
+    private void closeIdle() {
+        for (ArrayDeque<Recognizer> q : idle.values()) {
+            for (Recognizer r : q) closeQuietly(r);
+        }
+        idle.clear();
+    }
+
+    private void closeQuietly(Recognizer r) {
+        closed++;
+        try { r.close(); } catch (Exception ignore) {}
+    }
+
+    public synchronized String stats() {
+        return "creados=" + created + " reusados=" + reused + " cerrados=" + closed;
+    }
+
+    private static String key(String grammar, float sampleRate) {
+        return Math.round(sampleRate) + "|" + (grammar == null ? "" : grammar);
+    }
+
+    public final class Lease implements AutoCloseable {
+        private final String key;
+        private final Model model;
+        private final Recognizer recognizer;
+        private boolean done = false;
+
+        private Lease(String key, Model model, Recognizer recognizer) {
+            this.key = key;
+            this.model = model;
+            this.recognizer = recognizer;
+        }
+
+        public Recognizer recognizer() { return recognizer; }
+
+        /** El recognizer quedó en un estado dudoso (error nativo): se cierra en vez de volver al pool. */
+        public void discard() {
+            if (done) return;
+            done = true;
+            release(this, false);
+        }
+
+        @Override public void close() {
+            if (done) return;
+            done = true;
+            release(this, true);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.toto_app.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/** Últimas N latencias (ms) con percentiles; memoria fija. */
+public final class LatencyStats {
+
+    private final String name;
+    private final long[] samples;
+    private int next = 0;
+    private int size = 0;
+    private long count = 0;
+    private long sum = 0;
+
+    public LatencyStats(String name, int capacity) {
+        this.name = name;
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    public synchronized void record(long ms) {
+        samples[next] = ms;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+        count++;
+        sum += ms;
+    }
+
+    public synchronized long count() { return count; }
+
+    public synchronized double mean() { return count == 0 ? 0 : (double) sum / count; }
+
+    public synchronized long percentile(double p) {
+        if (size == 0) return 0;
+        long[] copy = Arrays.copyOf(samples, size);
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(p / 100.0 * size) - 1;
+        return copy[Math.max(0, Math.min(size - 1, idx))];
+    }
+
+    public synchronized void reset() {
+        next = 0; size = 0; count = 0; sum = 0;
+    }
+
+    public String name() { return name; }
+
+    public String summary() {
+        return String.format(Locale.US, "%s n=%d p50=%dms p90=%dms p99=%dms",
+                name, count(), percentile(50), percentile(90), percentile(99));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.toto_app.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Caché LRU acotada con vencimiento por entrada. Cuenta aciertos, fallos, desalojos por tamaño y
+ * vencidas. Opcionalmente se guarda en SharedPreferences (JSON con Gson) para sobrevivir reinicios.
+ * Por eso los vencimientos son de reloj de pared.
+ */
+public final class TtlLruCache<V> {
+
+    private static final String TAG = "TtlLruCache";
+    private static final String KEY_ENTRIES = "entries";
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final String name;
+    private final int capacity;
+    private final LinkedHashMap<String, Entry<V>> map;
+    private long hits = 0, misses = 0, evictions = 0, expirations = 0;
+
+    private SharedPreferences prefs;
+    private Class<V> type;
+    private final Gson gson = new Gson();
+
+    public TtlLruCache(String name, int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity tiene que ser > 0");
+        this.name = name;
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() <= TtlLruCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /** Activa el nivel persistente y carga lo que no venció. Llamar una sola vez (las siguientes no hacen nada). */
+    public synchronized void persistTo(Context ctx, String prefsName, Class<V> type) {
+        if (prefs != null) return;
+        this.prefs = ctx.getApplicationContext().getSharedPreferences(prefsName, Context.MODE_PRIVATE);
+        this.type = type;
+        String raw = prefs.getString(KEY_ENTRIES, null);
+        if (raw == null) return;
+        long now = System.currentTimeMillis();
+        try {
+            JsonArray arr = JsonParser.parseString(raw).getAsJsonArray();
+            for (JsonElement el : arr) {
+                JsonObject o = el.getAsJsonObject();
+                long exp = o.get("e").getAsLong();
+                if (exp <= now) continue;
+                map.put(o.get("k").getAsString(), new Entry<>(gson.fromJson(o.get("v"), type), exp));
+            }
+            Log.d(TAG, name + ": " + map.size() + " entradas cargadas");
+        } catch (Exception e) {
+            Log.w(TAG, name + ": caché persistida ilegible, se descarta", e);
+            prefs.edit().remove(KEY_ENTRIES).apply();
+        }
+    }
+
+    /** null si no está o venció. */
+    public synchronized V get(String key) {
+        Entry<V> e = key == null ? null : map.get(key);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        if (e.expiresAt <= System.currentTimeMillis()) {
+            map.remove(key);
+            expirations++;
+            misses++;
+            save();
+            return null;
+        }
+        hits++;
+        return e.value;
+    }
+
+    /** ttlMs <= 0 = no se guarda. */
+    public synchronized void put(String key, V value, long ttlMs) {
+        if (key == null || value == null || ttlMs <= 0) return;
+        purgeExpired();
+        map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMs));
+        save();
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        save();
+    }
+
+    public synchronized int size() { return map.size(); }
+
+    public synchronized long hits() { return hits; }
+
+    public synchronized long misses() { return misses; }
+
+    public synchronized long evictions() { return evictions; }
+
+    public synchronized double hitRate() {
+        long n = hits + misses;
+        return n == 0 ? 0.0 : hits / (double) n;
+    }
+
+    public synchronized String summary() {
+        return String.format(Locale.US, "%s: %d/%d, aciertos=%d fallos=%d (%.0f%%), desalojos=%d vencidas=%d",
+                name, map.size(), capacity, hits, misses, hitRate() * 100, evictions, expirations);
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry<V>> it = map.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+                expirations++;
+            }
+        }
+    }
+
+    private void save() {
+        if (prefs == null) return;
+        JsonArray arr = new JsonArray();
+        for (Map.Entry<String, Entry<V>> me : map.entrySet()) {
+            JsonObject o = new JsonObject();
+            o.addProperty("k", me.getKey());
+            o.addProperty("e", me.getValue().expiresAt);
+            o.add("v", gson.toJsonTree(me.getValue().value, type));
+            arr.add(o);
+        }
+        prefs.edit().putString(KEY_ENTRIES, arr.toString()).apply();
+    }
+}
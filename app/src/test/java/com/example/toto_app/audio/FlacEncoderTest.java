@@ -0,0 +1,298 @@
+package com.example.toto_app.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * {@link FlacEncoder} leído con un decoder mínimo escrito acá (CONSTANT/VERBATIM/FIXED, Rice
+ * particionado): STREAMINFO, sync y CRC-8/CRC-16 de cada frame, y round-trip exacto de las muestras.
+ */
+public class FlacEncoderTest {
+
+    private static final int SR = 16000;
+
+    @Test
+    public void crcsMatchPublishedCheckValues() {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0xF4, crc8(check, 0, check.length));
+        assertEquals(0xFEE8, crc16(check, 0, check.length));
+    }
+
+    @Test
+    public void streamInfoDescribesTheStream() {
+        int[] x = noise(10000, 1);
+        Decoded d = decode(encode(x));
+        assertEquals(FlacEncoder.BLOCK_SIZE, d.minBlock);
+        assertEquals(FlacEncoder.BLOCK_SIZE, d.maxBlock);
+        assertEquals(SR, d.sampleRate);
+        assertEquals(1, d.channels);
+        assertEquals(16, d.bitsPerSample);
+        assertEquals(x.length, d.totalSamples);
+        assertEquals(3, d.frames);
+    }
+
+    @Test
+    public void constantRoundTrips() {
+        int[] x = new int[FlacEncoder.BLOCK_SIZE + 100];
+        Arrays.fill(x, -1234);
+        assertArrayEquals(x, decode(encode(x)).samples);
+    }
+
+    @Test
+    public void shortInputRoundTrips() {
+        for (int n = 1; n < 16; n++) {
+            int[] x = noise(n, n);
+            Decoded d = decode(encode(x));
+            assertEquals(16, d.minBlock);
+            assertEquals(n, d.totalSamples);
+            assertArrayEquals("n=" + n, x, d.samples);
+        }
+    }
+
+    @Test
+    public void oddLengthRoundTrips() {
+        int[] x = new int[2 * FlacEncoder.BLOCK_SIZE + 777];
+        for (int i = 0; i < x.length; i++) x[i] = (int) (8000 * Math.sin(i * 0.03)) + (i % 7);
+        Decoded d = decode(encode(x));
+        assertEquals(3, d.frames);
+        assertArrayEquals(x, d.samples);
+    }
+
+    @Test
+    public void fullScaleNoiseRoundTrips() {
+        int[] x = noise(FlacEncoder.BLOCK_SIZE * 2 + 1, 42);
+        x[0] = Short.MIN_VALUE;
+        x[1] = Short.MAX_VALUE;
+        assertArrayEquals(x, decode(encode(x)).samples);
+    }
+
+    @Test
+    public void speechLikeSignalUsesPredictionAndShrinks() {
+        int[] x = new int[SR];
+        Random rnd = new Random(7);
+        for (int i = 0; i < x.length; i++) x[i] = (int) (6000 * Math.sin(i * 0.05) + 3000 * Math.sin(i * 0.011)) + rnd.nextInt(16) - 8;
+        byte[] flac = encode(x);
+        Decoded d = decode(flac);
+        assertArrayEquals(x, d.samples);
+        assertTrue("predictor fijo esperado", d.fixedSubframes > 0);
+        assertTrue("FLAC de " + flac.length + " bytes", flac.length < x.length * 2 / 2);
+    }
+
+    @Test
+    public void encodeWavMatchesSamples() throws Exception {
+        int[] x = noise(5001, 3);
+        ByteArrayOutputStream wav = new ByteArrayOutputStream();
+        le(wav, 0x46464952, 4); le(wav, 36 + x.length * 2, 4); le(wav, 0x45564157, 4);
+        le(wav, 0x20746d66, 4); le(wav, 16, 4); le(wav, 1, 2); le(wav, 1, 2);
+        le(wav, SR, 4); le(wav, SR * 2, 4); le(wav, 2, 2); le(wav, 16, 2);
+        le(wav, 0x61746164, 4); le(wav, x.length * 2, 4);
+        for (int v : x) le(wav, v, 2);
+
+        Decoded d = decode(FlacEncoder.encodeWav(new ByteArrayInputStream(wav.toByteArray())));
+        assertEquals(x.length, d.totalSamples);
+        assertArrayEquals(x, d.samples);
+    }
+
+    private static byte[] encode(int[] x) {
+        FlacEncoder enc = new FlacEncoder(SR, x.length);
+        int[] block = new int[FlacEncoder.BLOCK_SIZE];
+        for (int off = 0; off < x.length; off += FlacEncoder.BLOCK_SIZE) {
+            int n = Math.min(FlacEncoder.BLOCK_SIZE, x.length - off);
+            System.arraycopy(x, off, block, 0, n);
+            enc.writeBlock(block, n);
+        }
+        assertEquals(x.length, enc.samples());
+        return enc.toByteArray();
+    }
+
+    private static int[] noise(int n, long seed) {
+        Random rnd = new Random(seed);
+        int[] x = new int[n];
+        for (int i = 0; i < n; i++) x[i] = rnd.nextInt(65536) - 32768;
+        return x;
+    }
+
+    private static void le(ByteArrayOutputStream o, int v, int bytes) {
+        for (int i = 0; i < bytes; i++) o.write(v >>> (8 * i));
+    }
+
+    // --- decoder mínimo ---
+
+    private static final class Decoded {
+        int minBlock, maxBlock, sampleRate, channels, bitsPerSample, frames, fixedSubframes;
+        long totalSamples;
+        int[] samples;
+    }
+
+    private static Decoded decode(byte[] b) {
+        Bits in = new Bits(b);
+        assertEquals("fLaC", new String(b, 0, 4, StandardCharsets.US_ASCII));
+        in.pos = 32;
+        assertEquals("STREAMINFO debe ser el último bloque", 1, in.read(1));
+        assertEquals(0, in.read(7));
+        assertEquals(34, in.read(24));
+        Decoded d = new Decoded();
+        d.minBlock = (int) in.read(16);
+        d.maxBlock = (int) in.read(16);
+        assertEquals(0, in.read(24));
+        assertEquals(0, in.read(24));
+        d.sampleRate = (int) in.read(20);
+        d.channels = (int) in.read(3) + 1;
+        d.bitsPerSample = (int) in.read(5) + 1;
+        d.totalSamples = in.read(36);
+        for (int i = 0; i < 16; i++) assertEquals("MD5 sin calcular", 0, in.read(8));
+
+        int[] out = new int[(int) d.totalSamples];
+        int got = 0;
+        while (in.pos < b.length * 8L) {
+            int frameStart = (int) (in.pos >>> 3);
+            assertEquals("sync", 0x3FFE, in.read(14));
+            assertEquals(0, in.read(1));
+            assertEquals("tamaño de bloque fijo", 0, in.read(1));
+            int bsCode = (int) in.read(4);
+            int srCode = (int) in.read(4);
+            assertEquals("mono", 0, in.read(4));
+            assertEquals("16 bits", 4, in.read(3));
+            assertEquals(0, in.read(1));
+            assertEquals("número de frame", d.frames, in.utf8());
+            int n;
+            if (bsCode == 12) n = 4096;
+            else if (bsCode == 7) n = (int) in.read(16) + 1;
+            else if (bsCode == 6) n = (int) in.read(8) + 1;
+            else { fail("código de bloque inesperado " + bsCode); return null; }
+            if (srCode == 5) assertEquals(16000, d.sampleRate);
+            int crc8 = crc8(b, frameStart, (int) (in.pos >>> 3));
+            assertEquals("CRC-8 del header", crc8, in.read(8));
+
+            int[] x = new int[n];
+            subframe(in, x, n, d);
+            in.align();
+            int crc16 = crc16(b, frameStart, (int) (in.pos >>> 3));
+            assertEquals("CRC-16 del frame", crc16, in.read(16));
+
+            assertTrue("más muestras que las declaradas", got + n <= out.length);
+            System.arraycopy(x, 0, out, got, n);
+            got += n;
+            d.frames++;
+        }
+        assertEquals(d.totalSamples, got);
+        d.samples = out;
+        return d;
+    }
+
+    private static void subframe(Bits in, int[] x, int n, Decoded d) {
+        assertEquals(0, in.read(1));
+        int type = (int) in.read(6);
+        assertEquals("sin wasted bits", 0, in.read(1));
+        if (type == 0) {
+            Arrays.fill(x, 0, n, in.signed(16));
+        } else if (type == 1) {
+            for (int i = 0; i < n; i++) x[i] = in.signed(16);
+        } else if ((type & 0x38) == 8 && (type & 7) <= 4) {
+            int order = type & 7;
+            for (int i = 0; i < order; i++) x[i] = in.signed(16);
+            residual(in, x, n, order);
+            for (int i = order; i < n; i++) {
+                switch (order) {
+                    case 0: break;
+                    case 1: x[i] += x[i - 1]; break;
+                    case 2: x[i] += 2 * x[i - 1] - x[i - 2]; break;
+                    case 3: x[i] += 3 * x[i - 1] - 3 * x[i - 2] + x[i - 3]; break;
+                    default: x[i] += 4 * x[i - 1] - 6 * x[i - 2] + 4 * x[i - 3] - x[i - 4]; break;
+                }
+            }
+            d.fixedSubframes++;
+        } else {
+            fail("subframe inesperado " + type);
+        }
+    }
+
+    private static void residual(Bits in, int[] x, int n, int order) {
+        int method = (int) in.read(2);
+        assertTrue(method <= 1);
+        int paramBits = method == 0 ? 4 : 5;
+        int po = (int) in.read(4);
+        int parts = 1 << po;
+        assertEquals("partición exacta", 0, n & (parts - 1));
+        int i = order;
+        for (int p = 0; p < parts; p++) {
+            int k = (int) in.read(paramBits);
+            int end = (p + 1) * (n >> po);
+            if (k == (1 << paramBits) - 1) {
+                int raw = (int) in.read(5);
+                for (; i < end; i++) x[i] = raw == 0 ? 0 : in.signed(raw);
+            } else {
+                for (; i < end; i++) {
+                    long q = 0;
+                    while (in.read(1) == 0) q++;
+                    long u = (q << k) | in.read(k);
+                    x[i] = (int) ((u >>> 1) ^ -(u & 1));
+                }
+            }
+        }
+    }
+
+    private static final class Bits {
+        final byte[] b;
+        long pos;
+
+        Bits(byte[] b) { this.b = b; }
+
+        long read(int n) {
+            long v = 0;
+            for (int i = 0; i < n; i++, pos++) {
+                if ((pos >>> 3) >= b.length) fail("stream truncado");
+                v = (v << 1) | ((b[(int) (pos >>> 3)] >>> (7 - (pos & 7))) & 1);
+            }
+            return v;
+        }
+
+        int signed(int n) {
+            long v = read(n);
+            return (int) (v << (64 - n) >> (64 - n));
+        }
+
+        long utf8() {
+            int lead = (int) read(8);
+            if (lead < 0x80) return lead;
+            int extra = Integer.numberOfLeadingZeros(~lead << 24) - 1;
+            long v = lead & (0x3F >> extra);
+            for (int i = 0; i < extra; i++) {
+                int c = (int) read(8);
+                assertEquals(0x80, c & 0xC0);
+                v = (v << 6) | (c & 0x3F);
+            }
+            return v;
+        }
+
+        void align() { pos = (pos + 7) & ~7L; }
+    }
+
+    private static int crc8(byte[] b, int from, int to) {
+        int c = 0;
+        for (int i = from; i < to; i++) {
+            c ^= b[i] & 0xFF;
+            for (int j = 0; j < 8; j++) c = ((c << 1) ^ ((c & 0x80) != 0 ? 0x07 : 0)) & 0xFF;
+        }
+        return c;
+    }
+
+    private static int crc16(byte[] b, int from, int to) {
+        int c = 0;
+        for (int i = from; i < to; i++) {
+            c ^= (b[i] & 0xFF) << 8;
+            for (int j = 0; j < 8; j++) c = ((c << 1) ^ ((c & 0x8000) != 0 ? 0x8005 : 0)) & 0xFFFF;
+        }
+        return c;
+    }
+}
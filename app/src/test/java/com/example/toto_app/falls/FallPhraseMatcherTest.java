@@ -0,0 +1,146 @@
+package com.example.toto_app.falls;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link FallPhraseMatcher} (vía FallLogic) contra la clasificación anterior (contains/regex/
+ * Levenshtein, copiada acá como referencia): mismo resultado en assessFallReply/saysHelp/mentionsFall
+ * sobre un corpus de respuestas.
+ */
+public class FallPhraseMatcherTest {
+
+    private static final String[] CORPUS = {
+            "sí", "si estoy bien", "estoy bien gracias", "no", "no estoy bien", "me caí", "me cai en el baño",
+            "ayuda por favor", "ayúdame", "no me puedo mover", "todo bien, no fue nada", "no te preocupes",
+            "no gracias", "me duele la cadera", "me resbalé en la cocina", "tranquila, ya estoy bien",
+            "no me pasó nada", "me tropecé con la alfombra", "llamá a una ambulancia", "creo que me desmayé",
+            "qué", "hola", "eh no sé", "casi me caigo pero estoy bien", "sí sí, está todo bien", "no, no, ayuda",
+            "el perro se cayó de la cama", "no hay problema", "estoy mal", "caso cerrado", "cae la tarde",
+            "me pegué en la cabeza y me duele mucho", "no puedo levantarme del piso", "todo ok", "x-no estoy bien",
+            "bueno", "más o menos", "necesito un médico", "dolor de espalda", "no estoy mal, tranquilo"
+    };
+
+    private static String[] norms() {
+        String[] norms = new String[CORPUS.length];
+        for (int i = 0; i < CORPUS.length; i++) norms[i] = FallLogic.normEs(CORPUS[i]);
+        return norms;
+    }
+
+    @Test
+    public void agreesWithLegacyClassification() {
+        List<String> diffs = new ArrayList<>();
+        for (String n : norms()) {
+            if (FallLogic.assessFallReply(n) != Legacy.assessFallReply(n)
+                    || FallLogic.saysHelp(n) != Legacy.saysHelp(n)
+                    || FallLogic.mentionsFall(n) != Legacy.mentionsFall(n)) {
+                diffs.add("\"" + n + "\" → " + FallPhraseMatcher.scan(n));
+            }
+        }
+        assertTrue("desacuerdos: " + diffs, diffs.isEmpty());
+    }
+
+    /** La clasificación tal como estaba antes del matcher (referencia). */
+    private static final class Legacy {
+
+        static boolean saysHelp(String norm) {
+            return norm.contains(" no estoy bien ")
+                    || norm.contains(" no esta bien ")
+                    || norm.contains(" me caí ")
+                    || norm.contains(" me he caído ")
+                    || norm.contains(" estoy mal ")
+                    || norm.contains(" me duele ")
+                    || norm.contains(" duele ")
+                    || norm.contains(" dolor ")
+                    || norm.contains(" dolió ")
+                    || norm.contains(" me lastime ") || norm.contains(" me lastimé ")
+                    || norm.contains(" no me puedo mover ")
+                    || norm.contains(" no puedo levantarme ") || norm.contains(" no puedo pararme ")
+                    || norm.contains(" ayuda ") || norm.contains(" ayudame ") || norm.contains(" ayúdame ")
+                    || norm.contains(" auxilio ") || norm.contains(" emergencia ") || norm.contains(" ambulancia ")
+                    || norm.contains(" doctor ") || norm.contains(" medico ") || norm.contains(" médico ");
+        }
+
+        static boolean mentionsFall(String norm) {
+            if (norm.contains(" me cai ") || norm.contains(" me caí ")
+                    || norm.contains(" me caigo ") || norm.contains(" me estoy cayendo ")
+                    || norm.contains(" caida ") || norm.contains(" caída ")
+                    || norm.contains(" me tropece ") || norm.contains(" me tropecé ")
+                    || norm.contains(" me pegue ") || norm.contains(" me pegué ")
+                    || norm.contains(" me desmaye ") || norm.contains(" me desmayé ")) return true;
+
+            if (norm.contains(" cae ") || norm.contains(" cayo ") || norm.contains(" caigo ")) return true;
+            if (norm.contains(" resbale ") || norm.contains(" resbalé ") || norm.contains(" resbaló ") || norm.contains(" resbalo ")) return true;
+
+            String s = norm.trim();
+            String[] toks = s.split("\\s+");
+            for (String t : toks) {
+                String tt = t.replaceAll("[^a-zA-Z0-9]", "");
+                if (levenshtein(tt, "cai") <= 1 || levenshtein(tt, "cayo") <= 1 || levenshtein(tt, "cae") <= 1) return true;
+            }
+            return false;
+        }
+
+        private static int levenshtein(String a, String b) {
+            int[] costs = new int[b.length() + 1];
+            for (int j = 0; j < costs.length; j++) costs[j] = j;
+            for (int i = 1; i <= a.length(); i++) {
+                costs[0] = i;
+                int nw = i - 1;
+                for (int j = 1; j <= b.length(); j++) {
+                    int cj = Math.min(1 + Math.min(costs[j], costs[j - 1]), a.charAt(i - 1) == b.charAt(j - 1) ? nw : nw + 1);
+                    nw = costs[j];
+                    costs[j] = cj;
+                }
+            }
+            return costs[b.length()];
+        }
+
+        static boolean saysOk(String norm) {
+            if (norm.contains(" no me puedo mover ")
+                    || norm.contains(" no puedo levantarme ") || norm.contains(" no puedo pararme ")
+                    || norm.contains(" estoy mal ")
+                    || norm.contains(" me duele ")
+                    || norm.contains(" me lastime ") || norm.contains(" me lastimé ")) {
+                return false;
+            }
+            if (norm.matches(".*\\bno\\s+estoy\\s+bien\\b.*")) return false;
+            if (norm.matches(".*\\bno\\s+esta\\s+bien\\b.*")) return false;
+            return norm.contains(" estoy bien ")
+                    || norm.contains(" esta bien ")
+                    || norm.contains(" esta todo bien ")
+                    || norm.contains(" todo bien ")
+                    || norm.contains(" todo ok ")
+                    || norm.contains(" estoy ok ")
+                    || norm.contains(" tranquilo ") || norm.contains(" tranquila ")
+                    || norm.contains(" ya estoy bien ")
+                    || norm.contains(" no fue nada ")
+                    || norm.contains(" no te preocupes ")
+                    || norm.contains(" no hay problema ")
+                    || norm.contains(" no estoy mal ")
+                    || norm.contains(" no me paso nada ") || norm.contains(" no me pasó nada ")
+                    || norm.matches(".*\\b(si|sí)\\b.*");
+        }
+
+        static boolean hasStandaloneNo(String norm) {
+            return norm.matches(".*\\bno\\b.*")
+                    && !norm.contains(" no fue nada ")
+                    && !norm.contains(" no te preocupes ")
+                    && !norm.contains(" no hay problema ")
+                    && !norm.contains(" no gracias ")
+                    && !saysOk(norm);
+        }
+
+        static FallLogic.FallReply assessFallReply(String norm) {
+            if (saysHelp(norm)) return FallLogic.FallReply.HELP;
+            if (saysOk(norm)) return FallLogic.FallReply.OK;
+            if (mentionsFall(norm)) return FallLogic.FallReply.HELP;
+            if (hasStandaloneNo(norm)) return FallLogic.FallReply.HELP;
+            return FallLogic.FallReply.UNKNOWN;
+        }
+    }
+}
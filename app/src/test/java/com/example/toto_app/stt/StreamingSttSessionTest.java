@@ -0,0 +1,122 @@
+package com.example.toto_app.stt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/** StreamingSttSession contra un servidor local: cuerpo chunked, finish/await y caída al upload con 404. */
+public class StreamingSttSessionTest {
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder().readTimeout(5, TimeUnit.SECONDS).build();
+        SttClient.streamUnsupported = false;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        SttClient.streamUnsupported = false;
+    }
+
+    @Test
+    public void uploadsChunksAndReturnsTranscript() throws Exception {
+        server.enqueue(json("{\"text\":\"  llamá a Juan \"}"));
+        StreamingSttSession s = session();
+        s.start();
+
+        byte[] pcm = new byte[3200 * 3];
+        for (int i = 0; i < pcm.length; i++) pcm[i] = (byte) i;
+        for (int off = 0; off < pcm.length; off += 3200) {
+            s.write(pcm, off, 3200);
+            Thread.sleep(20);
+        }
+        s.write(pcm, 0, 0);
+
+        assertEquals("llamá a Juan", s.await(5000));
+        assertEquals(200, s.httpCode());
+
+        RecordedRequest req = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("POST", req.getMethod());
+        assertEquals("/" + StreamingSttSession.PATH, req.getRequestUrl().encodedPath());
+        assertEquals("16000", req.getRequestUrl().queryParameter("sampleRate"));
+        assertEquals("es", req.getRequestUrl().queryParameter("language"));
+        assertEquals("chunked", req.getHeader("Transfer-Encoding"));
+        assertTrue(req.getHeader("Content-Type").startsWith("audio/l16"));
+        assertFalse(req.getChunkSizes().isEmpty());
+        assertArrayEquals(pcm, req.getBody().readByteArray());
+    }
+
+    @Test
+    public void writesAfterFinishAreDropped() throws Exception {
+        server.enqueue(json("{\"text\":\"hola\"}"));
+        StreamingSttSession s = session();
+        s.start();
+        s.write(new byte[]{1, 2, 3, 4}, 0, 4);
+        s.finish();
+        s.write(new byte[]{5, 6}, 0, 2);
+
+        assertEquals("hola", s.await(5000));
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, server.takeRequest(5, TimeUnit.SECONDS).getBody().readByteArray());
+    }
+
+    @Test
+    public void missingEndpointFallsBackToUpload() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        StreamingSttSession s = session();
+        s.start();
+        s.write(new byte[320], 0, 320);
+
+        assertNull(SttClient.awaitStream(s, 5000));
+        assertEquals(404, s.httpCode());
+        assertTrue("404 tiene que desactivar el streaming", SttClient.streamUnsupported);
+    }
+
+    @Test
+    public void serverErrorFallsBackOnlyThisTime() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        StreamingSttSession s = session();
+        s.start();
+
+        assertNull(SttClient.awaitStream(s, 5000));
+        assertEquals(503, s.httpCode());
+        assertFalse(SttClient.streamUnsupported);
+    }
+
+    @Test
+    public void noResponseInTimeReturnsNull() {
+        server.enqueue(json("{\"text\":\"tarde\"}").setHeadersDelay(2, TimeUnit.SECONDS));
+        StreamingSttSession s = session();
+        s.start();
+
+        assertNull(SttClient.awaitStream(s, 200));
+        assertEquals(0, s.httpCode());
+        assertFalse(SttClient.streamUnsupported);
+    }
+
+    private StreamingSttSession session() {
+        return new StreamingSttSession(client, server.url("/").resolve(StreamingSttSession.PATH), "es");
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
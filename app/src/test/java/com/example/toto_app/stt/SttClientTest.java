@@ -0,0 +1,31 @@
+package com.example.toto_app.stt;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Cuándo un error del upload apaga FLAC para todo el proceso. */
+public class SttClientTest {
+
+    @Test
+    public void unsupportedMediaTypeDisablesFlac() {
+        assertTrue(SttClient.rejectsFlac(415, null));
+        assertTrue(SttClient.rejectsFlac(415, "{\"error\":\"boom\"}"));
+    }
+
+    @Test
+    public void badRequestAboutEncodingDisablesFlac() {
+        assertTrue(SttClient.rejectsFlac(400, "{\"error\":\"Unsupported encoding: flac\"}"));
+        assertTrue(SttClient.rejectsFlac(400, "FLAC not supported"));
+        assertTrue(SttClient.rejectsFlac(400, "encoding no soportado"));
+    }
+
+    @Test
+    public void otherBadRequestsKeepFlac() {
+        assertFalse(SttClient.rejectsFlac(400, null));
+        assertFalse(SttClient.rejectsFlac(400, "{\"error\":\"audio vacío\"}"));
+        assertFalse(SttClient.rejectsFlac(400, "{\"error\":\"language inválido\"}"));
+        assertFalse(SttClient.rejectsFlac(500, "unsupported encoding"));
+    }
+}
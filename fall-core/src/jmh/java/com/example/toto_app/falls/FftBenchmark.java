@@ -0,0 +1,64 @@
+package com.example.toto_app.falls;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** FftPlan.realForward contra la FFT compleja de referencia (FFT.fft, en los tests) con entrada real. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FftBenchmark {
+
+    @Param({"512"})
+    public int n;
+
+    private float[] in;
+    private FftPlan plan;
+    private float[] re, im;
+    private float[] refRe, refIm;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(7);
+        in = new float[n];
+        for (int i = 0; i < n; i++) in[i] = rnd.nextFloat() * 2f - 1f;
+        plan = new FftPlan(n);
+        re = new float[plan.bins()];
+        im = new float[plan.bins()];
+        refRe = new float[n];
+        refIm = new float[n];
+    }
+
+    @Benchmark
+    public void reference(Blackhole bh) {
+        System.arraycopy(in, 0, refRe, 0, n);
+        Arrays.fill(refIm, 0f);
+        FFT.fft(refRe, refIm);
+        bh.consume(refRe);
+        bh.consume(refIm);
+    }
+
+    @Benchmark
+    public void plan(Blackhole bh) {
+        plan.realForward(in, re, im);
+        bh.consume(re);
+        bh.consume(im);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.toto_app.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Cada preset de TextNormalizer (String y buffer reutilizado) contra su cadena anterior, sobre todo el corpus. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextNormalizerBenchmark {
+
+    @Param({"intent", "fall", "key", "fold", "contact"})
+    public String preset;
+
+    private TextNormalizer tn;
+    private LegacyTextNormalizer.Chain legacy;
+    private final StringBuilder buf = new StringBuilder(128);
+
+    @Setup
+    public void setUp() {
+        tn = LegacyTextNormalizer.preset(preset);
+        legacy = LegacyTextNormalizer.chain(preset);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        for (String s : LegacyTextNormalizer.CORPUS) bh.consume(legacy.apply(s));
+    }
+
+    @Benchmark
+    public void table(Blackhole bh) {
+        for (String s : LegacyTextNormalizer.CORPUS) bh.consume(tn.normalize(s));
+    }
+
+    @Benchmark
+    public void buffer(Blackhole bh) {
+        for (String s : LegacyTextNormalizer.CORPUS) {
+            buf.setLength(0);
+            tn.normalizeTo(s, buf);
+            bh.consume(buf.length());
+        }
+    }
+}
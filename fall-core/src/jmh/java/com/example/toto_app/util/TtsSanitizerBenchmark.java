@@ -0,0 +1,57 @@
+package com.example.toto_app.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** sanitizeForTTS sobre una respuesta de ~4 KB: cadena de regex anterior, máquina de estados y en pedazos. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TtsSanitizerBenchmark {
+
+    /** Tamaño de los pedazos en que llega la respuesta del LLM. */
+    @Param({"24"})
+    public int chunk;
+
+    private String answer;
+    private final StringBuilder out = new StringBuilder(8192);
+
+    @Setup
+    public void setUp() {
+        answer = LegacyTtsSanitizer.longAnswer();
+    }
+
+    @Benchmark
+    public String legacy() {
+        return LegacyTtsSanitizer.sanitizeForTTS(answer);
+    }
+
+    @Benchmark
+    public String stateMachine() {
+        return TtsSanitizer.sanitizeForTTS(answer);
+    }
+
+    @Benchmark
+    public int chunked() {
+        TtsSanitizer.Stream st = new TtsSanitizer.Stream();
+        out.setLength(0);
+        for (int i = 0; i < answer.length(); i += chunk) {
+            out.append(st.append(answer.substring(i, Math.min(answer.length(), i + chunk))));
+        }
+        return out.append(st.finish()).length();
+    }
+}
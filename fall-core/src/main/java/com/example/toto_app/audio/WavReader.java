@@ -0,0 +1,172 @@
+package com.example.toto_app.audio;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Lector de WAV PCM sin dependencias de Android (sirve en el dispositivo y en la JVM). */
+public final class WavReader {
+    private WavReader(){}
+
+    public static final class Header {
+        public int audioFormat;
+        public int channels;
+        public int sampleRate;
+        public int bitsPerSample;
+        /** Bytes de datos declarados en el chunk "data" (puede ser 0 si no se actualizó). */
+        public long dataSize;
+        /** Bytes consumidos del stream hasta el inicio de los datos. */
+        public long dataOffset;
+
+        public int bytesPerSample() { return Math.max(1, bitsPerSample / 8); }
+        public boolean isPcm() { return audioFormat == 1 || audioFormat == 0xFFFE; }
+    }
+
+    /** Lee el header y deja el stream posicionado al inicio de los datos. */
+    public static Header readHeader(InputStream in) throws IOException {
+        DataInputStream din = new DataInputStream(in);
+        byte[] id = new byte[4];
+        din.readFully(id);
+        if (!tag(id, "RIFF")) throw new IOException("No es RIFF");
+        readLe32(din);
+        din.readFully(id);
+        if (!tag(id, "WAVE")) throw new IOException("No es WAVE");
+        long pos = 12;
+
+        Header h = null;
+        while (true) {
+            try {
+                din.readFully(id);
+            } catch (EOFException eof) {
+                throw new IOException("WAV sin chunk data");
+            }
+            long size = readLe32(din) & 0xFFFFFFFFL;
+            pos += 8;
+            if (tag(id, "fmt ")) {
+                h = new Header();
+                h.audioFormat = readLe16(din);
+                h.channels = Math.max(1, readLe16(din));
+                h.sampleRate = readLe32(din);
+                readLe32(din);
+                readLe16(din);
+                h.bitsPerSample = readLe16(din);
+                skipFully(din, size - 16 + (size & 1));
+            } else if (tag(id, "data")) {
+                if (h == null) throw new IOException("WAV sin chunk fmt");
+                h.dataSize = size;
+                h.dataOffset = pos;
+                return h;
+            } else {
+                skipFully(din, size + (size & 1));
+            }
+            pos += size + (size & 1);
+        }
+    }
+
+    /** Audio mono en [-1, 1], mezclando canales. */
+    public static final class Pcm {
+        public final int sampleRate;
+        public final float[] samples;
+        Pcm(int sampleRate, float[] samples) { this.sampleRate = sampleRate; this.samples = samples; }
+        public float seconds() { return sampleRate > 0 ? samples.length / (float) sampleRate : 0f; }
+    }
+
+    public static Pcm readMono(File wav) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(wav), 64 * 1024)) {
+            Header h = readHeader(in);
+            if (!h.isPcm()) throw new IOException("Sólo PCM (formato " + h.audioFormat + ")");
+            int bps = h.bytesPerSample();
+            int frameBytes = bps * h.channels;
+            long avail = wav.length() - h.dataOffset;
+            long bytes = (h.dataSize > 0 && h.dataSize <= avail) ? h.dataSize : avail;
+            int frames = (int) (bytes / frameBytes);
+
+            float[] out = new float[frames];
+            byte[] buf = new byte[frameBytes * 1024];
+            int f = 0;
+            while (f < frames) {
+                int want = Math.min(buf.length, (frames - f) * frameBytes);
+                int got = readAtLeast(in, buf, want, frameBytes);
+                if (got <= 0) break;
+                int n = got / frameBytes;
+                for (int i = 0; i < n; i++) {
+                    float acc = 0f;
+                    for (int ch = 0; ch < h.channels; ch++) {
+                        acc += sample(buf, (i * h.channels + ch) * bps, bps);
+                    }
+                    out[f++] = acc / h.channels;
+                }
+            }
+            if (f < frames) {
+                float[] cut = new float[f];
+                System.arraycopy(out, 0, cut, 0, f);
+                out = cut;
+            }
+            return new Pcm(h.sampleRate, out);
+        }
+    }
+
+    /** Remuestreo lineal; suficiente para pasar grabaciones a 16 kHz en pruebas offline. */
+    public static float[] resample(float[] x, int fromRate, int toRate) {
+        if (fromRate == toRate || x.length == 0) return x;
+        int n = (int) ((long) x.length * toRate / fromRate);
+        float[] y = new float[n];
+        double step = (double) fromRate / toRate;
+        for (int i = 0; i < n; i++) {
+            double p = i * step;
+            int a = (int) p;
+            int b = Math.min(x.length - 1, a + 1);
+            float t = (float) (p - a);
+            y[i] = x[a] * (1f - t) + x[b] * t;
+        }
+        return y;
+    }
+
+    static float sample(byte[] b, int i, int bps) {
+        switch (bps) {
+            case 1: return ((b[i] & 0xFF) - 128) / 128f;
+            case 2: return (short) ((b[i] & 0xFF) | (b[i + 1] << 8)) / 32768f;
+            case 3: return ((b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | (b[i + 2] << 16)) / 8388608f;
+            case 4: return ((b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | (b[i + 3] << 24)) / 2147483648f;
+            default: return 0f;
+        }
+    }
+
+    private static int readAtLeast(InputStream in, byte[] buf, int want, int multiple) throws IOException {
+        int off = 0;
+        while (off < want) {
+            int r = in.read(buf, off, want - off);
+            if (r < 0) break;
+            off += r;
+        }
+        return off - (off % multiple);
+    }
+
+    private static boolean tag(byte[] id, String s) {
+        return id[0] == s.charAt(0) && id[1] == s.charAt(1) && id[2] == s.charAt(2) && id[3] == s.charAt(3);
+    }
+
+    private static int readLe16(DataInputStream in) throws IOException {
+        int lo = in.readUnsignedByte(), hi = in.readUnsignedByte();
+        return lo | (hi << 8);
+    }
+
+    private static int readLe32(DataInputStream in) throws IOException {
+        return Integer.reverseBytes(in.readInt());
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long s = in.skip(n);
+            if (s <= 0) {
+                if (in.read() < 0) throw new EOFException();
+                s = 1;
+            }
+            n -= s;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.toto_app.falls;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reutiliza buffers del loop de detección: sólo asigna cuando el buffer actual no alcanza.
+ * Los contadores permiten ver si en régimen se sigue asignando memoria (presión de GC).
+ */
+public final class BufferPool {
+    private BufferPool(){}
+
+    private static final AtomicLong ALLOCATIONS = new AtomicLong();
+    private static final AtomicLong BYTES = new AtomicLong();
+
+    public static short[] ensure(short[] buf, int n) {
+        if (buf != null && buf.length >= n) return buf;
+        count(2L * n);
+        return new short[n];
+    }
+
+    public static float[] ensure(float[] buf, int n) {
+        if (buf != null && buf.length >= n) return buf;
+        count(4L * n);
+        return new float[n];
+    }
+
+    public static float[][] ensureRows(float[][] buf, int rows) {
+        if (buf != null && buf.length >= rows) return buf;
+        count(8L * rows);
+        return new float[rows][];
+    }
+
+    public static void count(long bytes) {
+        ALLOCATIONS.incrementAndGet();
+        BYTES.addAndGet(bytes);
+    }
+
+    public static long allocations() { return ALLOCATIONS.get(); }
+
+    public static long allocatedBytes() { return BYTES.get(); }
+}
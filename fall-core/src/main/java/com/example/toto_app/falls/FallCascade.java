@@ -0,0 +1,133 @@
+package com.example.toto_app.falls;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Reglas de caída por etapas, de la más barata a la más cara.
+ * Pico RMS, ancho y silencio posterior se evalúan en el dominio del tiempo; después la
+ * columna espectral del pico; el clasificador (YAMNet) sólo corre si todo lo anterior pasó.
+ */
+public final class FallCascade {
+
+    public enum Stage { PEAK, WIDTH, POST_SILENCE, SPECTRAL, IMPACT }
+
+    public interface ImpactClassifier {
+        /** {@code peakSample}: posición del pico RMS en la ventana, para mirar alrededor del golpe. */
+        boolean hasImpact(float[] audio, int length, int peakSample);
+    }
+
+    public static final float RMS_PEAK_THRESHOLD      = 0.15f;
+    public static final float LOWFREQ_RATIO_THRESHOLD = 0.35f;
+    public static final float LOWFREQ_CUTOFF_HZ       = 500f;
+    public static final float POST_SILENCE_RMS        = 0.04f;
+    public static final float POST_SILENCE_SECONDS    = 0.40f;
+    public static final float POST_SILENCE_DELAY_S    = 0.20f;
+
+    public static final float HF1_MIN_HZ              = 2000f;
+    public static final float HF1_MAX_HZ              = 6000f;
+    public static final float HF1_RATIO_MAX           = 0.65f;
+    public static final float CENTROID_MAX_HZ         = 4200f;
+    public static final float MIN_WIDTH_MS            = 30f;
+
+    public static final float FF_RMS_MIN              = 0.27f;
+    public static final float FF_HF_RATIO_MAX         = 0.46f;
+    public static final float FF_CENTROID_MAX_HZ      = 4050f;
+    public static final float FF_WIDTH_MS_MIN         = 28f;
+
+    /** Amplitud PCM16 mínima para que algún hop llegue a RMS_PEAK_THRESHOLD (el RMS nunca supera al pico). */
+    public static final int PCM16_PEAK_FLOOR = (int) Math.ceil(RMS_PEAK_THRESHOLD * 32768f);
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final int sampleRate;
+    private final int hopSize;
+    private final AtomicLongArray passed = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray rejected = new AtomicLongArray(STAGES.length);
+
+    private String lastPath = "--";
+    private Stage lastRejectedAt = null;
+
+    public FallCascade(int sampleRate, int hopSize) {
+        this.sampleRate = sampleRate;
+        this.hopSize = hopSize;
+    }
+
+    public boolean evaluate(SpectralFeatures feats, float[] audio, int length, ImpactClassifier impact) {
+        lastPath = "--";
+        lastRejectedAt = null;
+
+        float rmsPeak = feats.rmsPeak();
+        if (!gate(Stage.PEAK, rmsPeak >= RMS_PEAK_THRESHOLD)) return false;
+
+        float widthMs = feats.widthMs50();
+        if (!gate(Stage.WIDTH, widthMs >= Math.min(MIN_WIDTH_MS, FF_WIDTH_MS_MIN))) return false;
+
+        int peakF = feats.peakFrame();
+        int postStart = Math.min(length, peakF * hopSize + Math.round(POST_SILENCE_DELAY_S * sampleRate));
+        if (!gate(Stage.POST_SILENCE, feats.isPostSilent(postStart, POST_SILENCE_RMS, POST_SILENCE_SECONDS))) return false;
+
+        float lfRatio  = feats.lowFreqRatio(peakF, LOWFREQ_CUTOFF_HZ);
+        float hfRatio  = feats.bandRatio(peakF, HF1_MIN_HZ, HF1_MAX_HZ);
+        float centroid = feats.spectralCentroid(peakF);
+
+        boolean bassy     = lfRatio >= LOWFREQ_RATIO_THRESHOLD;
+        boolean vetoAgudo = (hfRatio >= HF1_RATIO_MAX) || (centroid >= CENTROID_MAX_HZ);
+        boolean passBassy = (widthMs >= MIN_WIDTH_MS) && bassy && !vetoAgudo;
+
+        boolean passFarField =
+                (widthMs >= FF_WIDTH_MS_MIN) &&
+                        (rmsPeak >= FF_RMS_MIN) &&
+                        (hfRatio <= FF_HF_RATIO_MAX) &&
+                        (centroid <= FF_CENTROID_MAX_HZ);
+
+        if (!gate(Stage.SPECTRAL, passBassy || passFarField)) return false;
+        String path = passBassy ? "LF" : "FF";
+
+        boolean hasImpact = impact != null && impact.hasImpact(audio, length, peakF * hopSize);
+        if (!gate(Stage.IMPACT, hasImpact)) return false;
+
+        lastPath = path;
+        return true;
+    }
+
+    /**
+     * false si una ventana cuyo pico absoluto (PCM16) es {@code maxAbs} seguro la rechaza PEAK:
+     * se puede saltear sin pasar a float ni calcular features.
+     */
+    public static boolean mayPassPeak(int maxAbs) {
+        return maxAbs >= PCM16_PEAK_FLOOR;
+    }
+
+    private boolean gate(Stage stage, boolean pass) {
+        if (pass) {
+            passed.incrementAndGet(stage.ordinal());
+        } else {
+            rejected.incrementAndGet(stage.ordinal());
+            lastRejectedAt = stage;
+        }
+        return pass;
+    }
+
+    /** "LF", "FF" o "--" según la rama que confirmó la última ventana. */
+    public String lastPath() { return lastPath; }
+
+    /** Etapa que descartó la última ventana, o null si pasó todas. */
+    public Stage lastRejectedAt() { return lastRejectedAt; }
+
+    public long passed(Stage s)   { return passed.get(s.ordinal()); }
+    public long rejected(Stage s) { return rejected.get(s.ordinal()); }
+
+    public void resetStats() {
+        for (int i = 0; i < STAGES.length; i++) { passed.set(i, 0); rejected.set(i, 0); }
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage s : STAGES) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(String.format(Locale.US, "%s=%d/%d", s.name(), passed(s), rejected(s)));
+        }
+        return sb.toString();
+    }
+}
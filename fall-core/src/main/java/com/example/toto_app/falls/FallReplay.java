@@ -0,0 +1,157 @@
+package com.example.toto_app.falls;
+
+import com.example.toto_app.audio.WavReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reproduce WAVs (archivos o carpetas) por la misma cascada que FallDetectionService:
+ * ventanas de 3 s con salto de 1.5 s, SpectralFeatures + FallCascade + clasificador de impacto.
+ * Vive en fall-core (sólo JDK), así que corre en la JVM más rápido que tiempo real.
+ */
+public final class FallReplay {
+
+    public static final int SR = 16000;
+    public static final int SEC = 3;
+    public static final int HOP = 160;
+    public static final int FFTN = 512;
+    public static final int WINDOW = SR * SEC;
+    public static final int STEP = WINDOW / 2;
+
+    public static final class WindowResult {
+        public final String file;
+        public final int index;
+        public final float startSec;
+        public final float rmsPeak;
+        public final float widthMs;
+        public final boolean fall;
+        public final String path;
+        public final FallCascade.Stage rejectedAt;
+
+        WindowResult(String file, int index, float startSec, float rmsPeak, float widthMs,
+                     boolean fall, String path, FallCascade.Stage rejectedAt) {
+            this.file = file; this.index = index; this.startSec = startSec;
+            this.rmsPeak = rmsPeak; this.widthMs = widthMs;
+            this.fall = fall; this.path = path; this.rejectedAt = rejectedAt;
+        }
+
+        @Override public String toString() {
+            return String.format(Locale.US, "%s\t%d\t%.2f\t%.3f\t%.0f\t%s\t%s",
+                    file, index, startSec, rmsPeak, widthMs,
+                    fall ? "FALL-" + path : "--", rejectedAt == null ? "" : rejectedAt.name());
+        }
+    }
+
+    public interface Listener {
+        void onWindow(WindowResult r);
+    }
+
+    public static final class Stats {
+        public int files;
+        public int windows;
+        public int falls;
+        public double audioSeconds;
+        public long elapsedNanos;
+
+        public double windowsPerSecond() { return elapsedNanos == 0 ? 0 : windows / (elapsedNanos / 1e9); }
+        public double msPerWindow()      { return windows == 0 ? 0 : elapsedNanos / 1e6 / windows; }
+        public double realtimeFactor()   { return elapsedNanos == 0 ? 0 : audioSeconds / (elapsedNanos / 1e9); }
+
+        @Override public String toString() {
+            return String.format(Locale.US,
+                    "files=%d windows=%d falls=%d audio=%.1fs elapsed=%.1fms -> %.1f win/s, %.3f ms/win, x%.1f tiempo real",
+                    files, windows, falls, audioSeconds, elapsedNanos / 1e6,
+                    windowsPerSecond(), msPerWindow(), realtimeFactor());
+        }
+    }
+
+    private final FallCascade cascade;
+    private final SpectralFeatures feats;
+    private final FallCascade.ImpactClassifier impact;
+
+    public FallReplay(FallCascade.ImpactClassifier impact) {
+        this.impact = impact;
+        this.cascade = new FallCascade(SR, HOP);
+        this.feats = new SpectralFeatures(SR, FFTN, HOP, STFT.WindowType.HANN);
+    }
+
+    public FallCascade cascade() { return cascade; }
+
+    public Stats run(List<File> inputs, Listener listener) throws IOException {
+        List<File> wavs = new ArrayList<>();
+        for (File f : inputs) collect(f, wavs);
+
+        Stats st = new Stats();
+        for (File wav : wavs) {
+            WavReader.Pcm pcm = WavReader.readMono(wav);
+            float[] x = WavReader.resample(pcm.samples, pcm.sampleRate, SR);
+            st.files++;
+            st.audioSeconds += x.length / (double) SR;
+
+            long t0 = System.nanoTime();
+            replay(wav.getName(), x, listener, st);
+            st.elapsedNanos += System.nanoTime() - t0;
+        }
+        return st;
+    }
+
+    /** Una señal ya a 16 kHz; se puede usar directamente desde pruebas. */
+    public void replay(String name, float[] x, Listener listener, Stats st) {
+        float[] window = new float[WINDOW];
+        int idx = 0;
+        for (int start = 0; start + WINDOW <= x.length; start += STEP, idx++) {
+            System.arraycopy(x, start, window, 0, WINDOW);
+            feats.reset(window, WINDOW);
+            boolean fall = cascade.evaluate(feats, window, WINDOW, impact);
+            st.windows++;
+            if (fall) st.falls++;
+            if (listener != null) {
+                listener.onWindow(new WindowResult(name, idx, start / (float) SR,
+                        feats.rmsPeak(), feats.widthMs50(), fall, cascade.lastPath(), cascade.lastRejectedAt()));
+            }
+        }
+    }
+
+    private static void collect(File f, List<File> out) {
+        if (f.isDirectory()) {
+            File[] kids = f.listFiles();
+            if (kids == null) return;
+            Arrays.sort(kids);
+            for (File k : kids) collect(k, out);
+        } else if (f.getName().toLowerCase(Locale.ROOT).endsWith(".wav")) {
+            out.add(f);
+        }
+    }
+
+    /**
+     * Uso: FallReplay [--quiet] wav|dir ...  (o ./gradlew :fall-core:fallReplay --args="...")
+     * La etapa de impacto se da por aprobada: sólo reglas acústicas. Las ventanas que llegan a
+     * IMPACT en el resumen de la cascada son las que en el teléfono irían a YAMNet.
+     */
+    public static void main(String[] args) throws Exception {
+        boolean quiet = false;
+        List<File> inputs = new ArrayList<>();
+        for (String a : args) {
+            if ("--quiet".equals(a)) quiet = true;
+            else inputs.add(new File(a));
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Uso: FallReplay [--quiet] wav|dir ...");
+            System.exit(2);
+        }
+
+        PrintStream out = System.out;
+        FallReplay replay = new FallReplay((a, len, peak) -> true);
+        Listener l = quiet ? null : out::println;
+        if (!quiet) out.println("file\twindow\tstart_s\trms_peak\twidth_ms\tdecision\trejected_at");
+        Stats st = replay.run(inputs, l);
+        out.println(st);
+        out.println("cascada: " + replay.cascade().summary());
+    }
+}
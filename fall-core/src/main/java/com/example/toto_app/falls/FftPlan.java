@@ -0,0 +1,109 @@
+package com.example.toto_app.falls;
+
+/**
+ * FFT real de tamaño fijo: bit-reversal y twiddles se calculan una sola vez.
+ * La transformada real de N puntos se resuelve con una compleja de N/2 y da N/2+1 bins.
+ * No es thread-safe (usa buffers internos); crear uno por hilo/consumidor.
+ */
+public final class FftPlan {
+
+    private final int n;
+    private final int half;
+    private final int[] bitRev;
+    private final float[] twRe;
+    private final float[] twIm;
+    private final float[] splitRe;
+    private final float[] splitIm;
+    private final float[] zr;
+    private final float[] zi;
+
+    public FftPlan(int n) {
+        if (n < 2 || Integer.bitCount(n) != 1)
+            throw new IllegalArgumentException("La longitud debe ser potencia de 2");
+        this.n = n;
+        this.half = n / 2;
+
+        bitRev = new int[half];
+        int bits = Integer.numberOfTrailingZeros(half);
+        for (int i = 0; i < half; i++) {
+            bitRev[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+
+        int q = Math.max(1, half / 2);
+        twRe = new float[q];
+        twIm = new float[q];
+        for (int j = 0; j < q; j++) {
+            double ang = -2 * Math.PI * j / half;
+            twRe[j] = (float) Math.cos(ang);
+            twIm[j] = (float) Math.sin(ang);
+        }
+
+        splitRe = new float[half + 1];
+        splitIm = new float[half + 1];
+        for (int k = 0; k <= half; k++) {
+            double ang = 2 * Math.PI * k / n;
+            splitRe[k] = (float) Math.cos(ang);
+            splitIm[k] = (float) Math.sin(ang);
+        }
+
+        zr = new float[half];
+        zi = new float[half];
+    }
+
+    public int size() { return n; }
+
+    public int bins() { return half + 1; }
+
+    /** {@code in} de largo N; {@code outRe}/{@code outIm} de largo N/2+1. {@code in} no se modifica. */
+    public void realForward(float[] in, float[] outRe, float[] outIm) {
+        for (int m = 0; m < half; m++) {
+            int r = bitRev[m];
+            zr[r] = in[2 * m];
+            zi[r] = in[2 * m + 1];
+        }
+        complexInPlace(zr, zi);
+
+        for (int k = 0; k <= half; k++) {
+            int a = (k == half) ? 0 : k;
+            int b = (k == 0) ? 0 : half - k;
+            float ar = zr[a], ai = zi[a];
+            float br = zr[b], bi = zi[b];
+
+            float er = 0.5f * (ar + br);
+            float ei = 0.5f * (ai - bi);
+            float or = 0.5f * (ai + bi);
+            float oi = -0.5f * (ar - br);
+
+            float c = splitRe[k], s = splitIm[k];
+            outRe[k] = er + c * or + s * oi;
+            outIm[k] = ei + c * oi - s * or;
+        }
+    }
+
+    /** Magnitud por bin (más {@code eps}), igual que la usada por {@link STFT}. */
+    public void magnitude(float[] in, float[] outMag, float[] scratchRe, float[] scratchIm, float eps) {
+        realForward(in, scratchRe, scratchIm);
+        for (int k = 0; k <= half; k++) {
+            float re = scratchRe[k], im = scratchIm[k];
+            outMag[k] = (float) Math.sqrt(re * re + im * im) + eps;
+        }
+    }
+
+    private void complexInPlace(float[] re, float[] im) {
+        for (int len = 2; len <= half; len <<= 1) {
+            int h = len >>> 1;
+            int step = half / len;
+            for (int i = 0; i < half; i += len) {
+                for (int j = 0, t = 0; j < h; j++, t += step) {
+                    int u = i + j, v = u + h;
+                    float wr = twRe[t], wi = twIm[t];
+                    float vr = re[v] * wr - im[v] * wi;
+                    float vi = re[v] * wi + im[v] * wr;
+                    float ur = re[u], ui = im[u];
+                    re[u] = ur + vr; im[u] = ui + vi;
+                    re[v] = ur - vr; im[v] = ui - vi;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.toto_app.falls;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Tabla por índice de clase de YAMNet que dice si la etiqueta es de "impacto".
+ * Se arma una vez al cargar el modelo (las 521 etiquetas son fijas), así que evaluar
+ * un resultado es recorrer scores por índice, sin trabajo con strings.
+ */
+public final class ImpactLabelIndex {
+
+    public static final String[] FALL_IMPACT_KEYWORDS = new String[]{
+            "thump","thud","bang","slam","impact","collision","knock","tap","slap",
+            "wood","wood thud","door","door slam","drop","object impact","smash","crash",
+            "bump","hit","boom","punch","object drop","body","floor","ground",
+            "cap gun","gunshot","explosion","chop"
+    };
+
+    private final String[] keywords;
+    private final boolean[] impact;
+    private final int impactCount;
+
+    private ImpactLabelIndex(String[] keywords, boolean[] impact) {
+        this.keywords = keywords;
+        this.impact = impact;
+        int c = 0;
+        for (boolean b : impact) if (b) c++;
+        this.impactCount = c;
+    }
+
+    public static ImpactLabelIndex build(List<String> labels, Collection<String> keywords) {
+        String[] kw = new String[keywords.size()];
+        int i = 0;
+        for (String k : keywords) kw[i++] = k.toLowerCase(Locale.ROOT);
+        boolean[] imp = new boolean[labels.size()];
+        for (int c = 0; c < imp.length; c++) {
+            String lbl = labels.get(c);
+            imp[c] = lbl != null && matchesAny(lbl, kw);
+        }
+        return new ImpactLabelIndex(kw, imp);
+    }
+
+    public int size() { return impact.length; }
+
+    public int impactCount() { return impactCount; }
+
+    public boolean isImpact(int classIndex) {
+        return classIndex >= 0 && classIndex < impact.length && impact[classIndex];
+    }
+
+    /** Por índice si está en la tabla; si no, comparando la etiqueta con las palabras clave. */
+    public boolean isImpact(int classIndex, String label) {
+        if (classIndex >= 0 && classIndex < impact.length) return impact[classIndex];
+        return label != null && matchesAny(label, keywords);
+    }
+
+    /** Top-k sobre el vector crudo de scores por clase; true si alguna de esas k tiene score >= minScore y es de impacto. */
+    public boolean hasImpactTopK(float[] scores, float minScore, int topK) {
+        int n = Math.min(scores.length, impact.length);
+        float prevScore = Float.POSITIVE_INFINITY;
+        int prevIdx = -1;
+        for (int i = 0; i < topK; i++) {
+            int bestIdx = -1;
+            float bestScore = 0f;
+            for (int j = 0; j < n; j++) {
+                float sc = scores[j];
+                boolean after = sc < prevScore || (sc == prevScore && j > prevIdx);
+                if (after && (bestIdx < 0 || sc > bestScore)) { bestIdx = j; bestScore = sc; }
+            }
+            if (bestIdx < 0 || bestScore < minScore) break;
+            prevScore = bestScore; prevIdx = bestIdx;
+            if (impact[bestIdx]) return true;
+        }
+        return false;
+    }
+
+    private static boolean matchesAny(String label, String[] keywords) {
+        for (String k : keywords) if (containsIgnoreCase(label, k)) return true;
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String hay, String needle) {
+        int max = hay.length() - needle.length();
+        for (int i = 0; i <= max; i++) {
+            if (hay.regionMatches(true, i, needle, 0, needle.length())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lee la lista de etiquetas empaquetada en la metadata del .tflite (zip anexado al modelo).
+     * Devuelve null si el modelo no trae un archivo de etiquetas.
+     */
+    public static List<String> readLabels(InputStream model) throws IOException {
+        byte[] data = readAll(model);
+        int eocd = -1;
+        for (int i = data.length - 22; i >= Math.max(0, data.length - 65557); i--) {
+            if (le32(data, i) == 0x06054b50) { eocd = i; break; }
+        }
+        if (eocd < 0) return null;
+        int entries = le16(data, eocd + 10);
+        int cdOff = le32(data, eocd + 16);
+        int p = cdOff;
+        for (int e = 0; e < entries && p + 46 <= data.length; e++) {
+            if (le32(data, p) != 0x02014b50) return null;
+            int method = le16(data, p + 10);
+            int compSize = le32(data, p + 20);
+            int size = le32(data, p + 24);
+            int nameLen = le16(data, p + 28);
+            int extraLen = le16(data, p + 30);
+            int commentLen = le16(data, p + 32);
+            int localOff = le32(data, p + 42);
+            String name = new String(data, p + 46, nameLen, StandardCharsets.UTF_8);
+            p += 46 + nameLen + extraLen + commentLen;
+
+            if (!name.toLowerCase(Locale.ROOT).contains("label")) continue;
+            if (le32(data, localOff) != 0x04034b50) return null;
+            int start = localOff + 30 + le16(data, localOff + 26) + le16(data, localOff + 28);
+
+            byte[] content;
+            if (method == 0) {
+                content = new byte[size];
+                System.arraycopy(data, start, content, 0, size);
+            } else if (method == 8) {
+                Inflater inf = new Inflater(true);
+                try {
+                    inf.setInput(data, start, compSize);
+                    content = new byte[size];
+                    inf.inflate(content);
+                } catch (DataFormatException ex) {
+                    throw new IOException("Etiquetas corruptas en el modelo", ex);
+                } finally {
+                    inf.end();
+                }
+            } else {
+                return null;
+            }
+
+            List<String> labels = new ArrayList<>();
+            for (String line : new String(content, StandardCharsets.UTF_8).split("\\r?\\n")) {
+                if (!line.trim().isEmpty()) labels.add(line.trim());
+            }
+            return labels;
+        }
+        return null;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(1 << 20);
+        byte[] buf = new byte[64 * 1024];
+        int r;
+        while ((r = in.read(buf)) > 0) bos.write(buf, 0, r);
+        return bos.toByteArray();
+    }
+
+    private static int le16(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8);
+    }
+
+    private static int le32(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+    }
+}
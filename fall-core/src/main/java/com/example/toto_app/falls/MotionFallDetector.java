@@ -0,0 +1,127 @@
+package com.example.toto_app.falls;
+
+import java.util.Locale;
+
+/**
+ * Etapa por acelerómetro: caída libre (|a| bajo 1 g durante un rato) seguida de un impacto
+ * (|a| alto) dentro de una ventana corta. No usa APIs de Android: recibe muestras con timestamp
+ * en ns, así que se puede alimentar desde SensorEvent o desde un CSV grabado.
+ *
+ * Además decide el ritmo del detector por audio: con movimiento reciente se evalúa cada ventana;
+ * con el teléfono quieto (modo ocioso) el audio se lee en bloques y las ventanas que no pueden pasar
+ * el pico se saltean. El evento sólo corrobora: no cambia los umbrales del audio.
+ */
+public final class MotionFallDetector {
+
+    public static final float G = 9.80665f;
+
+    public static final float FREE_FALL_G        = 0.45f;
+    public static final long  FREE_FALL_MIN_NS   = 80_000_000L;
+    public static final float IMPACT_G           = 2.5f;
+    public static final long  IMPACT_WINDOW_NS   = 1_000_000_000L;
+    public static final float ACTIVE_DELTA_G     = 0.25f;
+    public static final long  FULL_RATE_HOLD_NS  = 10_000_000_000L;
+    public static final long  CORROBORATE_NS     = 4_000_000_000L;
+
+    public static final class Event {
+        public final long freeFallStartNs;
+        public final long impactNs;
+        public final float peakG;
+
+        Event(long freeFallStartNs, long impactNs, float peakG) {
+            this.freeFallStartNs = freeFallStartNs;
+            this.impactNs = impactNs;
+            this.peakG = peakG;
+        }
+
+        public long freeFallMs() { return (impactNs - freeFallStartNs) / 1_000_000L; }
+
+        @Override public String toString() {
+            return "caída libre " + freeFallMs() + "ms, impacto " + String.format(Locale.US, "%.2f", peakG) + "g";
+        }
+    }
+
+    private long freeFallStart = -1;
+    private long freeFallEnd = -1;
+    private float prevG = 1f;
+
+    private volatile long lastEventNs = Long.MIN_VALUE / 2;
+    private volatile long fullRateUntilNs = Long.MIN_VALUE / 2;
+
+    private long samples = 0;
+    private long events = 0;
+
+    /** Devuelve un evento cuando se completa el patrón caída libre → impacto; si no, null. */
+    public synchronized Event onSample(long tNs, float x, float y, float z) {
+        samples++;
+        float g = (float) Math.sqrt(x * x + y * y + z * z) / G;
+
+        if (Math.abs(g - prevG) >= ACTIVE_DELTA_G || Math.abs(g - 1f) >= ACTIVE_DELTA_G) {
+            fullRateUntilNs = tNs + FULL_RATE_HOLD_NS;
+        }
+        prevG = g;
+
+        if (g < FREE_FALL_G) {
+            if (freeFallStart < 0 || freeFallEnd >= 0) freeFallStart = tNs;
+            freeFallEnd = -1;
+            return null;
+        }
+
+        if (freeFallStart < 0) return null;
+        if (freeFallEnd < 0) {
+            freeFallEnd = tNs;
+            if (freeFallEnd - freeFallStart < FREE_FALL_MIN_NS) {
+                freeFallStart = -1;
+                return null;
+            }
+        }
+        if (tNs - freeFallEnd > IMPACT_WINDOW_NS) {
+            freeFallStart = -1;
+            freeFallEnd = -1;
+            return null;
+        }
+
+        if (g >= IMPACT_G) {
+            Event e = new Event(freeFallStart, tNs, g);
+            freeFallStart = -1;
+            freeFallEnd = -1;
+            lastEventNs = tNs;
+            fullRateUntilNs = tNs + FULL_RATE_HOLD_NS;
+            events++;
+            return e;
+        }
+        return null;
+    }
+
+    /** Lote con valores intercalados x,y,z (como llegan de un sensor con batching). */
+    public Event onBatch(long[] tNs, float[] xyz, int n) {
+        Event last = null;
+        for (int i = 0; i < n; i++) {
+            Event e = onSample(tNs[i], xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2]);
+            if (e != null) last = e;
+        }
+        return last;
+    }
+
+    /** El audio va a tasa completa mientras hubo movimiento o un evento en los últimos FULL_RATE_HOLD_NS. */
+    public boolean wantsFullRate(long nowNs) {
+        return nowNs < fullRateUntilNs;
+    }
+
+    /** Hubo un evento de caída en los últimos CORROBORATE_NS (se informa junto con la caída por audio). */
+    public boolean corroborates(long nowNs) {
+        return nowNs - lastEventNs <= CORROBORATE_NS;
+    }
+
+    public synchronized void reset() {
+        freeFallStart = -1;
+        freeFallEnd = -1;
+        prevG = 1f;
+        lastEventNs = Long.MIN_VALUE / 2;
+        fullRateUntilNs = Long.MIN_VALUE / 2;
+    }
+
+    public synchronized long samples() { return samples; }
+
+    public synchronized long events() { return events; }
+}
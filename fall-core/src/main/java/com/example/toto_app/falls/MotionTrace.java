@@ -0,0 +1,119 @@
+package com.example.toto_app.falls;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Traza de acelerómetro grabada en CSV: una muestra por línea "t,x,y,z" con x/y/z en m/s².
+ * t en ms, salvo que el header diga t_ns. Las líneas que no son números (header, comentarios)
+ * se ignoran. Sirve para reproducir MotionFallDetector en la JVM.
+ */
+public final class MotionTrace {
+
+    public final long[] tNs;
+    public final float[] xyz;
+    public final int size;
+
+    private MotionTrace(long[] tNs, float[] xyz, int size) {
+        this.tNs = tNs;
+        this.xyz = xyz;
+        this.size = size;
+    }
+
+    public double seconds() {
+        return size < 2 ? 0 : (tNs[size - 1] - tNs[0]) / 1e9;
+    }
+
+    public static MotionTrace readCsv(File csv) throws IOException {
+        long[] t = new long[1024];
+        float[] v = new float[3 * 1024];
+        int n = 0;
+        long scale = 1_000_000L;
+        try (BufferedReader br = new BufferedReader(new FileReader(csv))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] p = line.split("[,;\\s]+");
+                if (p.length < 4) continue;
+                if (!Character.isDigit(p[0].charAt(0)) && p[0].charAt(0) != '-') {
+                    if (p[0].toLowerCase(Locale.ROOT).endsWith("ns")) scale = 1L;
+                    continue;
+                }
+                if (n == t.length) {
+                    t = Arrays.copyOf(t, n * 2);
+                    v = Arrays.copyOf(v, n * 6);
+                }
+                try {
+                    t[n] = Math.round(Double.parseDouble(p[0]) * scale);
+                    v[3 * n]     = Float.parseFloat(p[1]);
+                    v[3 * n + 1] = Float.parseFloat(p[2]);
+                    v[3 * n + 2] = Float.parseFloat(p[3]);
+                } catch (NumberFormatException ex) {
+                    throw new IOException(csv.getName() + ": línea inválida \"" + line + "\"", ex);
+                }
+                n++;
+            }
+        }
+        return new MotionTrace(t, v, n);
+    }
+
+    /** Resultado de reproducir una traza: eventos y fracción del tiempo que el audio iría a tasa completa. */
+    public static final class Replay {
+        public int events;
+        public long firstEventNs = -1;
+        public double fullRateFraction;
+
+        @Override public String toString() {
+            return String.format(Locale.US, "eventos=%d tasa completa=%.1f%% del tiempo",
+                    events, fullRateFraction * 100);
+        }
+    }
+
+    /** Reproduce la traza con el paso de audio dado (en ns) para medir el duty cycle. */
+    public static Replay replay(MotionTrace trace, MotionFallDetector det, long audioStepNs, PrintStream log) {
+        Replay r = new Replay();
+        if (trace.size == 0) return r;
+        int i = 0;
+        long fullSteps = 0, steps = 0;
+        long end = trace.tNs[trace.size - 1];
+        for (long now = trace.tNs[0]; now <= end; now += audioStepNs) {
+            for (; i < trace.size && trace.tNs[i] <= now; i++) {
+                MotionFallDetector.Event e = det.onSample(trace.tNs[i],
+                        trace.xyz[3 * i], trace.xyz[3 * i + 1], trace.xyz[3 * i + 2]);
+                if (e != null) {
+                    r.events++;
+                    if (r.firstEventNs < 0) r.firstEventNs = e.impactNs;
+                    if (log != null) {
+                        log.println(String.format(Locale.US, "%.3fs\t%s", (e.impactNs - trace.tNs[0]) / 1e9, e));
+                    }
+                }
+            }
+            steps++;
+            if (det.wantsFullRate(now)) fullSteps++;
+        }
+        r.fullRateFraction = steps == 0 ? 0 : fullSteps / (double) steps;
+        return r;
+    }
+
+    /** Uso: MotionTrace traza.csv ...  (o ./gradlew :fall-core:motionReplay --args="...") */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Uso: MotionTrace traza.csv ...");
+            System.exit(2);
+        }
+        for (String a : args) {
+            MotionTrace trace = readCsv(new File(a));
+            MotionFallDetector det = new MotionFallDetector();
+            System.out.println(a + " (" + trace.size + " muestras, "
+                    + String.format(Locale.US, "%.1f", trace.seconds()) + "s)");
+            Replay r = replay(trace, det, FallReplay.STEP * 1_000_000_000L / FallReplay.SR, System.out);
+            System.out.println(r);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.example.toto_app.falls;
 
-import android.graphics.Bitmap;
-import android.graphics.Color;
 import java.util.Arrays;
 
 public class STFT {
@@ -18,25 +16,18 @@ public class STFT {
         int fftBins = frameSize / 2 + 1;
 
         float[][] spec = new float[nFrames][fftBins];
-        float[] real = new float[frameSize];
-        float[] imag = new float[frameSize];
+        FftPlan plan = new FftPlan(frameSize);
+        float[] frame = new float[frameSize];
+        float[] re = new float[fftBins];
+        float[] im = new float[fftBins];
 
         for (int f = 0; f < nFrames; f++) {
             int start = f * hopSize;
-            Arrays.fill(real, 0f);
-            Arrays.fill(imag, 0f);
-
             for (int i = 0; i < frameSize; i++) {
                 float s = (start + i < audio.length) ? audio[start + i] : 0f;
-                real[i] = s * window[i];
-            }
-
-            FFT.fft(real, imag);
-
-            for (int k = 0; k < fftBins; k++) {
-                float re = real[k], im = imag[k];
-                spec[f][k] = (float) Math.sqrt(re * re + im * im) + 1e-8f;
+                frame[i] = s * window[i];
             }
+            plan.magnitude(frame, spec[f], re, im, 1e-8f);
         }
         return spec;
     }
@@ -44,8 +35,12 @@ public class STFT {
     public static float[][] toDecibel(float[][] mag, float floorDb) {
         int F = mag.length;
         int K = (F > 0) ? mag[0].length : 0;
+        return toDecibel(mag, F, floorDb, new float[F][K]);
+    }
 
-        float[][] db = new float[F][K];
+    /** Igual que {@link #toDecibel(float[][], float)} pero escribe en {@code db} (reutilizable). */
+    public static float[][] toDecibel(float[][] mag, int F, float floorDb, float[][] db) {
+        int K = (F > 0) ? mag[0].length : 0;
         float maxDb = -Float.MAX_VALUE;
 
         for (int f = 0; f < F; f++) {
@@ -67,25 +62,7 @@ public class STFT {
         return db;
     }
 
-    public static Bitmap toBitmap(float[][] spec01) {
-        if (spec01 == null || spec01.length == 0) return null;
-        int width = spec01.length;
-        int height = spec01[0].length;
-
-        Bitmap bmp = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        for (int x = 0; x < width; x++) {
-            float[] col = spec01[x];
-            for (int y = 0; y < height; y++) {
-                float v = col[height - 1 - y];
-                v = v < 0f ? 0f : (v > 1f ? 1f : v);
-                int g = (int) (v * 255f);
-                bmp.setPixel(x, y, Color.rgb(g, g, g));
-            }
-        }
-        return bmp;
-    }
-
-    private static float[] buildWindow(int n, WindowType type) {
+    static float[] buildWindow(int n, WindowType type) {
         float[] w = new float[n];
         if (type == WindowType.HANN) {
             for (int i = 0; i < n; i++)
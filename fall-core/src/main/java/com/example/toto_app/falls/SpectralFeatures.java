@@ -0,0 +1,202 @@
+package com.example.toto_app.falls;
+
+/**
+ * Features de una ventana de audio calculadas bajo demanda.
+ * El pico se busca primero por energía en el dominio del tiempo; la FFT se hace sólo
+ * para las columnas que se piden. El espectrograma completo y su versión en dB
+ * únicamente se arman si algún consumidor los pide.
+ */
+public final class SpectralFeatures {
+
+    private final int sampleRate;
+    private final int frameSize;
+    private final int hopSize;
+    private final int bins;
+    private final float[] window;
+    private final FftPlan plan;
+    private final float[] frame;
+    private final float[] re;
+    private final float[] im;
+
+    private float[] audio;
+    private int length;
+
+    private boolean peakReady;
+    private float rmsPeak;
+    private int peakFrame;
+    private float widthMs50;
+    private float[] rms;
+
+    private int cachedFrame = -1;
+    private final float[] cachedCol;
+
+    private float[][] mag;
+    private boolean magReady;
+    private float[][] db01;
+    private float db01Floor = Float.NaN;
+
+    private long columnsComputed = 0;
+
+    public SpectralFeatures(int sampleRate, int frameSize, int hopSize, STFT.WindowType winType) {
+        if (Integer.bitCount(frameSize) != 1)
+            throw new IllegalArgumentException("frameSize debe ser potencia de 2");
+        this.sampleRate = sampleRate;
+        this.frameSize = frameSize;
+        this.hopSize = Math.max(1, hopSize);
+        this.bins = frameSize / 2 + 1;
+        this.window = STFT.buildWindow(frameSize, winType);
+        this.plan = new FftPlan(frameSize);
+        this.frame = new float[frameSize];
+        this.re = new float[bins];
+        this.im = new float[bins];
+        this.cachedCol = new float[bins];
+    }
+
+    /** Nueva ventana. {@code audio} no se copia: no modificarlo mientras se consultan features. */
+    public void reset(float[] audio, int length) {
+        this.audio = audio;
+        this.length = Math.min(length, audio.length);
+        peakReady = false;
+        cachedFrame = -1;
+        magReady = false;
+        db01Floor = Float.NaN;
+    }
+
+    public int frames() { return 1 + Math.max(0, length - frameSize) / hopSize; }
+
+    public int bins() { return bins; }
+
+    public long columnsComputed() { return columnsComputed; }
+
+    public float rmsPeak()   { ensurePeak(); return rmsPeak; }
+    public int   peakFrame() { ensurePeak(); return peakFrame; }
+    public float widthMs50() { ensurePeak(); return widthMs50; }
+
+    private void ensurePeak() {
+        if (peakReady) return;
+        int win = hopSize;
+        int frames = Math.max(1, 1 + (length - win) / hopSize);
+        rms = BufferPool.ensure(rms, frames);
+
+        float best = -1f; int bestIdx = 0;
+        for (int f = 0; f < frames; f++) {
+            float r = rms(audio, f * hopSize, win, length);
+            rms[f] = r;
+            if (r > best) { best = r; bestIdx = f; }
+        }
+        float thr = 0.5f * best;
+        int left = bestIdx, right = bestIdx;
+        while (left  > 0         && rms[left-1]  >= thr) left--;
+        while (right < frames-1  && rms[right+1] >= thr) right++;
+
+        rmsPeak = best;
+        peakFrame = bestIdx;
+        widthMs50 = (right - left + 1) * (1000f * hopSize / sampleRate);
+        peakReady = true;
+    }
+
+    public boolean isPostSilent(int fromSample, float rmsThresh, float seconds) {
+        int need = Math.round(seconds * sampleRate);
+        int end = Math.min(length, fromSample + need);
+        if (end <= fromSample) return false;
+        return rms(audio, fromSample, end - fromSample, length) <= rmsThresh;
+    }
+
+    static float rms(float[] x, int start, int len, int limit) {
+        int end = Math.min(limit, start + len);
+        double acc = 0; int n = 0;
+        for (int i = start; i < end; i++) { acc += x[i] * x[i]; n++; }
+        return n > 0 ? (float)Math.sqrt(acc / n) : 0f;
+    }
+
+    /** Magnitud de la columna {@code f} (se acota al rango válido). No copiar: se reutiliza. */
+    public float[] column(int f) {
+        f = Math.max(0, Math.min(f, frames() - 1));
+        if (magReady) return mag[f];
+        if (f != cachedFrame) {
+            transform(f, cachedCol);
+            cachedFrame = f;
+        }
+        return cachedCol;
+    }
+
+    public float lowFreqRatio(int f, float cutoffHz)          { return lowFreqRatio(column(f), sampleRate, cutoffHz); }
+    public float bandRatio(int f, float lowHz, float highHz)  { return bandRatio(column(f), sampleRate, lowHz, highHz); }
+    public float spectralCentroid(int f)                      { return spectralCentroid(column(f), sampleRate); }
+
+    private void transform(int f, float[] out) {
+        int start = f * hopSize;
+        for (int i = 0; i < frameSize; i++) {
+            float s = (start + i < length) ? audio[start + i] : 0f;
+            frame[i] = s * window[i];
+        }
+        plan.magnitude(frame, out, re, im, 1e-8f);
+        columnsComputed++;
+    }
+
+    public float[][] magnitudes() {
+        if (magReady) return mag;
+        int n = frames();
+        if (mag == null || mag.length != n) {
+            mag = new float[n][bins];
+            BufferPool.count(4L * n * bins);
+        }
+        for (int f = 0; f < n; f++) transform(f, mag[f]);
+        magReady = true;
+        return mag;
+    }
+
+    public float[][] decibel01(float floorDb) {
+        if (db01Floor == floorDb) return db01;
+        float[][] m = magnitudes();
+        if (db01 == null || db01.length != m.length) {
+            db01 = new float[m.length][bins];
+            BufferPool.count(4L * m.length * bins);
+        }
+        STFT.toDecibel(m, m.length, floorDb, db01);
+        db01Floor = floorDb;
+        return db01;
+    }
+
+    public static float lowFreqRatio(float[] col, int sampleRate, float cutoffHz) {
+        if (col == null || col.length == 0) return 0f;
+        float binHz = sampleRate / 2f / (col.length - 1);
+        int cutoffBin = Math.min(col.length - 1, Math.max(1, Math.round(cutoffHz / binHz)));
+
+        double low = 0, tot = 0;
+        for (int k = 0; k < col.length; k++) {
+            double v = col[k];
+            tot += v;
+            if (k <= cutoffBin) low += v;
+        }
+        return (float)((tot > 1e-9) ? (low / tot) : 0f);
+    }
+
+    public static float bandRatio(float[] col, int sampleRate, float lowHz, float highHz) {
+        if (col == null || col.length == 0) return 0f;
+        float binHz = sampleRate / 2f / (col.length - 1);
+        int lo = Math.max(0, Math.round(lowHz  / binHz));
+        int hi = Math.min(col.length - 1, Math.round(highHz / binHz));
+
+        double acc = 0, tot = 0;
+        for (int k = 0; k < col.length; k++) {
+            double v = col[k];
+            tot += v;
+            if (k >= lo && k <= hi) acc += v;
+        }
+        return (float)((tot > 1e-9) ? (acc / tot) : 0f);
+    }
+
+    public static float spectralCentroid(float[] col, int sampleRate) {
+        if (col == null || col.length == 0) return 0f;
+        float binHz = sampleRate / 2f / (col.length - 1);
+        double num = 0, den = 0;
+        for (int k = 0; k < col.length; k++) {
+            double f = k * binHz;
+            double v = col[k];
+            num += f * v;
+            den += v;
+        }
+        return (float)((den > 1e-12) ? (num / den) : 0f);
+    }
+}
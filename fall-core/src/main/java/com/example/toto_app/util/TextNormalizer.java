@@ -0,0 +1,244 @@
+package com.example.toto_app.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalización de texto en español en una sola pasada sobre una tabla de caracteres: saca tildes
+ * (como NFD + quitar marcas), pasa a minúsculas, mapea puntuación y colapsa espacios. Reemplaza las
+ * cadenas Normalizer + replaceAll que había en cada consumidor, con el mismo resultado. Los caracteres
+ * fuera de la tabla (latín, marcas combinables y puntuación general) van por la cadena clásica.
+ * turn() arma las formas de un transcript; quien lo recibe pasa ese Turn a los consumidores del turno.
+ */
+public final class TextNormalizer {
+
+    public static class Config {
+        /** Se reemplazan por un espacio. */
+        public String spaceChars = "";
+        /** Se borran. */
+        public String dropChars = "";
+        /** Quedan como token aparte (" . "). */
+        public String splitChars = "";
+        /** Sólo quedan [a-zñ0-9] y espacios; el resto se borra. */
+        public boolean lettersDigitsOnly = false;
+        public boolean lowerCase = true;
+        /** \s+ → " ". */
+        public boolean collapseSpaces = true;
+        /** Agrega un espacio adelante y atrás (para contains(" palabra ")). */
+        public boolean pad = false;
+    }
+
+    /** Pedidos e intenciones: puntuación → espacio. */
+    public static final TextNormalizer INTENT = new TextNormalizer(config("¿?¡!.,;:()[]\"", "", "", false, true, false));
+    /** Respuestas a caídas (FallLogic.normEs): "." y "," como tokens, con padding. */
+    public static final TextNormalizer FALL = new TextNormalizer(config("¿?¡!;:()[]\"", "", ".,", false, true, true));
+    /** Claves de deduplicación: se borran comillas. */
+    public static final TextNormalizer KEY = new TextNormalizer(config("", "“”\"'", "", false, true, false));
+    /** Sólo tildes, minúsculas y trim. */
+    public static final TextNormalizer FOLD = new TextNormalizer(config("", "", "", false, false, false));
+    /** Tildes, minúsculas y espacios colapsados (nombres de contactos). */
+    public static final TextNormalizer WORDS = new TextNormalizer(config("", "", "", false, true, false));
+    /** Consultas de contacto: sólo letras, dígitos y espacios. */
+    public static final TextNormalizer CONTACT = new TextNormalizer(config("", "", "", true, true, false));
+
+    private static Config config(String space, String drop, String split, boolean lettersDigits,
+                                 boolean collapse, boolean pad) {
+        Config c = new Config();
+        c.spaceChars = space;
+        c.dropChars = drop;
+        c.splitChars = split;
+        c.lettersDigitsOnly = lettersDigits;
+        c.collapseSpaces = collapse;
+        c.pad = pad;
+        return c;
+    }
+
+    private static final char SLOW = '\uFFFF';
+    private static final char REMOVE = '\uFFFE';
+    private static final int LATIN_END = 0x0370;
+    private static final int PUNCT_START = 0x2000, PUNCT_END = 0x2070;
+    /** Carácter ya sin tilde (y en minúscula en LOWER); REMOVE = marca combinable; SLOW = ir por Normalizer. */
+    private static final char[] FOLDED = new char[PUNCT_END];
+    private static final char[] LOWER = new char[PUNCT_END];
+
+    static {
+        for (int c = 0; c < PUNCT_END; c++) {
+            if (c >= LATIN_END && c < PUNCT_START) {
+                FOLDED[c] = LOWER[c] = SLOW;
+                continue;
+            }
+            if (isMark((char) c)) {
+                FOLDED[c] = LOWER[c] = REMOVE;
+                continue;
+            }
+            String d = stripMarks(Normalizer.normalize(String.valueOf((char) c), Normalizer.Form.NFD));
+            if (d.length() != 1) {
+                FOLDED[c] = LOWER[c] = SLOW;
+                continue;
+            }
+            FOLDED[c] = d.charAt(0);
+            String l = d.toLowerCase(Locale.ROOT);
+            LOWER[c] = l.length() == 1 ? l.charAt(0) : SLOW;
+        }
+    }
+
+    private static final byte KEEP = 0, SPACE = 1, DROP = 2, SPLIT = 3;
+
+    private final Config cfg;
+    private final byte[] action = new byte[PUNCT_END];
+    private final ThreadLocal<StringBuilder> scratch = new ThreadLocal<StringBuilder>() {
+        @Override protected StringBuilder initialValue() { return new StringBuilder(128); }
+    };
+
+    public TextNormalizer(Config cfg) {
+        this.cfg = cfg != null ? cfg : new Config();
+        for (int i = 0; i < this.cfg.spaceChars.length(); i++) mark(this.cfg.spaceChars.charAt(i), SPACE);
+        for (int i = 0; i < this.cfg.dropChars.length(); i++) mark(this.cfg.dropChars.charAt(i), DROP);
+        for (int i = 0; i < this.cfg.splitChars.length(); i++) mark(this.cfg.splitChars.charAt(i), SPLIT);
+    }
+
+    private void mark(char c, byte a) {
+        if (c >= PUNCT_END) throw new IllegalArgumentException("Carácter fuera de la tabla: U+" + Integer.toHexString(c));
+        action[c] = a;
+    }
+
+    public String normalize(String s) {
+        if (s == null) return cfg.pad ? "  " : "";
+        StringBuilder sb = scratch.get();
+        sb.setLength(0);
+        normalizeTo(s, sb);
+        return sb.toString();
+    }
+
+    /** Agrega la forma normalizada de src a dst (reutilizable entre llamadas, sin intermedios). */
+    public void normalizeTo(CharSequence src, StringBuilder dst) {
+        int base = dst.length();
+        if (cfg.pad) dst.append(' ');
+        int from = dst.length();
+        char[] table = cfg.lowerCase ? LOWER : FOLDED;
+        boolean pendingSpace = false;
+        for (int i = 0, n = src.length(); i < n; i++) {
+            char c = src.charAt(i);
+            char f = c < PUNCT_END ? table[c] : SLOW;
+            if (f == SLOW) {
+                dst.setLength(base);
+                slowPath(src.toString(), dst);
+                return;
+            }
+            if (f == REMOVE) continue;
+            byte a = f < PUNCT_END ? action[f] : KEEP;
+            if (a == DROP) continue;
+            if (a == KEEP && cfg.lettersDigitsOnly && !isLetterOrDigit(f) && !isSpace(f)) continue;
+            if (a == SPACE) f = ' ';
+            if (a == SPLIT) {
+                if (dst.length() > from) dst.append(' ');
+                dst.append(f);
+                if (cfg.collapseSpaces) pendingSpace = true;
+                else dst.append(' ');
+                continue;
+            }
+            if (cfg.collapseSpaces && isSpace(f)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                if (dst.length() > from) dst.append(' ');
+                pendingSpace = false;
+            }
+            dst.append(f);
+        }
+        trim(dst, from);
+        if (cfg.pad) dst.append(' ');
+    }
+
+    /** Como String.trim() pero sobre la cola de dst que empieza en from. */
+    private static void trim(StringBuilder dst, int from) {
+        int end = dst.length();
+        while (end > from && dst.charAt(end - 1) <= ' ') end--;
+        dst.setLength(end);
+        int start = from;
+        while (start < end && dst.charAt(start) <= ' ') start++;
+        if (start > from) dst.delete(from, start);
+    }
+
+    /** La cadena de siempre, para lo que cae fuera de la tabla. */
+    private void slowPath(String s, StringBuilder dst) {
+        String t = stripMarks(Normalizer.normalize(s, Normalizer.Form.NFD));
+        if (cfg.lowerCase) t = t.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(t.length() + 8);
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            byte a = c < PUNCT_END ? action[c] : KEEP;
+            if (a == DROP) continue;
+            if (a == SPACE) { sb.append(' '); continue; }
+            if (a == SPLIT) { sb.append(' ').append(c).append(' '); continue; }
+            if (cfg.lettersDigitsOnly && !isLetterOrDigit(c) && !isSpace(c)) continue;
+            sb.append(c);
+        }
+        t = sb.toString();
+        if (cfg.collapseSpaces) t = t.replaceAll("\\s+", " ");
+        t = t.trim();
+        if (cfg.pad) dst.append(' ').append(t).append(' ');
+        else dst.append(t);
+    }
+
+    private static String stripMarks(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (isMark(c)) {
+                if (sb == null) sb = new StringBuilder(s.length()).append(s, 0, i);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    /** \p{M}. */
+    private static boolean isMark(char c) {
+        int t = Character.getType(c);
+        return t == Character.NON_SPACING_MARK || t == Character.ENCLOSING_MARK || t == Character.COMBINING_SPACING_MARK;
+    }
+
+    /** [a-zñ0-9]. */
+    private static boolean isLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == 'ñ';
+    }
+
+    /** \s de java.util.regex. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /** Formas normalizadas de un transcript, calculadas a demanda y una sola vez. */
+    public static final class Turn {
+        public final String raw;
+        private volatile String intent, fall, key;
+
+        Turn(String raw) { this.raw = raw; }
+
+        public String intent() {
+            String s = intent;
+            if (s == null) intent = s = INTENT.normalize(raw);
+            return s;
+        }
+
+        public String fall() {
+            String s = fall;
+            if (s == null) fall = s = FALL.normalize(raw);
+            return s;
+        }
+
+        public String key() {
+            String s = key;
+            if (s == null) key = s = KEY.normalize(raw);
+            return s;
+        }
+    }
+
+    /** Un Turn nuevo para el texto; no hay caché global, el que lo crea lo comparte. */
+    public static Turn turn(String raw) {
+        return new Turn(raw == null ? "" : raw);
+    }
+}
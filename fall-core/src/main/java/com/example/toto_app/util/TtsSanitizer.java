@@ -0,0 +1,445 @@
+package com.example.toto_app.util;
+
+/**
+ * Markdown → texto para TTS. Es una máquina de estados de una sola pasada. {@link Stream} recibe el
+ * texto por pedazos (p. ej. una respuesta larga del LLM mientras llega) y va devolviendo oraciones
+ * listas para decir.
+ * Imita la cadena de regex anterior:
+ * - Saca los bloques ``` y los backticks.
+ * - Deja el texto de links e imágenes.
+ * - Quita títulos, citas y énfasis con *.
+ * - Las viñetas pasan a "— " y los números a "1, ".
+ * - " - ", los paréntesis y ":" pasan a comas.
+ * - Los saltos de línea pasan a " … " y se colapsan los espacios.
+ * - Agrega ¿/¡ a las oraciones y un punto final.
+ * Sólo se retiene la línea en curso (y un bloque de código sin cerrar).
+ */
+public final class TtsSanitizer {
+    private TtsSanitizer(){}
+
+    public static String sanitizeForTTS(String s) {
+        if (s == null) return "";
+        Stream st = new Stream();
+        String head = st.append(s);
+        return head + st.finish();
+    }
+
+    /**
+     * Sanitizador incremental. La concatenación de todo lo que devuelven append() y finish() es igual a
+     * sanitizeForTTS(texto completo). No es thread-safe.
+     */
+    public static final class Stream {
+        private int ticks = 0;
+        private boolean inFence = false, replaying = false, finished = false;
+        private final StringBuilder fence = new StringBuilder();
+        private final StringBuilder line = new StringBuilder(128);
+        private boolean lineHasStar = false, lineHasLink = false;
+        /** Un título o viñeta vacío se come el salto de línea y las líneas en blanco que siguen (\s* / \s+). */
+        private static final int JOIN_HEADING = 1, JOIN_BULLET = 2, JOIN_NUMBER = 4, JOIN_LIST = JOIN_BULLET | JOIN_NUMBER;
+        private int pendingJoin = 0;
+        /** Hubo texto en alguna línea anterior al llegar a cada paso (si no, ^\s* arrancaba en el inicio). */
+        private boolean contentBeforeHeading = false, contentBeforeQuote = false, contentBeforeList = false;
+        /** Después de un ">" al final de línea: una cita o título que sigue se come las líneas en blanco del medio. */
+        private boolean afterBareQuote = false;
+        private int savedWsCount = 0;
+        private boolean savedWsNewline = false;
+
+        private int wsCount = 0;
+        private char wsChar = ' ';
+        private boolean wsNewline = false;
+        private boolean started = false;
+
+        private final StringBuilder sentence = new StringBuilder(128);
+        private final StringBuilder out = new StringBuilder(256);
+        private boolean emittedSentence = false;
+        private char lastOut = 0;
+
+        /** Agrega un pedazo de texto y devuelve lo que ya quedó listo para decir ("" si nada). */
+        public String append(CharSequence chunk) {
+            if (finished) throw new IllegalStateException("Stream ya cerrado");
+            if (chunk != null) {
+                for (int i = 0, n = chunk.length(); i < n; i++) feed(chunk.charAt(i));
+            }
+            return drain();
+        }
+
+        /** Cierra el texto y devuelve el resto (con el punto final si hace falta). */
+        public String finish() {
+            if (finished) return "";
+            finished = true;
+            if (inFence) {
+                // Bloque sin cerrar: la regex no lo tocaba, sólo se borraban los backticks.
+                inFence = false;
+                replaying = true;
+                String pending = fence.toString();
+                fence.setLength(0);
+                for (int i = 0; i < pending.length(); i++) feed(pending.charAt(i));
+            }
+            processLine(false);
+            if (wsNewline) ellipsis();
+            wsCount = 0;
+            wsNewline = false;
+            closeSentence();
+            if (lastOut != '.' && lastOut != '!' && lastOut != '?' && lastOut != '…') out.append('.');
+            return drain();
+        }
+
+        private String drain() {
+            String s = out.toString();
+            out.setLength(0);
+            return s;
+        }
+
+        private void feed(char c) {
+            if (inFence) {
+                fence.append(c);
+                if (c != '`') {
+                    ticks = 0;
+                } else if (++ticks == 3) {
+                    ticks = 0;
+                    inFence = false;
+                    fence.setLength(0);
+                    addToLine(' ');
+                }
+                return;
+            }
+            if (c == '`') {
+                if (!replaying && ++ticks == 3) {
+                    ticks = 0;
+                    inFence = true;
+                }
+                return;
+            }
+            ticks = 0;
+            if (c == '\n') processLine(true);
+            else addToLine(c);
+        }
+
+        private void addToLine(char c) {
+            if (c == '*') lineHasStar = true;
+            else if (c == '(' && line.length() > 0 && line.charAt(line.length() - 1) == ']') lineHasLink = true;
+            line.append(c);
+        }
+
+        private void processLine(boolean br) {
+            StringBuilder l = line;
+            int join = pendingJoin;
+            if ((join & JOIN_HEADING) != 0 && isBlank(l)) {
+                resetLine();
+                return;
+            }
+            pendingJoin = 0;
+
+            if (lineHasLink) {
+                replaceLinks(l, true);
+                replaceLinks(l, false);
+            }
+            boolean skipBreak = false;
+            boolean clearLead = false;
+
+            boolean headingAllowed = true;
+            if ((join & JOIN_HEADING) != 0) {
+                int w0 = skipWs(l, 0);
+                l.delete(0, w0);
+                headingAllowed = w0 == 0;
+            }
+            int w = skipWs(l, 0);
+            int h = w;
+            while (h < l.length() && h - w < 6 && l.charAt(h) == '#') h++;
+            boolean headingBefore = contentBeforeHeading;
+            if (!isBlank(l)) contentBeforeHeading = true;
+            boolean bareQuote = afterBareQuote && !isBlank(l);
+            if (!isBlank(l)) afterBareQuote = false;
+            if (headingAllowed && w <= 3 && h > w) {
+                if (bareQuote && wsCount - savedWsCount + w <= 3) restoreWs();
+                int e = skipWs(l, h);
+                l.delete(0, e);
+                clearLead = !headingBefore && wsCount + w <= 3;
+                if (l.length() == 0 && br) pendingJoin = JOIN_HEADING;
+            }
+
+            boolean quoteBefore = contentBeforeQuote;
+            if (!isBlank(l)) contentBeforeQuote = true;
+            w = skipWs(l, 0);
+            if (w < l.length() && l.charAt(w) == '>') {
+                int e = w + 1;
+                if (e < l.length() && isWs(l.charAt(e))) e++;
+                else if (e == l.length() && br) skipBreak = true;
+                l.delete(0, e);
+                clearLead |= !quoteBefore;
+                if (bareQuote) restoreWs();
+            }
+
+            if (lineHasStar) {
+                stripEmphasis(l, "***");
+                stripEmphasis(l, "**");
+                stripEmphasis(l, "*");
+            }
+
+            if ((join & JOIN_LIST) != 0 && isBlank(l)) {
+                // El \s+ de la viñeta sigue comiendo líneas en blanco.
+                pendingJoin |= join & JOIN_LIST;
+                resetLine();
+                return;
+            }
+
+            boolean listBefore = contentBeforeList;
+            if (!isBlank(l)) contentBeforeList = true;
+            w = skipWs(l, 0);
+            if (w < l.length()) {
+                char m = l.charAt(w);
+                int e = -1;
+                String replacement = null;
+                if (m == '-' || m == '*' || m == '+' || m == '•') {
+                    if ((join & JOIN_BULLET) == 0 || w == 0) e = listGap(l, w + 1, br);
+                    replacement = "— ";
+                    if (e >= 0 && e == l.length() && br) pendingJoin |= JOIN_BULLET;
+                } else if (m >= '0' && m <= '9' && (join & JOIN_BULLET) == 0 && ((join & JOIN_NUMBER) == 0 || w == 0)) {
+                    int d = w;
+                    while (d < l.length() && l.charAt(d) >= '0' && l.charAt(d) <= '9') d++;
+                    if (d < l.length() && (l.charAt(d) == '.' || l.charAt(d) == ')')) {
+                        e = listGap(l, d + 1, br);
+                        replacement = l.substring(w, d) + ": ";
+                        if (e >= 0 && e == l.length() && br) pendingJoin |= JOIN_NUMBER;
+                    }
+                }
+                if (e >= 0) {
+                    l.replace(0, e, replacement);
+                    clearLead |= !listBefore;
+                }
+            }
+            int from = 0;
+            if ((join & JOIN_LIST) != 0) {
+                // Esta línea quedó pegada a "— " / "1: ": la viñeta ya se comió su sangría.
+                from = skipWs(l, 0);
+                if (from + 1 < l.length() && l.charAt(from) == '-' && l.charAt(from + 1) == ' ' && wsCount > 0) {
+                    wsCount--;
+                    emit(',');
+                    emit(' ');
+                    from += 2;
+                }
+            }
+
+            // ^\s* desde el principio del texto se comía los saltos previos.
+            if (clearLead) {
+                wsCount = 0;
+                wsNewline = false;
+            }
+
+            emitLine(l, from);
+            resetLine();
+            if (skipBreak) {
+                afterBareQuote = true;
+                savedWsCount = wsCount;
+                savedWsNewline = wsNewline;
+            }
+            if (br && !skipBreak && pendingJoin == 0) {
+                wsCount++;
+                wsNewline = true;
+            }
+        }
+
+        private void restoreWs() {
+            wsCount = savedWsCount;
+            wsNewline = savedWsNewline;
+        }
+
+        private static boolean isBlank(StringBuilder l) {
+            return skipWs(l, 0) == l.length();
+        }
+
+        private void resetLine() {
+            line.setLength(0);
+            lineHasStar = false;
+            lineHasLink = false;
+        }
+
+        /** Fin del \s+ después de una viñeta o número; -1 si no hay espacio (ni salto de línea). */
+        private static int listGap(StringBuilder l, int from, boolean br) {
+            if (from < l.length()) return isWs(l.charAt(from)) ? skipWs(l, from) : -1;
+            return br ? from : -1;
+        }
+
+        /** " - ", paréntesis, ":" y "*" sueltos; el resto pasa tal cual. */
+        private void emitLine(StringBuilder l, int from) {
+            int n = l.length();
+            int parenClose = -1;
+            for (int i = from; i < n; i++) {
+                char c = l.charAt(i);
+                if (i == parenClose) {
+                    emit(',');
+                    emit(' ');
+                    parenClose = -1;
+                    continue;
+                }
+                if (c == ' ' && i + 2 < n && l.charAt(i + 1) == '-' && l.charAt(i + 2) == ' ') {
+                    emit(',');
+                    emit(' ');
+                    i += 2;
+                    continue;
+                }
+                if (c == '(' && parenClose < 0) {
+                    int j = indexOfInLine(l, ")", i + 1);
+                    if (j >= 0) {
+                        emit(',');
+                        emit(' ');
+                        parenClose = j;
+                        continue;
+                    }
+                }
+                if (c == ':') {
+                    emit(',');
+                    emit(' ');
+                    continue;
+                }
+                if (c == '*') {
+                    starBreak();
+                    continue;
+                }
+                emit(c);
+            }
+        }
+
+        /** Colapsa espacios: una corrida con salto de línea es " … ", dos o más espacios son uno. */
+        private void emit(char c) {
+            if (isWs(c)) {
+                wsCount++;
+                wsChar = c;
+                return;
+            }
+            flushWs();
+            started = true;
+            put(c);
+        }
+
+        private void flushWs() {
+            if (wsCount == 0) return;
+            if (wsNewline) {
+                ellipsis();
+                put(' ');
+            } else if (started) {
+                put(wsCount >= 2 ? ' ' : wsChar);
+            }
+            wsCount = 0;
+            wsNewline = false;
+        }
+
+        private void ellipsis() {
+            if (started) put(' ');
+            put('…');
+            started = true;
+        }
+
+        /** Los "*" sueltos se borraban después de pasar los saltos a " … ": cortan la corrida de espacios. */
+        private void starBreak() {
+            if (!wsNewline) return;
+            ellipsis();
+            wsCount = 1;
+            wsChar = ' ';
+            wsNewline = false;
+        }
+
+        /** Arma oraciones: cortan en un espacio después de . ! ? …; las que preguntan o exclaman llevan ¿/¡. */
+        private void put(char c) {
+            if (isWs(c)) {
+                int n = sentence.length();
+                if (n > 0 && isSentenceEnd(sentence.charAt(n - 1))) {
+                    closeSentence();
+                    return;
+                }
+                if (n == 0) return;
+            }
+            sentence.append(c);
+        }
+
+        private void closeSentence() {
+            int n = sentence.length();
+            if (n == 0) return;
+            if (emittedSentence) out.append(' ');
+            char first = sentence.charAt(0), last = sentence.charAt(n - 1);
+            if (last == '?' && first != '¿') out.append('¿');
+            else if (last == '!' && first != '¡') out.append('¡');
+            out.append(sentence);
+            lastOut = last;
+            emittedSentence = true;
+            sentence.setLength(0);
+        }
+
+        private static boolean isSentenceEnd(char c) {
+            return c == '.' || c == '!' || c == '?' || c == '…';
+        }
+    }
+
+    /** ![texto](url) / [texto](url) → texto, como las regex no codiciosas (sin cruzar fines de línea). */
+    private static void replaceLinks(StringBuilder l, boolean images) {
+        int pos = 0;
+        while (pos < l.length()) {
+            int i = indexOfInLine(l, images ? "![" : "[", pos);
+            if (i < 0) {
+                int t = nextTerminator(l, pos);
+                if (t < 0) return;
+                pos = t + 1;
+                continue;
+            }
+            int textStart = i + (images ? 2 : 1);
+            int mid = indexOfInLine(l, "](", textStart);
+            int close = mid < 0 ? -1 : indexOfInLine(l, ")", mid + 2);
+            if (close < 0) {
+                int t = nextTerminator(l, i);
+                if (t < 0) return;
+                pos = t + 1;
+                continue;
+            }
+            l.delete(mid, close + 1);
+            l.delete(i, textStart);
+            pos = i + (mid - textStart);
+        }
+    }
+
+    /** d(.+?)d → contenido, de izquierda a derecha y sin cruzar fines de línea. */
+    private static void stripEmphasis(StringBuilder l, String d) {
+        int k = d.length();
+        int pos = 0;
+        while (true) {
+            int i = l.indexOf(d, pos);
+            if (i < 0) return;
+            int j = l.indexOf(d, i + k + 1);
+            if (j < 0) return;
+            int t = nextTerminator(l, i + k);
+            if (t >= 0 && t < j) {
+                pos = t + 1;
+                continue;
+            }
+            l.delete(j, j + k);
+            l.delete(i, i + k);
+            pos = j - k;
+        }
+    }
+
+    /** indexOf que no cruza los fines de línea que "." no acepta. */
+    private static int indexOfInLine(StringBuilder l, String s, int from) {
+        int i = l.indexOf(s, from);
+        if (i < 0) return -1;
+        int t = nextTerminator(l, from);
+        return t >= 0 && t < i + s.length() ? -1 : i;
+    }
+
+    private static int nextTerminator(StringBuilder l, int from) {
+        for (int i = from; i < l.length(); i++) {
+            char c = l.charAt(i);
+            if (c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') return i;
+        }
+        return -1;
+    }
+
+    private static int skipWs(StringBuilder l, int from) {
+        int i = from;
+        while (i < l.length() && isWs(l.charAt(i))) i++;
+        return i;
+    }
+
+    /** \s de java.util.regex. */
+    private static boolean isWs(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
@@ -1,7 +1,8 @@
 package com.example.toto_app.falls;
 
-public class FFT {
-    public static void fft(float[] real, float[] imag) {
+/** FFT compleja radix-2 que usaba STFT antes de {@link FftPlan}; queda sólo como referencia para FftPlanTest. */
+final class FFT {
+    static void fft(float[] real, float[] imag) {
         int n = real.length;
         if (Integer.bitCount(n) != 1)
             throw new IllegalArgumentException("La longitud debe ser potencia de 2");
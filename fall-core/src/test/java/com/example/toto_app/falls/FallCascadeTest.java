@@ -0,0 +1,44 @@
+package com.example.toto_app.falls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/** El salteo de ventanas por pico PCM16 nunca descarta algo que PEAK habría dejado pasar. */
+public class FallCascadeTest {
+
+    private static final int SR = 16000;
+    private static final int HOP = 160;
+
+    @Test
+    public void windowJustBelowFloorIsRejectedAtPeak() {
+        short amp = (short) (FallCascade.PCM16_PEAK_FLOOR - 1);
+        assertFalse(FallCascade.mayPassPeak(amp));
+        assertEquals(FallCascade.Stage.PEAK, rejectedAt(amp));
+    }
+
+    @Test
+    public void windowAtFloorPassesPeak() {
+        short amp = (short) FallCascade.PCM16_PEAK_FLOOR;
+        assertTrue(FallCascade.mayPassPeak(amp));
+        assertNotEquals(FallCascade.Stage.PEAK, rejectedAt(amp));
+    }
+
+    /** Ventana de 3 s con un tramo constante de 0.2 s (el RMS de un hop es igual a su pico). */
+    private static FallCascade.Stage rejectedAt(short amp) {
+        short[] pcm = new short[SR * 3];
+        Arrays.fill(pcm, SR, SR + SR / 5, amp);
+        float[] audio = new float[pcm.length];
+        for (int i = 0; i < pcm.length; i++) audio[i] = pcm[i] / 32768f;
+        SpectralFeatures feats = new SpectralFeatures(SR, 512, HOP, STFT.WindowType.HANN);
+        feats.reset(audio, audio.length);
+        FallCascade cascade = new FallCascade(SR, HOP);
+        cascade.evaluate(feats, audio, audio.length, (a, len, peak) -> true);
+        return cascade.lastRejectedAt();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.toto_app.falls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** FallReplay de punta a punta sobre WAVs sintéticos escritos a disco. */
+public class FallReplayTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void silenceHasNoFalls() throws IOException {
+        File dir = tmp.newFolder("corpus");
+        writeWav(new File(dir, "silencio.wav"), new short[FallReplay.SR * 6], FallReplay.SR);
+
+        List<FallReplay.WindowResult> seen = new ArrayList<>();
+        FallReplay.Stats st = new FallReplay((a, len, peak) -> true).run(Collections.singletonList(dir), seen::add);
+
+        assertEquals(1, st.files);
+        assertEquals(3, st.windows);
+        assertEquals(0, st.falls);
+        assertEquals(6.0, st.audioSeconds, 1e-6);
+        for (FallReplay.WindowResult r : seen) assertEquals(FallCascade.Stage.PEAK, r.rejectedAt);
+    }
+
+    @Test
+    public void thudThenSilenceReachesImpactStage() throws IOException {
+        int sr = 44100;
+        short[] pcm = new short[sr * 6];
+        int at = sr * 2;
+        for (int i = 0; i < sr / 5; i++) {
+            double env = Math.exp(-i / (sr * 0.05));
+            pcm[at + i] = (short) (28000 * env * Math.sin(2 * Math.PI * 80 * i / sr));
+        }
+        File wav = tmp.newFile("golpe.wav");
+        writeWav(wav, pcm, sr);
+
+        int[] impactCalls = {0};
+        FallReplay replay = new FallReplay((a, len, peak) -> { impactCalls[0]++; return true; });
+        FallReplay.Stats st = replay.run(Collections.singletonList(wav), null);
+
+        assertEquals(3, st.windows);
+        assertTrue("ninguna ventana llegó a IMPACT: " + replay.cascade().summary(), impactCalls[0] > 0);
+        assertEquals(impactCalls[0], st.falls);
+        assertTrue(st.msPerWindow() > 0);
+    }
+
+    private static void writeWav(File f, short[] pcm, int sampleRate) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(f))) {
+            int data = pcm.length * 2;
+            out.writeBytes("RIFF");
+            le32(out, 36 + data);
+            out.writeBytes("WAVEfmt ");
+            le32(out, 16);
+            le16(out, 1);
+            le16(out, 1);
+            le32(out, sampleRate);
+            le32(out, sampleRate * 2);
+            le16(out, 2);
+            le16(out, 16);
+            out.writeBytes("data");
+            le32(out, data);
+            for (short s : pcm) le16(out, s);
+        }
+    }
+
+    private static void le16(DataOutputStream out, int v) throws IOException {
+        out.write(v & 0xFF);
+        out.write((v >> 8) & 0xFF);
+    }
+
+    private static void le32(DataOutputStream out, int v) throws IOException {
+        le16(out, v);
+        le16(out, v >>> 16);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.toto_app.falls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** FftPlan contra la FFT compleja de referencia: mismos bins. La velocidad se mide en FftBenchmark (jmh). */
+public class FftPlanTest {
+
+    private static final int N = 512;
+
+    @Test
+    public void matchesReferenceFft() {
+        Random rnd = new Random(42);
+        for (int n = 4; n <= 4096; n <<= 1) {
+            FftPlan plan = new FftPlan(n);
+            float[] in = new float[n];
+            float[] re = new float[plan.bins()], im = new float[plan.bins()];
+            float[] refRe = new float[n], refIm = new float[n];
+            for (int trial = 0; trial < 20; trial++) {
+                for (int i = 0; i < n; i++) in[i] = rnd.nextFloat() * 2f - 1f;
+                System.arraycopy(in, 0, refRe, 0, n);
+                Arrays.fill(refIm, 0f);
+                FFT.fft(refRe, refIm);
+                plan.realForward(in, re, im);
+                float tol = 1e-5f * n;
+                for (int k = 0; k < plan.bins(); k++) {
+                    assertEquals("re n=" + n + " k=" + k, refRe[k], re[k], tol);
+                    assertEquals("im n=" + n + " k=" + k, refIm[k], im[k], tol);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void inputIsNotModified() {
+        FftPlan plan = new FftPlan(N);
+        float[] in = new float[N];
+        for (int i = 0; i < N; i++) in[i] = (float) Math.sin(i * 0.1);
+        float[] copy = in.clone();
+        plan.realForward(in, new float[plan.bins()], new float[plan.bins()]);
+        assertTrue(Arrays.equals(copy, in));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.toto_app.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Las cadenas Normalizer + replaceAll que usaba cada consumidor antes de {@link TextNormalizer}, y el
+ * corpus de transcripts contra el que se comparan; referencia para TextNormalizerTest y el benchmark.
+ */
+final class LegacyTextNormalizer {
+    private LegacyTextNormalizer() {}
+
+    static final String[] CORPUS = {
+            "¿Qué hora es?", "Llamá a Juan Pérez, por favor.", "Poneme una alarma a las 7:30",
+            "  mandale un mensaje a “Mamá” que llego tarde  ", "Sí, ya me la tomé", "¡Ayuda! Me caí en el baño",
+            "Pausá la música", "¿Qué tengo hoy? ¿Algún turno con el médico?", "Reproducí Canción Animal en Spotify",
+            "Decile a María José: \"ya salgo\"", "ESTOY BIEN, NO TE PREOCUPES", "Llamá a la señora Núñez",
+            "recordame tomar la pastilla a las nueve y media", "qué día es hoy", "no\tno\n todavía no",
+            "Avisale a Ángel que el ñandú se escapó (otra vez)", "leémelo", "Programá una alarma; despertame temprano",
+            "x", ""
+    };
+
+    interface Chain { String apply(String s); }
+
+    /** Preset de TextNormalizer y su cadena anterior, por nombre. */
+    static TextNormalizer preset(String name) {
+        switch (name) {
+            case "intent": return TextNormalizer.INTENT;
+            case "fall": return TextNormalizer.FALL;
+            case "key": return TextNormalizer.KEY;
+            case "fold": return TextNormalizer.FOLD;
+            case "contact": return TextNormalizer.CONTACT;
+            default: throw new IllegalArgumentException(name);
+        }
+    }
+
+    static Chain chain(String name) {
+        switch (name) {
+            case "intent": return LegacyTextNormalizer::intent;
+            case "fall": return LegacyTextNormalizer::fall;
+            case "key": return LegacyTextNormalizer::key;
+            case "fold": return LegacyTextNormalizer::fold;
+            case "contact": return LegacyTextNormalizer::contact;
+            default: throw new IllegalArgumentException(name);
+        }
+    }
+
+    static String intent(String s) {
+        return Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[¿?¡!.,;:()\\[\\]\"]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    static String fall(String raw) {
+        String s = Normalizer.normalize(raw, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        s = s.replaceAll("([.,])", " $1 ");
+        s = s.replaceAll("[¿?¡!;:()\\[\\]\"]", " ");
+        s = s.replaceAll("\\s+", " ").trim();
+        return " " + s + " ";
+    }
+
+    static String key(String s) {
+        return Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[“”\"']", "")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    static String fold(String s) {
+        return Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT).trim();
+    }
+
+    static String contact(String s) {
+        s = Normalizer.normalize(s.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+        s = s.replaceAll("[^a-zñ0-9\\s]", "");
+        return s.replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.toto_app.util;
+
+/**
+ * La cadena de regex que usaba sanitizeForTTS antes de la máquina de estados, y el corpus dorado de
+ * respuestas; referencia para TtsSanitizerTest y el benchmark.
+ */
+final class LegacyTtsSanitizer {
+    private LegacyTtsSanitizer() {}
+
+    static final String[] GOLDEN = {
+            "Hola, ¿en qué te puedo ayudar?", "Listo, programo la alarma.", "No hay conexión al servidor. Volvé a intentar más tarde.",
+            "Son las 10:30", "Estás bien?", "Qué bueno!", "¿Querés que lo llame?", "", "   ", "Hola\n",
+            "**Importante**: tomá la pastilla *después* de comer.",
+            "## Receta de tortilla\n\n1. Batí 4 huevos.\n2. Cortá las papas (finitas).\n3. Freílas a fuego medio - no muy fuerte.\n\nListo!",
+            "Te cuento:\n\n- Hoy hay sol\n- Mañana llueve\n* Pasado, nublado\n+ El domingo, lindo\n\n¿Querés saber algo más?",
+            "Podés ver más en [la página del clima](https://smn.gob.ar) o en ![mapa](http://x/y.png) el mapa.",
+            "Para instalarlo usá:\n```bash\nsudo apt install algo\n```\nDespués reiniciá.",
+            "Usá `ls -la` para ver los archivos.",
+            "> Más vale tarde que nunca.\n> — Dicho popular\n\nEs un refrán conocido.",
+            "### Paso 1\nAbrí la app.\n### Paso 2\nTocá *Configuración* y después **Cuenta**.",
+            "La presión normal es 120/80 (más o menos). Si tenés dudas, consultá al médico!",
+            "Hoy es lunes 3 de marzo.\r\nMañana es martes.\r\n",
+            "***Atención***: no mezcles *estos* remedios.",
+            "Ingredientes:\n\n  - 200 g de harina\n  - 2 huevos\n\nPreparación: mezclá todo (en un bol) y horneá.",
+            "1) Primero esto\n2) Después aquello\n10) Al final, lo otro",
+            "Dato curioso… los pulpos tienen tres corazones. Sabías eso?",
+            "Código sin cerrar: ```print('hola')\nY sigue.",
+            "Texto\tcon\t\ttabs   y    espacios."
+    };
+
+    /** Respuesta de varios KB armada con el corpus, como las largas del LLM. */
+    static String longAnswer() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 4096; i++) sb.append(GOLDEN[i % GOLDEN.length]).append("\n\n");
+        return sb.toString();
+    }
+
+    static String sanitizeForTTS(String s) {
+        if (s == null) return "";
+        String out = s;
+
+        out = out.replaceAll("(?s)```.*?```", " ");
+        out = out.replace("`", "");
+        out = out.replaceAll("!\\[(.*?)\\]\\((.*?)\\)", "$1");
+        out = out.replaceAll("\\[(.*?)\\]\\((.*?)\\)", "$1");
+        out = out.replaceAll("(?m)^\\s{0,3}#{1,6}\\s*", "");
+        out = out.replaceAll("(?m)^\\s*>\\s?", "");
+
+        out = out.replaceAll("\\*\\*\\*(.+?)\\*\\*\\*", "$1");
+        out = out.replaceAll("\\*\\*(.+?)\\*\\*", "$1");
+        out = out.replaceAll("\\*(.+?)\\*", "$1");
+
+        out = out.replaceAll("(?m)^\\s*([-*+]|•)\\s+", "— ");
+        out = out.replaceAll("(?m)^\\s*(\\d+)[\\.)]\\s+", "$1: ");
+        out = out.replace(" - ", ", ");
+        out = out.replaceAll("\\((.*?)\\)", ", $1, ");
+        out = out.replace(":", ", ");
+
+        out = out.replaceAll("\\r?\\n\\s*\\r?\\n", " … ");
+        out = out.replaceAll("\\r?\\n", " … ");
+        out = out.replace("*", "");
+
+        out = out.replaceAll("\\s{2,}", " ").trim();
+
+        out = ensureSpanishOpeners(out);
+        if (!out.matches(".*[\\.!?…]$")) out = out + ".";
+        return out;
+    }
+
+    private static String ensureSpanishOpeners(String text) {
+        String[] parts = text.split("(?<=[\\.\\!\\?…])\\s+");
+        for (int i = 0; i < parts.length; i++) {
+            String p = parts[i].trim();
+            if (p.endsWith("?") && !p.startsWith("¿")) parts[i] = "¿" + p;
+            else if (p.endsWith("!") && !p.startsWith("¡")) parts[i] = "¡" + p;
+            else parts[i] = p;
+        }
+        return String.join(" ", parts);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.toto_app.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * {@link TextNormalizer} contra las cadenas Normalizer + replaceAll que usaba cada consumidor
+ * ({@link LegacyTextNormalizer}): mismo texto sobre un corpus de transcripts, con String y con
+ * buffer reutilizado. La velocidad se mide en TextNormalizerBenchmark (jmh).
+ */
+public class TextNormalizerTest {
+
+    @Test
+    public void intentMatchesLegacy() { assertSame("intent"); }
+
+    @Test
+    public void fallMatchesLegacy() { assertSame("fall"); }
+
+    @Test
+    public void keyMatchesLegacy() { assertSame("key"); }
+
+    @Test
+    public void foldMatchesLegacy() { assertSame("fold"); }
+
+    @Test
+    public void contactMatchesLegacy() { assertSame("contact"); }
+
+    @Test
+    public void turnsAreIndependent() {
+        TextNormalizer.Turn a = TextNormalizer.turn("¿Qué hora es?");
+        TextNormalizer.Turn b = TextNormalizer.turn("Me caí");
+        assertEquals("que hora es", a.intent());
+        assertEquals(" me cai ", b.fall());
+        assertEquals("que hora es", a.intent());
+        assertEquals("", TextNormalizer.turn(null).intent());
+    }
+
+    private static void assertSame(String name) {
+        TextNormalizer tn = LegacyTextNormalizer.preset(name);
+        LegacyTextNormalizer.Chain legacy = LegacyTextNormalizer.chain(name);
+        StringBuilder buf = new StringBuilder();
+        for (String s : LegacyTextNormalizer.CORPUS) {
+            String expected = legacy.apply(s);
+            assertEquals(name + ": \"" + s + "\"", expected, tn.normalize(s));
+            buf.setLength(0);
+            tn.normalizeTo(s, buf);
+            assertEquals(name + " (buffer): \"" + s + "\"", expected, buf.toString());
+        }
+    }
+}
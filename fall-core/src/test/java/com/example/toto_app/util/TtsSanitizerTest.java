@@ -0,0 +1,50 @@
+package com.example.toto_app.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * {@link TtsSanitizer} contra la cadena de regex anterior ({@link LegacyTtsSanitizer}): mismo texto
+ * sobre un corpus dorado de respuestas, de una vez y en pedazos como llegarían del LLM. La velocidad
+ * se mide en TtsSanitizerBenchmark (jmh).
+ */
+public class TtsSanitizerTest {
+
+    private static final int CHUNK = 24;
+
+    @Test
+    public void goldenCorpusMatchesLegacy() {
+        for (String s : LegacyTtsSanitizer.GOLDEN) {
+            assertEquals("\"" + s + "\"", LegacyTtsSanitizer.sanitizeForTTS(s), TtsSanitizer.sanitizeForTTS(s));
+        }
+    }
+
+    @Test
+    public void chunkedStreamMatchesLegacy() {
+        for (int size : new int[]{1, 7, CHUNK, 1000}) {
+            for (String s : LegacyTtsSanitizer.GOLDEN) {
+                assertEquals("pedazos de " + size + ": \"" + s + "\"", LegacyTtsSanitizer.sanitizeForTTS(s), chunked(s, size));
+            }
+        }
+    }
+
+    @Test
+    public void streamEmitsBeforeTheEnd() {
+        String answer = LegacyTtsSanitizer.longAnswer();
+        TtsSanitizer.Stream st = new TtsSanitizer.Stream();
+        int firstAt = -1;
+        for (int i = 0; i < answer.length() && firstAt < 0; i += CHUNK) {
+            if (!st.append(answer.substring(i, Math.min(answer.length(), i + CHUNK))).isEmpty()) firstAt = i + CHUNK;
+        }
+        assertTrue("la primera oración salió recién al final", firstAt > 0 && firstAt < answer.length() / 4);
+    }
+
+    private static String chunked(String s, int size) {
+        TtsSanitizer.Stream st = new TtsSanitizer.Stream();
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < s.length(); i += size) out.append(st.append(s.substring(i, Math.min(s.length(), i + size))));
+        return out.append(st.finish()).toString();
+    }
+}